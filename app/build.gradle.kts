@@ -34,6 +34,17 @@ android {
     buildFeatures {
         viewBinding = true
     }
+
+    testOptions {
+        unitTests.all {
+            // DatabaseHelperScaleTest only runs when asked for: -Pparknow.scale=small (100k reservations)
+            // or -Pparknow.scale=large (100k users, 10M reservations); -Pparknow.budgetFactor=2 gives
+            // a slow machine twice the latency budget
+            project.findProperty("parknow.scale")?.let { scale -> it.systemProperty("parknow.scale", scale) }
+            it.systemProperty("parknow.budgetFactor", project.findProperty("parknow.budgetFactor") ?: "1")
+            it.maxHeapSize = "2g"
+        }
+    }
 }
 
 dependencies {
@@ -51,6 +62,7 @@ dependencies {
 
     // Unit Testing
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.14.1") // Runs DatabaseHelper on the JVM with the real SQLite
 
     // Instrumented Testing
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
@@ -0,0 +1,152 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bulk insert methods of DatabaseHelper: batches larger than one chunk,
+ * per-row failure reporting, and that a failed row does not roll back its neighbours.
+ * Spot IDs 1 to 3 are among the spots every new database is created with.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBatchInsertTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Batch", "batch@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("batch@parknow.lk");
+        assertNotEquals(-1, userId);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertReservations_spansSeveralChunks() {
+        int rows = DatabaseHelper.BATCH_CHUNK_SIZE * 2 + 1;
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            reservations.add(new ReservationModel(userId, 1 + i % 3, 1735725600000L + i));
+        }
+        BatchInsertResult result = helper.insertReservations(reservations);
+        assertEquals(rows, result.getInsertedCount());
+        assertFalse(result.hasFailures());
+        assertEquals(rows, count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void insertReservations_reportsForeignKeyFailures() {
+        List<ReservationModel> reservations = new ArrayList<>();
+        reservations.add(new ReservationModel(userId, 1, 1735725600000L));
+        reservations.add(new ReservationModel(userId + 1000, 2, 1735729200000L)); // No such user
+        reservations.add(new ReservationModel(userId, 3, 1735732800000L));
+        reservations.add(new ReservationModel(userId, 100000, 1735736400000L)); // No such spot
+
+        BatchInsertResult result = helper.insertReservations(reservations);
+        assertEquals(2, result.getInsertedCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(3, result.getFailures().get(1).getIndex());
+        assertEquals(2, count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void insertFavoriteSpots_reportsDuplicates() {
+        assertTrue(helper.insertFavoriteSpot(userId, 1));
+        List<FavoriteModel> favorites = new ArrayList<>();
+        favorites.add(new FavoriteModel(userId, 2));
+        favorites.add(new FavoriteModel(userId, 1)); // Already a favorite
+        favorites.add(new FavoriteModel(userId, 2)); // Duplicate within the batch
+
+        BatchInsertResult result = helper.insertFavoriteSpots(favorites);
+        assertEquals(1, result.getInsertedCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+        assertTrue(helper.isSpotFavorite(userId, 2));
+    }
+
+    @Test
+    public void insertFeedbackBatch_keepsEachTimestamp() {
+        List<FeedbackModel> feedback = new ArrayList<>();
+        feedback.add(new FeedbackModel(userId, "Great", "Easy to find a spot", 5f, 1700000000000L));
+        feedback.add(new FeedbackModel(userId, "Slow", null, 2.5f, 1700000060000L)); // Null message is allowed
+
+        BatchInsertResult result = helper.insertFeedbackBatch(feedback);
+        assertEquals(2, result.getInsertedCount());
+        assertFalse(result.hasFailures());
+        try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COL_RATING + ", " + DatabaseHelper.COL_TIMESTAMP
+                + " FROM " + DatabaseHelper.TABLE_FEEDBACK + " ORDER BY " + DatabaseHelper.COL_FEEDBACK_ID, null)) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(5.0, cursor.getDouble(0), 0.0001);
+            assertEquals(1700000000000L, cursor.getLong(1));
+            assertTrue(cursor.moveToNext());
+            assertEquals(2.5, cursor.getDouble(0), 0.0001);
+            assertEquals(1700000060000L, cursor.getLong(1));
+        }
+    }
+
+    @Test
+    public void insertSpots_reportsDuplicateNames() {
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        spots.add(new ParkingSpotModel("Matara Beach Parking", 5.9485, 80.5353, 10, 100, null));
+        spots.add(new ParkingSpotModel("Matara Beach Parking", 5.9485, 80.5353, 10, 100, null)); // Same name
+
+        BatchInsertResult result = helper.insertSpots(spots);
+        assertEquals(1, result.getInsertedCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+    }
+
+    @Test
+    public void insertReservations_reportsRowsTheBinderRejects() {
+        List<ReservationModel> reservations = new ArrayList<>();
+        reservations.add(new ReservationModel(userId, 1, 1735725600000L));
+        reservations.add(null); // The binder throws NullPointerException
+        reservations.add(new ReservationModel(userId, 2, 1735729200000L));
+
+        BatchInsertResult result = helper.insertReservations(reservations);
+        assertEquals(2, result.getInsertedCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(2, count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void emptyBatch_insertsNothing() {
+        BatchInsertResult result = helper.insertReservations(Collections.emptyList());
+        assertEquals(0, result.getInsertedCount());
+        assertFalse(result.hasFailures());
+    }
+
+    private long count(String table) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the full-text feedback search: ranking, snippets, keyset pages, and that the
+ * FeedbackFts index follows inserts, edits and deletes of Feedback rows.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperFeedbackSearchTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Search", "search@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("search@parknow.lk");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void search_ranksByMatchesAndHighlights() {
+        assertTrue(helper.insertFeedback(userId, "Payment", "Card was declined at the gate", 2f));
+        assertTrue(helper.insertFeedback(userId, "Gate broken", "The gate is broken, the gate does not open", 1f));
+        assertTrue(helper.insertFeedback(userId, "Lights", "Too dark at night", 3f));
+
+        List<FeedbackSearchResult> results = search("gate", null, 10);
+        assertEquals(2, results.size());
+        assertEquals("Gate broken", results.get(0).getFeedback().getSubject()); // Three occurrences beat one
+        assertEquals(3, results.get(0).getMatchCount());
+        assertEquals(1, results.get(1).getMatchCount());
+        assertTrue(results.get(1).getSnippet().contains(DatabaseHelper.SNIPPET_MATCH_START + "gate" + DatabaseHelper.SNIPPET_MATCH_END));
+
+        // All words must occur, in any form of the same stem
+        assertEquals(1, search("gates OPEN", null, 10).size());
+        assertEquals(1, search("declined card", null, 10).size());
+        assertEquals(0, search("gate lights", null, 10).size());
+    }
+
+    @Test
+    public void search_treatsOperatorsAsWords() {
+        assertTrue(helper.insertFeedback(userId, "Overcharged", "Charged twice - not OK", 1f));
+        assertEquals(1, search("\"overcharged", null, 10).size()); // Unbalanced quote
+        assertEquals(1, search("twice -not", null, 10).size());
+        assertEquals(0, search("overcharged OR lights", null, 10).size()); // OR is a word, and does not occur
+        assertNull(helper.searchFeedback("  -*\" ", null, 10));
+    }
+
+    @Test
+    public void pages_coverAllMatchesOnce() {
+        List<FeedbackModel> feedback = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            StringBuilder message = new StringBuilder("queue");
+            for (int j = 0; j < i % 4; j++) {
+                message.append(" long queue"); // Several results share each match count
+            }
+            feedback.add(new FeedbackModel(userId, "Entry " + i, message.toString(), 3f, 1700000000000L + i));
+        }
+        assertFalse(helper.insertFeedbackBatch(feedback).hasFailures());
+
+        List<FeedbackSearchResult> all = search("queue", null, 1000);
+        assertEquals(95, all.size());
+        List<FeedbackSearchResult> paged = new ArrayList<>();
+        FeedbackSearchResult last = null;
+        List<FeedbackSearchResult> page;
+        do {
+            page = search("queue", last, 10);
+            paged.addAll(page);
+            assertTrue("Paging repeats results", paged.size() <= all.size()); // Fail rather than loop forever
+            last = page.isEmpty() ? last : page.get(page.size() - 1);
+        } while (page.size() == 10);
+
+        assertEquals(all.size(), paged.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i).getFeedback().getId(), paged.get(i).getFeedback().getId());
+            if (i > 0) {
+                assertTrue(all.get(i - 1).getMatchCount() >= all.get(i).getMatchCount());
+            }
+        }
+    }
+
+    @Test
+    public void index_followsEditsAndDeletes() {
+        assertTrue(helper.insertFeedback(userId, "Barrier", "Barrier stuck", 2f));
+        assertEquals(1, search("stuck", null, 10).size());
+
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_FEEDBACK + " SET " + DatabaseHelper.COL_MESSAGE + " = 'Fixed now'");
+        assertEquals(0, search("stuck", null, 10).size());
+        assertEquals(1, search("fixed", null, 10).size());
+
+        // Deleting the user cascades to the feedback and its index entries
+        db.delete(DatabaseHelper.TABLE_USERS, null, null);
+        assertEquals(0, search("fixed", null, 10).size());
+        assertEquals(0, search("barrier", null, 10).size());
+    }
+
+    private List<FeedbackSearchResult> search(String text, FeedbackSearchResult after, int pageSize) {
+        List<FeedbackSearchResult> results = new ArrayList<>();
+        try (Cursor cursor = helper.searchFeedback(text, after, pageSize)) {
+            assertNotNull(cursor);
+            while (cursor.moveToNext()) {
+                FeedbackModel feedback = new FeedbackModel(
+                        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_FEEDBACK_ID)), userId,
+                        DatabaseHelper.GENERAL_RATING_SPOT_ID,
+                        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SUBJECT)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_MESSAGE)), 0f, 0L);
+                results.add(new FeedbackSearchResult(feedback,
+                        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_MATCH_COUNT)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SNIPPET))));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,153 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that runMaintenance moves exactly the reservations before the cutoff into ReservationHistory,
+ * in several chunks, never archives upcoming reservations, and gives freed pages back to the file system.
+ * With a writer executor, each chunk is a task of its own on it.
+ * Uses a database file, since an in-memory database has no file to shrink.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperMaintenanceTest {
+
+    private static final String DB_NAME = "parkNow-maintenance-test.db";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private File dbFile;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbFile = appContext.getDatabasePath(DB_NAME);
+        SQLiteDatabase.deleteDatabase(dbFile);
+        helper = new DatabaseHelper(appContext, DB_NAME);
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Archivist", "archivist@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("archivist@parknow.lk");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        SQLiteDatabase.deleteDatabase(dbFile);
+    }
+
+    @Test
+    public void runMaintenance_archivesOnlyReservationsBeforeTheCutoff() {
+        long now = System.currentTimeMillis();
+        int oldCount = DatabaseHelper.BATCH_CHUNK_SIZE * 2 + 17; // Three archive chunks
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < oldCount; i++) {
+            // Old and recent reservations interleaved, so ReservationID order is not time order
+            reservations.add(new ReservationModel(userId, 1, now - 400 * DAY - i));
+            reservations.add(new ReservationModel(userId, 1, now - DAY));
+        }
+        reservations.add(new ReservationModel(userId, 1, now + DAY)); // Upcoming
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+
+        MaintenanceReport report = helper.runMaintenance(now - 365 * DAY, Integer.MAX_VALUE);
+        assertNotNull(report);
+        assertEquals(oldCount, report.getArchivedReservations());
+        assertFalse(report.isVacuumed());
+        assertEquals(oldCount + 1, count(DatabaseHelper.TABLE_RESERVATIONS));
+        assertEquals(oldCount, count(DatabaseHelper.TABLE_RESERVATION_HISTORY));
+
+        // A cutoff in the future is treated as now: the upcoming reservation stays
+        report = helper.runMaintenance(now + 2 * DAY, Integer.MAX_VALUE);
+        assertNotNull(report);
+        assertEquals(oldCount, report.getArchivedReservations());
+        assertEquals(1, count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void runMaintenance_runsEachChunkAsWriterTask() throws Exception {
+        long now = System.currentTimeMillis();
+        int oldCount = DatabaseHelper.BATCH_CHUNK_SIZE * 2 + 17; // Three archive chunks
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < oldCount; i++) {
+            reservations.add(new ReservationModel(userId, 1, now - 400 * DAY - i));
+        }
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        AtomicInteger steps = new AtomicInteger();
+        try {
+            MaintenanceReport report = helper.runMaintenance(now - 365 * DAY, Integer.MAX_VALUE, step -> {
+                steps.incrementAndGet();
+                writer.execute(step);
+            });
+            assertNotNull(report);
+            assertEquals(oldCount, report.getArchivedReservations());
+        } finally {
+            writer.shutdown();
+        }
+        // Three chunks, the empty chunk that ends the loop and the slot capacity cleanup
+        assertEquals(5, steps.get());
+        assertEquals(0, count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void runMaintenance_reclaimsFreePages() {
+        long now = System.currentTimeMillis();
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            reservations.add(new ReservationModel(userId, 1 + i % 8, now - 400 * DAY + i));
+        }
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+        // Free plenty of pages without archiving anything
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_RESERVATIONS);
+
+        MaintenanceReport first = helper.runMaintenance(0, 1);
+        assertNotNull(first);
+        assertTrue(first.isVacuumed());
+        assertTrue("Nothing reclaimed: " + first, first.getReclaimedBytes() > 0);
+        assertEquals(2, pragma("auto_vacuum")); // Switched to INCREMENTAL by the first vacuum
+
+        // From now on deletes are reclaimed by an incremental vacuum
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_RESERVATIONS);
+        assertTrue(pragma("freelist_count") > 0);
+        MaintenanceReport second = helper.runMaintenance(0, 1);
+        assertNotNull(second);
+        assertTrue("Nothing reclaimed: " + second, second.getReclaimedBytes() > 0);
+        assertEquals(0, pragma("freelist_count"));
+        assertTrue(dbFile.length() <= second.getSizeAfterBytes());
+    }
+
+    private long count(String table) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private long pragma(String name) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + name, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
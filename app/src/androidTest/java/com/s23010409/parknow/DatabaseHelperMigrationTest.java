@@ -0,0 +1,168 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds a version 5 database file by hand, opens it with DatabaseHelper and checks what the
+ * upgrade does to it: TEXT timestamps become INTEGER epoch milliseconds (V6) and spot names in
+ * Reservations and Favorites become integer references to the Spots table (V8), and existing
+ * feedback is counted into RatingSummary (V9).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperMigrationTest {
+
+    private static final String DB_NAME = "parkNow-migration-test.db";
+
+    private Context appContext;
+    private File dbFile;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbFile = appContext.getDatabasePath(DB_NAME);
+        SQLiteDatabase.deleteDatabase(dbFile);
+        dbFile.getParentFile().mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        SQLiteDatabase.deleteDatabase(dbFile);
+    }
+
+    /**
+     * Writes a database with the version 5 schema and a few rows in the old formats.
+     */
+    private void createV5Database() {
+        SQLiteDatabase v5 = SQLiteDatabase.openOrCreateDatabase(dbFile, null);
+        v5.execSQL("CREATE TABLE Users(UserID INTEGER PRIMARY KEY AUTOINCREMENT, Name TEXT, Email TEXT UNIQUE, Password TEXT, ProfileImage TEXT)");
+        v5.execSQL("CREATE TABLE Reservations(ReservationID INTEGER PRIMARY KEY AUTOINCREMENT, UserID INTEGER, SpotID TEXT, TimeStamp TEXT,"
+                + "FOREIGN KEY(UserID) REFERENCES Users(UserID) ON DELETE CASCADE)");
+        v5.execSQL("CREATE TABLE Favorites(FavoriteID INTEGER PRIMARY KEY AUTOINCREMENT, UserID INTEGER, SpotID TEXT, UNIQUE(UserID, SpotID),"
+                + "FOREIGN KEY(UserID) REFERENCES Users(UserID) ON DELETE CASCADE)");
+        v5.execSQL("CREATE TABLE Feedback(FeedbackID INTEGER PRIMARY KEY AUTOINCREMENT, UserID INTEGER, Subject TEXT, Message TEXT, Rating REAL, TimeStamp TEXT,"
+                + "FOREIGN KEY(UserID) REFERENCES Users(UserID) ON DELETE CASCADE)");
+        v5.execSQL("INSERT INTO Users(Name, Email, Password) VALUES ('Old', 'old@parknow.lk', 'secret')");
+        v5.execSQL("INSERT INTO Reservations(UserID, SpotID, TimeStamp) VALUES (1, 'Colombo Fort Parking', '2025-01-01 10:00:00')");
+        v5.execSQL("INSERT INTO Reservations(UserID, SpotID, TimeStamp) VALUES (1, 'Closed Test Lot', '2024-06-01 09:00:00')");
+        v5.execSQL("INSERT INTO Favorites(UserID, SpotID) VALUES (1, 'Galle Fort Parking')");
+        v5.execSQL("INSERT INTO Favorites(UserID, SpotID) VALUES (1, 'Closed Test Lot')");
+        v5.execSQL("INSERT INTO Feedback(UserID, Subject, Message, Rating, TimeStamp) VALUES (1, 'Good', 'Nice app', 4.0, '1700000000000')");
+        v5.setVersion(5);
+        v5.close();
+    }
+
+    @Test
+    public void upgradeFromV5_convertsTimestampsToEpochMillis() throws Exception {
+        createV5Database();
+        helper = new DatabaseHelper(appContext, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        long expected = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).parse("2025-01-01 10:00:00").getTime();
+        try (Cursor cursor = db.rawQuery("SELECT TimeStamp, typeof(TimeStamp) FROM Reservations ORDER BY ReservationID", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("integer", cursor.getString(1));
+            assertEquals(expected, cursor.getLong(0));
+        }
+        try (Cursor cursor = db.rawQuery("SELECT TimeStamp, typeof(TimeStamp) FROM Feedback", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("integer", cursor.getString(1));
+            assertEquals(1700000000000L, cursor.getLong(0));
+        }
+
+        // Range queries work on the migrated rows, and new rows keep their IDs after the old ones
+        try (Cursor cursor = helper.getReservationsByUserBetween(1, expected, expected + 1)) {
+            assertEquals(1, cursor.getCount());
+        }
+        try (Cursor cursor = helper.getFeedbackSince(1700000000001L)) {
+            assertEquals(0, cursor.getCount());
+        }
+        assertTrue(helper.insertReservation(1, spotIdOf(db, "Galle Fort Parking"), expected + 1000));
+        try (Cursor cursor = helper.getReservationsByUser(1)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(3, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RES_ID)));
+        }
+    }
+
+    @Test
+    public void upgradeFromV5_convertsSpotNamesToIds() {
+        createV5Database();
+        helper = new DatabaseHelper(appContext, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        int colomboId = spotIdOf(db, "Colombo Fort Parking");
+        int galleId = spotIdOf(db, "Galle Fort Parking");
+        int closedLotId = spotIdOf(db, "Closed Test Lot"); // Not a built-in spot, kept without coordinates
+
+        try (Cursor cursor = helper.getReservationsByUser(1)) {
+            int spotIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+            int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_NAME);
+            assertTrue(cursor.moveToNext());
+            assertEquals(colomboId, cursor.getInt(spotIndex));
+            assertEquals("Colombo Fort Parking", cursor.getString(nameIndex));
+            assertTrue(cursor.moveToNext());
+            assertEquals(closedLotId, cursor.getInt(spotIndex));
+            assertFalse(cursor.moveToNext());
+        }
+        assertTrue(helper.isSpotFavorite(1, galleId));
+        assertTrue(helper.isSpotFavorite(1, closedLotId));
+        assertFalse(helper.isSpotFavorite(1, colomboId));
+
+        // The placeholder spot is not offered on the map
+        try (Cursor cursor = helper.getAllSpots()) {
+            int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_NAME);
+            while (cursor.moveToNext()) {
+                assertNotEquals("Closed Test Lot", cursor.getString(nameIndex));
+            }
+        }
+        try (Cursor cursor = db.rawQuery("PRAGMA foreign_key_check", null)) {
+            assertEquals(0, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void upgradeFromV5_summarizesExistingRatings() {
+        createV5Database();
+        helper = new DatabaseHelper(appContext, DB_NAME);
+
+        try (Cursor cursor = helper.getRatingSummary(DatabaseHelper.GENERAL_RATING_SPOT_ID)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_COUNT)));
+            assertEquals(4.0, cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_SUM)), 0.0001);
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_STARS_PREFIX + 4)));
+        }
+        // The triggers are in place on the upgraded database
+        assertTrue(helper.insertFeedback(1, "Again", "Still good", 2.0f));
+        try (Cursor cursor = helper.getRatingSummary(DatabaseHelper.GENERAL_RATING_SPOT_ID)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_COUNT)));
+        }
+    }
+
+    private static int spotIdOf(SQLiteDatabase db, String spotName) {
+        try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COL_SPOT_ID + " FROM " + DatabaseHelper.TABLE_SPOTS
+                + " WHERE " + DatabaseHelper.COL_SPOT_NAME + " = ?", new String[]{spotName})) {
+            assertTrue("Spot missing: " + spotName, cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
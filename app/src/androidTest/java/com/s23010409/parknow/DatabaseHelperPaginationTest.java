@@ -0,0 +1,95 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks a user's reservations page by page with DatabaseHelper#getReservationsPage and checks
+ * that the pages add up to exactly the full, newest-first list, including rows that share a timestamp.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperPaginationTest {
+
+    private static final int PAGE_SIZE = 7;
+
+    private DatabaseHelper helper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        assertTrue(helper.insertUser("Pager", "pager@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("pager@parknow.lk");
+        assertTrue(helper.insertUser("Other", "other@parknow.lk", "secret"));
+        int otherUserId = helper.getUserIdByEmail("other@parknow.lk");
+
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Three reservations per timestamp, so page boundaries fall inside groups of equal timestamps
+            reservations.add(new ReservationModel(userId, 1 + i % 8, 1735689600000L + (i / 3) * 60000L));
+            reservations.add(new ReservationModel(otherUserId, 1 + i % 8, 1735689600000L + i));
+        }
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void pagesMatchFullList() {
+        List<Integer> expected = new ArrayList<>();
+        try (Cursor cursor = helper.getReservationsByUser(userId)) {
+            while (cursor.moveToNext()) {
+                expected.add(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RES_ID)));
+            }
+        }
+        assertEquals(100, expected.size());
+
+        List<Integer> paged = new ArrayList<>();
+        ReservationModel last = null;
+        while (true) {
+            List<ReservationModel> page = readPage(last);
+            assertTrue(page.size() <= PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (ReservationModel reservation : page) {
+                paged.add(reservation.getId());
+            }
+            last = page.get(page.size() - 1);
+        }
+        assertEquals(expected, paged);
+    }
+
+    private List<ReservationModel> readPage(ReservationModel after) {
+        List<ReservationModel> page = new ArrayList<>();
+        try (Cursor cursor = helper.getReservationsPage(userId, after, PAGE_SIZE)) {
+            int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RES_ID);
+            int spotIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+            int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_NAME);
+            int timeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_TIMESTAMP);
+            while (cursor.moveToNext()) {
+                assertNotNull(cursor.getString(nameIndex));
+                page.add(new ReservationModel(cursor.getInt(idIndex), userId, cursor.getInt(spotIndex),
+                        cursor.getString(nameIndex), cursor.getLong(timeIndex)));
+            }
+        }
+        return page;
+    }
+}
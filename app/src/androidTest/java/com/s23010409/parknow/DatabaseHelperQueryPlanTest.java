@@ -0,0 +1,192 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that every per-user DatabaseHelper query is answered
+ * from an index, i.e. never scans a whole table and never sorts in a temporary b-tree.
+ * getAllReservations, getAllFeedback, getAllSpots and getAllRatingSummaries are full-table reads by design and are not checked.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperQueryPlanTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void checkUser_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_CHECK_USER, "a@b.c", "secret");
+    }
+
+    @Test
+    public void getUserByEmail_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_USER_BY_EMAIL, "a@b.c");
+    }
+
+    @Test
+    public void getUserIdByEmail_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_USER_ID_BY_EMAIL, "a@b.c");
+    }
+
+    @Test
+    public void getReservationsByUser_usesIndexWithoutSorting() {
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_RESERVATIONS_BY_USER, "1");
+        assertTrue("Expected a covering index, plan was " + plan,
+                plan.get(0).contains("COVERING INDEX " + DatabaseHelper.INDEX_RESERVATIONS_USER_TIME));
+    }
+
+    @Test
+    public void getReservationsPage_usesIndexWithoutSorting() {
+        List<String> first = assertUsesIndex(DatabaseHelper.SQL_RESERVATIONS_FIRST_PAGE, "1", "20");
+        assertTrue("Expected a covering index, plan was " + first,
+                first.get(0).contains("COVERING INDEX " + DatabaseHelper.INDEX_RESERVATIONS_USER_TIME));
+        List<String> next = assertUsesIndex(DatabaseHelper.SQL_RESERVATIONS_PAGE_AFTER,
+                "1", "1735689600000", "1735689600000", "42", "20");
+        assertTrue("Expected a covering index, plan was " + next,
+                next.get(0).contains("COVERING INDEX " + DatabaseHelper.INDEX_RESERVATIONS_USER_TIME));
+    }
+
+    @Test
+    public void getReservationsByUserBetween_usesIndexWithoutSorting() {
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_RESERVATIONS_BY_USER_BETWEEN,
+                "1", "1735689600000", "1738368000000");
+        assertTrue("Expected a covering index, plan was " + plan,
+                plan.get(0).contains("COVERING INDEX " + DatabaseHelper.INDEX_RESERVATIONS_USER_TIME));
+    }
+
+    @Test
+    public void getFeedbackSince_usesIndexWithoutSorting() {
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_FEEDBACK_SINCE, "1735689600000");
+        assertTrue("Expected " + DatabaseHelper.INDEX_FEEDBACK_TIME + ", plan was " + plan,
+                plan.get(0).contains(DatabaseHelper.INDEX_FEEDBACK_TIME));
+    }
+
+    @Test
+    public void getFavoriteSpotsByUser_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_FAVORITES_BY_USER, "1");
+    }
+
+    @Test
+    public void getFavoriteSpotIdsByUser_usesCoveringIndex() {
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_FAVORITE_SPOT_IDS_BY_USER, "1");
+        assertTrue("Expected a covering index, plan was " + plan, plan.get(0).contains("COVERING INDEX"));
+    }
+
+    @Test
+    public void getRatingSummary_usesPrimaryKey() {
+        assertUsesIndex(DatabaseHelper.SQL_RATING_SUMMARY, "1");
+    }
+
+    @Test
+    public void slotCapacity_usesPrimaryKey() {
+        assertUsesIndex(DatabaseHelper.SQL_TAKE_SLOT, "1", "1735725600000");
+        assertUsesIndex(DatabaseHelper.SQL_ENSURE_SLOT, "1735725600000", "1");
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_REMAINING_CAPACITY, "1735725600000", "1735732800000", "1");
+        assertTrue("Expected a slot range on the primary key, plan was " + plan,
+                plan.toString().contains(DatabaseHelper.COL_SLOT_START + ">?"));
+    }
+
+    @Test
+    public void archiveChunk_usesRowidRange() {
+        assertUsesIndex(DatabaseHelper.SQL_ARCHIVE_RESERVATIONS, "0", "500", "1735725600000");
+        assertUsesIndex(DatabaseHelper.SQL_DELETE_ARCHIVED, "0", "500", "1735725600000");
+    }
+
+    @Test
+    public void exportChunks_useKeyRanges() {
+        assertUsesIndex(DatabaseHelper.SQL_RESERVATIONS_AFTER, "0", "500");
+        assertUsesIndex(DatabaseHelper.SQL_ARCHIVED_RESERVATIONS_AFTER, "1", "1", "42", "500");
+        assertUsesIndex(DatabaseHelper.SQL_FAVORITES_AFTER, "0", "500");
+        assertUsesIndex(DatabaseHelper.SQL_FEEDBACK_AFTER, "0", "500");
+    }
+
+    @Test
+    public void isSpotFavorite_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_IS_SPOT_FAVORITE, "1", "1");
+    }
+
+    @Test
+    public void feedbackByUser_usesIndex() {
+        assertUsesIndex("SELECT * FROM " + DatabaseHelper.TABLE_FEEDBACK
+                + " WHERE " + DatabaseHelper.COL_USER_ID + " = ?", "1");
+    }
+
+    @Test
+    public void favoritesBySpot_usesIndex() {
+        List<String> plan = assertUsesIndex("SELECT " + DatabaseHelper.COL_USER_ID + " FROM " + DatabaseHelper.TABLE_FAVORITES
+                + " WHERE " + DatabaseHelper.COL_SPOT_ID + " = ?", "1");
+        assertTrue("Expected " + DatabaseHelper.INDEX_FAVORITES_SPOT + ", plan was " + plan,
+                plan.get(0).contains(DatabaseHelper.INDEX_FAVORITES_SPOT));
+    }
+
+    @Test
+    public void reservationsBySpot_usesIndex() {
+        List<String> plan = assertUsesIndex("SELECT " + DatabaseHelper.COL_RES_ID + " FROM " + DatabaseHelper.TABLE_RESERVATIONS
+                + " WHERE " + DatabaseHelper.COL_SPOT_ID + " = ?", "1");
+        assertTrue("Expected " + DatabaseHelper.INDEX_RESERVATIONS_SPOT + ", plan was " + plan,
+                plan.get(0).contains(DatabaseHelper.INDEX_RESERVATIONS_SPOT));
+    }
+
+    @Test
+    public void getSpotById_usesPrimaryKey() {
+        assertUsesIndex(DatabaseHelper.SQL_SPOT_BY_ID, "1");
+    }
+
+    @Test
+    public void getSpotsInBounds_usesLocationIndex() {
+        List<String> plan = assertUsesIndex(DatabaseHelper.SQL_SPOTS_IN_BOUNDS, "6.8", "7.0", "79.8", "80.0");
+        assertTrue("Expected " + DatabaseHelper.INDEX_SPOTS_LOCATION + ", plan was " + plan,
+                plan.get(0).contains(DatabaseHelper.INDEX_SPOTS_LOCATION));
+    }
+
+    /**
+     * Runs EXPLAIN QUERY PLAN and fails if any step is a table scan or a temporary sort.
+     *
+     * @return The "detail" column of every plan row, for further assertions.
+     */
+    private List<String> assertUsesIndex(String sql, String... args) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+        assertFalse("No plan returned for: " + sql, plan.isEmpty());
+        for (String step : plan) {
+            assertFalse("Temporary sort in plan for: " + sql + " -> " + plan, step.contains("TEMP B-TREE"));
+            boolean scan = step.startsWith("SCAN") && !step.contains("USING");
+            assertFalse("Full scan in plan for: " + sql + " -> " + plan, scan);
+            assertTrue("Step without index in plan for: " + sql + " -> " + plan,
+                    step.contains("INDEX") || step.contains("PRIMARY KEY"));
+        }
+        return plan;
+    }
+}
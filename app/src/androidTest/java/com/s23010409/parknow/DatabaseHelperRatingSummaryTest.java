@@ -0,0 +1,120 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the RatingSummary rows kept by the Feedback triggers always equal what a full
+ * aggregate over Feedback gives, through single inserts, batches, edits and cascaded deletes.
+ * Spot IDs 1 and 2 are among the spots every new database is created with.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperRatingSummaryTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Rater", "rater@parknow.lk", "secret"));
+        assertTrue(helper.insertUser("Other", "other@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("rater@parknow.lk");
+        otherUserId = helper.getUserIdByEmail("other@parknow.lk");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertFeedback_updatesSpotSummary() {
+        assertTrue(helper.insertFeedback(userId, 1, "Good", "Close to the station", 4.5f));
+        assertTrue(helper.insertFeedback(otherUserId, 1, "Meh", "Crowded", 2f));
+        assertTrue(helper.insertFeedback(userId, "App", "Works well", 5f)); // General feedback
+
+        try (Cursor cursor = helper.getRatingSummary(1)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_COUNT)));
+            assertEquals(6.5, cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_SUM)), 0.0001);
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_STARS_PREFIX + 2)));
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_STARS_PREFIX + 5))); // 4.5 rounds up
+        }
+        try (Cursor cursor = helper.getRatingSummary(2)) {
+            assertEquals(0, cursor.getCount()); // Never rated
+        }
+        assertSummaryMatchesFeedback();
+    }
+
+    @Test
+    public void batchEditsAndDeletes_keepSummaryInStep() {
+        List<FeedbackModel> feedback = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            feedback.add(new FeedbackModel(i % 2 == 0 ? userId : otherUserId, 1 + i % 2, "Batch", null, (i % 11) / 2f, 1700000000000L + i));
+        }
+        assertFalse(helper.insertFeedbackBatch(feedback).hasFailures());
+        assertSummaryMatchesFeedback();
+
+        // Move some feedback to another spot and change some ratings
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_FEEDBACK + " SET " + DatabaseHelper.COL_SPOT_ID + " = 2"
+                + " WHERE " + DatabaseHelper.COL_FEEDBACK_ID + " % 5 = 0");
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_FEEDBACK + " SET " + DatabaseHelper.COL_RATING + " = 3"
+                + " WHERE " + DatabaseHelper.COL_FEEDBACK_ID + " % 3 = 0");
+        assertSummaryMatchesFeedback();
+
+        // Deleting a user cascades to their feedback, which must leave the summary too
+        assertEquals(1, db.delete(DatabaseHelper.TABLE_USERS, DatabaseHelper.COL_USER_ID + " = ?",
+                new String[]{String.valueOf(otherUserId)}));
+        assertSummaryMatchesFeedback();
+    }
+
+    /**
+     * Recomputes every summary from Feedback and compares it with the RatingSummary table.
+     */
+    private void assertSummaryMatchesFeedback() {
+        String bucket = "MIN(5, MAX(1, CAST(ROUND(" + DatabaseHelper.COL_RATING + ") AS INTEGER)))";
+        StringBuilder histogram = new StringBuilder();
+        for (int stars = 1; stars <= 5; stars++) {
+            histogram.append(", SUM(").append(bucket).append(" = ").append(stars).append(")");
+        }
+        String expected = "SELECT IFNULL(" + DatabaseHelper.COL_SPOT_ID + ", " + DatabaseHelper.GENERAL_RATING_SPOT_ID + ") AS spot,"
+                + " COUNT(*), SUM(" + DatabaseHelper.COL_RATING + ")" + histogram
+                + " FROM " + DatabaseHelper.TABLE_FEEDBACK + " GROUP BY spot ORDER BY spot";
+        try (Cursor want = db.rawQuery(expected, null);
+             Cursor have = db.rawQuery(DatabaseHelper.SQL_ALL_RATING_SUMMARIES + " ORDER BY " + DatabaseHelper.COL_SPOT_ID, null)) {
+            assertEquals(want.getCount(), have.getCount());
+            while (want.moveToNext()) {
+                assertTrue(have.moveToNext());
+                int spotId = want.getInt(0);
+                assertEquals(spotId, have.getInt(have.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID)));
+                assertEquals("Count of spot " + spotId, want.getInt(1),
+                        have.getInt(have.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_COUNT)));
+                assertEquals("Sum of spot " + spotId, want.getDouble(2),
+                        have.getDouble(have.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_SUM)), 0.0001);
+                for (int stars = 1; stars <= 5; stars++) {
+                    assertEquals(stars + " stars of spot " + spotId, want.getInt(2 + stars),
+                            have.getInt(have.getColumnIndexOrThrow(DatabaseHelper.COL_STARS_PREFIX + stars)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that reserveSpot never books a slot beyond its spot's Availability, including when many
+ * threads book the same slot at once, that a stay with one full hour books nothing at all, and that
+ * releaseSpot gives a stay's capacity back.
+ * Uses a database file rather than an in-memory one, so the WAL connection pool is the real one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperSlotCapacityTest {
+
+    private static final String DB_NAME = "parkNow-slot-capacity-test.db";
+    private static final long SLOT = DatabaseHelper.SLOT_LENGTH_MILLIS;
+    private static final long START = 1735725600000L; // 2025-01-01 10:00 UTC, on a slot boundary
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+
+    private File dbFile;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbFile = appContext.getDatabasePath(DB_NAME);
+        SQLiteDatabase.deleteDatabase(dbFile);
+        helper = new DatabaseHelper(appContext, DB_NAME);
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Booker", "booker@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("booker@parknow.lk");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        SQLiteDatabase.deleteDatabase(dbFile);
+    }
+
+    @Test
+    public void concurrentReservations_neverOverbookASlot() throws Exception {
+        int capacity = 5;
+        int spotId = insertSpot("Contended Lot", capacity);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<List<DatabaseHelper.ReservationResult>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                startGate.await(); // Release all threads together so they really compete
+                List<DatabaseHelper.ReservationResult> results = new ArrayList<>();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    results.add(helper.reserveSpot(userId, spotId, START + 15 * 60 * 1000L, 1)); // 10:15-11:15
+                }
+                return results;
+            }));
+        }
+        startGate.countDown();
+        List<DatabaseHelper.ReservationResult> all = new ArrayList<>();
+        for (Future<List<DatabaseHelper.ReservationResult>> future : futures) {
+            all.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(0, Collections.frequency(all, DatabaseHelper.ReservationResult.FAILED));
+        assertEquals(capacity, Collections.frequency(all, DatabaseHelper.ReservationResult.RESERVED));
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - capacity, Collections.frequency(all, DatabaseHelper.ReservationResult.FULL));
+        assertEquals(capacity, countReservations(spotId));
+        // The stay overlaps the 10:00 and 11:00 slots, and both are used up
+        assertEquals(0, remainingInSlot(spotId, START));
+        assertEquals(0, remainingInSlot(spotId, START + SLOT));
+        assertEquals(0, helper.getRemainingCapacity(spotId, START, 2));
+        assertEquals(capacity, helper.getRemainingCapacity(spotId, START + 2 * SLOT, 1));
+    }
+
+    @Test
+    public void fullHour_rollsBackTheWholeStay() {
+        int spotId = insertSpot("Single Space Lot", 1);
+        assertEquals(DatabaseHelper.ReservationResult.RESERVED, helper.reserveSpot(userId, spotId, START + SLOT, 1));
+
+        // 09:00-12:00 includes the booked 11:00 slot, so the free 09:00 and 10:00 slots must not be taken either
+        assertEquals(DatabaseHelper.ReservationResult.FULL, helper.reserveSpot(userId, spotId, START - SLOT, 3));
+        assertEquals(1, countReservations(spotId));
+        assertEquals(1, helper.getRemainingCapacity(spotId, START - SLOT, 2));
+        assertEquals(DatabaseHelper.ReservationResult.RESERVED, helper.reserveSpot(userId, spotId, START - SLOT, 2));
+        assertEquals(0, helper.getRemainingCapacity(spotId, START - SLOT, 3));
+    }
+
+    @Test
+    public void releaseSpot_givesTheCapacityBack() {
+        int spotId = insertSpot("Single Space Lot", 1);
+        assertEquals(DatabaseHelper.ReservationResult.RESERVED, helper.reserveSpot(userId, spotId, START, 2));
+        assertEquals(DatabaseHelper.ReservationResult.FULL, helper.reserveSpot(userId, spotId, START + SLOT, 1));
+
+        assertTrue(helper.releaseSpot(userId, spotId, START, 2));
+        assertEquals(0, countReservations(spotId));
+        assertEquals(1, helper.getRemainingCapacity(spotId, START, 2));
+        assertFalse(helper.releaseSpot(userId, spotId, START, 2)); // Nothing left to release
+        assertEquals(1, helper.getRemainingCapacity(spotId, START, 2));
+        assertEquals(DatabaseHelper.ReservationResult.RESERVED, helper.reserveSpot(userId, spotId, START + SLOT, 1));
+    }
+
+    @Test
+    public void getRemainingCapacity_unbookedSlotsHaveFullAvailability() {
+        int spotId = insertSpot("Quiet Lot", 4);
+        assertEquals(4, helper.getRemainingCapacity(spotId, START, 24));
+        assertEquals(DatabaseHelper.ReservationResult.RESERVED, helper.reserveSpot(userId, spotId, START + 5 * SLOT, 1));
+        assertEquals(3, helper.getRemainingCapacity(spotId, START, 24));
+        assertEquals(4, helper.getRemainingCapacity(spotId, START, 5));
+    }
+
+    @Test
+    public void unknownSpot_reservesNothing() {
+        assertEquals(0, helper.getRemainingCapacity(999999, START, 1));
+        assertEquals(DatabaseHelper.ReservationResult.FULL, helper.reserveSpot(userId, 999999, START, 1));
+    }
+
+    @Test
+    public void badDuration_isRejectedRatherThanReportedAsFull() {
+        int spotId = insertSpot("Any Lot", 2);
+        for (int durationHours : new int[]{0, -1}) {
+            assertThrows(IllegalArgumentException.class, () -> helper.getRemainingCapacity(spotId, START, durationHours));
+            assertThrows(IllegalArgumentException.class, () -> helper.reserveSpot(userId, spotId, START, durationHours));
+        }
+        assertEquals(0, countReservations(spotId));
+        assertEquals(2, helper.getRemainingCapacity(spotId, START, 1));
+    }
+
+    private int insertSpot(String name, int availability) {
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        spots.add(new ParkingSpotModel(name, 6.9, 79.8, availability, 100, null));
+        assertFalse(helper.insertSpots(spots).hasFailures());
+        try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COL_SPOT_ID + " FROM " + DatabaseHelper.TABLE_SPOTS
+                + " WHERE " + DatabaseHelper.COL_SPOT_NAME + " = ?", new String[]{name})) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+
+    private long countReservations(int spotId) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RESERVATIONS
+                + " WHERE " + DatabaseHelper.COL_SPOT_ID + " = ?", new String[]{String.valueOf(spotId)})) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private int remainingInSlot(int spotId, long slotStart) {
+        try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COL_REMAINING + " FROM " + DatabaseHelper.TABLE_SLOT_CAPACITY
+                + " WHERE " + DatabaseHelper.COL_SPOT_ID + " = ? AND " + DatabaseHelper.COL_SLOT_START + " = ?",
+                new String[]{String.valueOf(spotId), String.valueOf(slotStart)})) {
+            assertTrue("No row for slot " + slotStart, cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
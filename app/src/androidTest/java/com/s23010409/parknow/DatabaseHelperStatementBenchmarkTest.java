@@ -0,0 +1,169 @@
+package com.s23010409.parknow;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares per-call latency of the cached compiled-statement path in DatabaseHelper with the
+ * previous ContentValues / query() path for the same operations. Timings are written to Logcat
+ * (tag "StatementBenchmark"); the assertions only check that both paths agree on the results,
+ * so the test does not flake on slow or busy devices.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperStatementBenchmarkTest {
+
+    private static final String TAG = "StatementBenchmark";
+    private static final int ITERATIONS = 2000;
+    private static final int WARMUP = 200;
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private int userId;
+    private int firstSpotId; // 2 * (ITERATIONS + WARMUP) spots with consecutive IDs from here
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Bench", "bench@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("bench@parknow.lk");
+        assertNotEquals(-1, userId);
+
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        for (int i = 0; i < 2 * (ITERATIONS + WARMUP); i++) {
+            spots.add(new ParkingSpotModel("Bench Spot " + i, 6.9, 79.8, 10, 100, null));
+        }
+        assertFalse(helper.insertSpots(spots).hasFailures());
+        try (Cursor cursor = db.rawQuery("SELECT MIN(" + DatabaseHelper.COL_SPOT_ID + ") FROM " + DatabaseHelper.TABLE_SPOTS
+                + " WHERE " + DatabaseHelper.COL_SPOT_NAME + " LIKE 'Bench Spot %'", null)) {
+            assertTrue(cursor.moveToFirst());
+            firstSpotId = cursor.getInt(0);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertReservation() {
+        long compiled = time(i -> assertTrue(helper.insertReservation(userId, firstSpotId + i, 1735725600000L)));
+        long contentValues = time(i -> {
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COL_USER_ID, userId);
+            values.put(DatabaseHelper.COL_SPOT_ID, firstSpotId + i);
+            values.put(DatabaseHelper.COL_TIMESTAMP, 1735725600000L);
+            assertNotEquals(-1, db.insert(DatabaseHelper.TABLE_RESERVATIONS, null, values));
+        });
+        report("insertReservation", compiled, contentValues);
+        assertEquals(2L * (ITERATIONS + WARMUP), count(DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    @Test
+    public void insertFavoriteSpot() {
+        long compiled = time(i -> assertTrue(helper.insertFavoriteSpot(userId, firstSpotId + i)));
+        long contentValues = time(i -> {
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COL_USER_ID, userId);
+            values.put(DatabaseHelper.COL_SPOT_ID, firstSpotId + ITERATIONS + WARMUP + i);
+            assertNotEquals(-1, db.insert(DatabaseHelper.TABLE_FAVORITES, null, values));
+        });
+        report("insertFavoriteSpot", compiled, contentValues);
+        // Duplicates are still rejected the same way as db.insert did
+        assertFalse(helper.insertFavoriteSpot(userId, firstSpotId));
+    }
+
+    @Test
+    public void isSpotFavorite() {
+        assertTrue(helper.insertFavoriteSpot(userId, firstSpotId));
+        long compiled = time(i -> assertEquals(i % 2 == 0,
+                helper.isSpotFavorite(userId, i % 2 == 0 ? firstSpotId : firstSpotId + 1)));
+        long query = time(i -> {
+            String spot = String.valueOf(i % 2 == 0 ? firstSpotId : firstSpotId + 1);
+            try (Cursor cursor = db.query(DatabaseHelper.TABLE_FAVORITES, null,
+                    DatabaseHelper.COL_USER_ID + " = ? AND " + DatabaseHelper.COL_SPOT_ID + " = ?",
+                    new String[]{String.valueOf(userId), spot}, null, null, null)) {
+                assertEquals(i % 2 == 0, cursor.getCount() > 0);
+            }
+        });
+        report("isSpotFavorite", compiled, query);
+    }
+
+    @Test
+    public void checkUser() {
+        long compiled = time(i -> assertEquals(i % 2 == 0,
+                helper.checkUser("bench@parknow.lk", i % 2 == 0 ? "secret" : "wrong")));
+        long query = time(i -> {
+            try (Cursor cursor = db.query(DatabaseHelper.TABLE_USERS, new String[]{DatabaseHelper.COL_USER_ID},
+                    DatabaseHelper.COL_EMAIL + " = ? AND " + DatabaseHelper.COL_PASSWORD + " = ?",
+                    new String[]{"bench@parknow.lk", i % 2 == 0 ? "secret" : "wrong"}, null, null, null)) {
+                assertEquals(i % 2 == 0, cursor.getCount() > 0);
+            }
+        });
+        report("checkUser", compiled, query);
+    }
+
+    @Test
+    public void getUserIdByEmail() {
+        long compiled = time(i -> assertEquals(userId, helper.getUserIdByEmail("bench@parknow.lk")));
+        long query = time(i -> {
+            try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COL_USER_ID + " FROM " + DatabaseHelper.TABLE_USERS
+                    + " WHERE " + DatabaseHelper.COL_EMAIL + " = ?", new String[]{"bench@parknow.lk"})) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(userId, cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID)));
+            }
+        });
+        report("getUserIdByEmail", compiled, query);
+        assertEquals(-1, helper.getUserIdByEmail("nobody@parknow.lk"));
+    }
+
+    private interface Operation {
+        void run(int i);
+    }
+
+    /**
+     * Runs the operation WARMUP times untimed, then ITERATIONS times timed.
+     *
+     * @return Average nanoseconds per call.
+     */
+    private long time(Operation operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run(ITERATIONS + i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run(i);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private void report(String operation, long compiledNanos, long baselineNanos) {
+        Log.i(TAG, String.format("%s: compiled %d ns/call, ContentValues/query %d ns/call (%.2fx)",
+                operation, compiledNanos, baselineNanos, (double) baselineNanos / Math.max(1, compiledNanos)));
+    }
+
+    private long count(String table) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that createSnapshot writes a self-contained, intact copy while another thread keeps writing,
+ * that a staged restore replaces the database the next time it is opened, and that a damaged
+ * snapshot is never staged.
+ * Spot IDs 1 to 3 are among the spots every new database is created with.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseSnapshotTest {
+
+    private static final String DATABASE_NAME = "parkNow-snapshot-test.db";
+    private static final int INITIAL_RESERVATIONS = 200;
+
+    private Context appContext;
+    private DatabaseHelper helper;
+    private File snapshot;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        SQLiteDatabase.deleteDatabase(appContext.getDatabasePath(DATABASE_NAME));
+        snapshot = new File(appContext.getCacheDir(), "parkNow-snapshot-test-copy.db");
+        SQLiteDatabase.deleteDatabase(snapshot);
+
+        helper = new DatabaseHelper(appContext, DATABASE_NAME);
+        assertTrue(helper.insertUser("Snapshot", "snapshot@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("snapshot@parknow.lk");
+        for (int i = 0; i < INITIAL_RESERVATIONS; i++) {
+            assertTrue(helper.insertReservation(userId, 1 + i % 3, 1735725600000L + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        SQLiteDatabase.deleteDatabase(appContext.getDatabasePath(DATABASE_NAME));
+        SQLiteDatabase.deleteDatabase(new File(appContext.getDatabasePath(DATABASE_NAME).getPath() + ".restore"));
+        SQLiteDatabase.deleteDatabase(snapshot);
+    }
+
+    @Test
+    public void createSnapshot_isConsistentWhileWritesContinue() throws InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            while (writing.get()) {
+                if (helper.insertReservation(userId, 2, 1767261600000L + written.get())) {
+                    written.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        });
+        writer.start();
+        try {
+            assertTrue(helper.createSnapshot(snapshot));
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+        assertEquals(0, failed.get()); // Writers only waited for the checkpoint
+
+        assertFalse(new File(snapshot.getPath() + "-wal").exists()); // One self-contained file
+        assertFalse(new File(snapshot.getPath() + ".tmp").exists());
+        SQLiteDatabase copy = SQLiteDatabase.openDatabase(snapshot.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            assertEquals("ok", firstRow(copy, "PRAGMA integrity_check"));
+            assertEquals(helper.getReadableDatabase().getVersion(), copy.getVersion());
+            long reservations = Long.parseLong(firstRow(copy, "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RESERVATIONS));
+            assertTrue(reservations >= INITIAL_RESERVATIONS);
+            assertTrue(reservations <= INITIAL_RESERVATIONS + written.get());
+        } finally {
+            copy.close();
+        }
+
+        // Checkpoints run again afterwards
+        helper.checkpoint(true);
+        assertEquals(0, new File(appContext.getDatabasePath(DATABASE_NAME).getPath() + "-wal").length());
+    }
+
+    @Test
+    public void stageRestore_replacesTheDatabaseOnReopen() {
+        assertTrue(helper.createSnapshot(snapshot));
+        assertTrue(helper.insertReservation(userId, 3, 1767261600000L)); // Made after the snapshot
+
+        assertTrue(helper.stageRestore(snapshot));
+        assertEquals(INITIAL_RESERVATIONS + 1, countReservations(helper)); // Open connections are left alone
+        helper.close();
+
+        helper = new DatabaseHelper(appContext, DATABASE_NAME);
+        assertEquals(INITIAL_RESERVATIONS, countReservations(helper));
+        assertEquals(userId, helper.getUserIdByEmail("snapshot@parknow.lk"));
+        assertTrue(helper.insertReservation(userId, 1, 1767265200000L));
+        assertFalse(new File(appContext.getDatabasePath(DATABASE_NAME).getPath() + ".restore").exists());
+    }
+
+    @Test
+    public void stageRestore_rejectsDamagedSnapshot() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(snapshot)) {
+            out.write("This is not a database".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertFalse(helper.stageRestore(snapshot));
+        assertFalse(new File(appContext.getDatabasePath(DATABASE_NAME).getPath() + ".restore").exists());
+        assertEquals(INITIAL_RESERVATIONS, countReservations(helper));
+    }
+
+    private static long countReservations(DatabaseHelper helper) {
+        return Long.parseLong(firstRow(helper.getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RESERVATIONS));
+    }
+
+    private static String firstRow(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getString(0);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that FavoriteWriteQueue writes only the final state of repeated toggles, in one transaction,
+ * and that toggles not written yet are visible to loads through applyPendingTo.
+ * Flushes run on the calling thread, so each test decides exactly when the database is written.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FavoriteWriteQueueTest {
+
+    private DatabaseHelper helper;
+    private FavoriteWriteQueue queue;
+    private int userId;
+    private final int[] spotIds = new int[3];
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        assertTrue(helper.insertUser("Toggler", "toggler@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("toggler@parknow.lk");
+        for (int i = 0; i < spotIds.length; i++) {
+            spotIds[i] = (int) helper.insertSpot(new ParkingSpotModel("Toggle Spot " + i, 6.9, 79.8, 10, 100, null));
+            assertNotEquals(-1, spotIds[i]);
+        }
+        queue = new FavoriteWriteQueue(helper, Runnable::run, new Handler(Looper.getMainLooper()));
+        helper.getMetrics().setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        FavoritesCache.clear();
+        helper.close();
+    }
+
+    @Test
+    public void repeatedToggles_writeOnlyTheFinalStateInOneTransaction() {
+        onMainThread(() -> {
+            queue.set(userId, spotIds[0], true);
+            queue.set(userId, spotIds[0], false);
+            queue.set(userId, spotIds[0], true); // Ends as a favorite
+            queue.set(userId, spotIds[1], true);
+            queue.set(userId, spotIds[1], false); // Ends as not a favorite
+        });
+        queue.flush();
+
+        assertTrue(helper.isSpotFavorite(userId, spotIds[0]));
+        assertFalse(helper.isSpotFavorite(userId, spotIds[1]));
+        assertEquals(1, countOf("applyFavoriteChanges"));
+        assertEquals(0, countOf("insertFavoriteSpot"));
+        assertEquals(0, countOf("deleteFavoriteSpot"));
+    }
+
+    @Test
+    public void applyPendingTo_showsTogglesBeforeTheyAreWritten() {
+        assertTrue(helper.insertFavoriteSpot(userId, spotIds[2]));
+        onMainThread(() -> {
+            queue.set(userId, spotIds[0], true);
+            queue.set(userId, spotIds[2], false);
+            queue.set(userId + 1, spotIds[1], true); // Another user's toggle
+        });
+        assertFalse(helper.isSpotFavorite(userId, spotIds[0]));
+
+        Set<Integer> favorites = new HashSet<>();
+        favorites.add(spotIds[2]); // As read from the database
+        queue.applyPendingTo(userId, favorites);
+        assertEquals(Collections.singleton(spotIds[0]), favorites);
+
+        AtomicBoolean flushed = new AtomicBoolean();
+        onMainThread(() -> queue.flushNow(() -> flushed.set(true)));
+        assertTrue(flushed.get());
+        assertTrue(helper.isSpotFavorite(userId, spotIds[0]));
+        assertFalse(helper.isSpotFavorite(userId, spotIds[2]));
+        assertFalse(helper.isSpotFavorite(userId + 1, spotIds[1])); // No such user: skipped, the rest still committed
+    }
+
+    private long countOf(String operation) {
+        for (DatabaseMetrics.OperationSnapshot snapshot : helper.getMetrics().snapshot()) {
+            if (snapshot.operation.equals(operation)) {
+                return snapshot.count;
+            }
+        }
+        return 0;
+    }
+
+    private static void onMainThread(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
@@ -0,0 +1,154 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that HistoryTransfer exports whole tables across several chunks, that CSV and JSON exports
+ * import back to the same rows (including text that needs quoting), and that bad rows in an import are
+ * reported by their position in the file without stopping the rest.
+ * Spot IDs 1 to 3 are among the spots every new database is created with.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryTransferTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private HistoryTransfer transfer;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(appContext, null); // In-memory database
+        db = helper.getWritableDatabase();
+        assertTrue(helper.insertUser("Fleet", "fleet@parknow.lk", "secret"));
+        userId = helper.getUserIdByEmail("fleet@parknow.lk");
+        transfer = new HistoryTransfer(helper);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void reservations_roundTripAcrossChunksIncludingArchived() {
+        long now = System.currentTimeMillis();
+        int rows = DatabaseHelper.BATCH_CHUNK_SIZE * 2 + 7;
+        int archived = 120;
+        List<ReservationModel> reservations = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            long timestamp = i < archived ? now - 400 * DAY + i : now - DAY + i;
+            reservations.add(new ReservationModel(userId, 1 + i % 3, timestamp));
+        }
+        assertFalse(helper.insertReservations(reservations).hasFailures());
+        MaintenanceReport report = helper.runMaintenance(now - 365 * DAY, Integer.MAX_VALUE);
+        assertNotNull(report);
+        assertEquals(archived, report.getArchivedReservations());
+
+        for (HistoryTransfer.Format format : HistoryTransfer.Format.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(format.name(), rows, transfer.export(HistoryTransfer.Dataset.RESERVATIONS, format, out));
+
+            db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_RESERVATIONS);
+            db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_RESERVATION_HISTORY);
+            BatchInsertResult result = transfer.importFrom(HistoryTransfer.Dataset.RESERVATIONS, format,
+                    new ByteArrayInputStream(out.toByteArray()));
+            assertFalse(format + ": " + result.getFailures(), result.hasFailures());
+            assertEquals(rows, result.getInsertedCount());
+            assertEquals(rows, count("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RESERVATIONS));
+            assertEquals(archived, count("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RESERVATIONS
+                    + " WHERE " + DatabaseHelper.COL_TIMESTAMP + " < " + (now - 365 * DAY)));
+        }
+    }
+
+    @Test
+    public void feedback_roundTripKeepsText() {
+        List<FeedbackModel> feedback = new ArrayList<>();
+        feedback.add(new FeedbackModel(userId, 1, "Gate, north side", "Said \"full\"\nbut had space", 2.5f, 1735725600000L));
+        feedback.add(new FeedbackModel(userId, "Great app", "Sinhala: පාර්ක් කිරීම", 5f, 1735725600001L)); // General feedback
+        assertFalse(helper.insertFeedbackBatch(feedback).hasFailures());
+
+        for (HistoryTransfer.Format format : HistoryTransfer.Format.values()) {
+            List<FeedbackModel> before = readFeedback();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(2, transfer.export(HistoryTransfer.Dataset.FEEDBACK, format, out));
+
+            db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_FEEDBACK);
+            BatchInsertResult result = transfer.importFrom(HistoryTransfer.Dataset.FEEDBACK, format,
+                    new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(format + ": " + result.getFailures(), 2, result.getInsertedCount());
+
+            List<FeedbackModel> after = readFeedback();
+            assertEquals(before.size(), after.size());
+            for (int i = 0; i < before.size(); i++) {
+                assertEquals(format.name(), before.get(i).getSpotId(), after.get(i).getSpotId());
+                assertEquals(format.name(), before.get(i).getSubject(), after.get(i).getSubject());
+                assertEquals(format.name(), before.get(i).getMessage(), after.get(i).getMessage());
+                assertEquals(format.name(), before.get(i).getRating(), after.get(i).getRating(), 0f);
+                assertEquals(format.name(), before.get(i).getTimestamp(), after.get(i).getTimestamp());
+            }
+        }
+    }
+
+    @Test
+    public void importCsv_reportsBadRowsByPosition() {
+        String csv = "UserID,SpotID,TimeStamp\r\n"
+                + userId + ",1,1735725600000\r\n"
+                + "someone,1,1735725600000\r\n" // Not a number
+                + (userId + 1) + ",1,1735725600000\r\n" // No such user
+                + "\r\n" // Blank lines are skipped
+                + userId + ",2,1735729200000\r\n";
+        BatchInsertResult result = transfer.importFrom(HistoryTransfer.Dataset.RESERVATIONS, HistoryTransfer.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, result.getInsertedCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+    }
+
+    @Test
+    public void importJson_keepsRowsBeforeMalformedInput() {
+        String json = "[{\"UserID\": " + userId + ", \"SpotID\": 1}, {\"UserID\": " + userId + ", \"SpotID\": 2}, {\"UserID\"";
+        BatchInsertResult result = transfer.importFrom(HistoryTransfer.Dataset.FAVORITES, HistoryTransfer.Format.JSON,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, result.getInsertedCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(2, result.getFailures().get(0).getIndex());
+        assertTrue(helper.isSpotFavorite(userId, 1));
+        assertTrue(helper.isSpotFavorite(userId, 2));
+    }
+
+    private List<FeedbackModel> readFeedback() {
+        try (Cursor cursor = helper.getFeedbackAfter(0, Integer.MAX_VALUE)) {
+            return RowMappers.readAll(cursor, RowMappers.FEEDBACK);
+        }
+    }
+
+    private long count(String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
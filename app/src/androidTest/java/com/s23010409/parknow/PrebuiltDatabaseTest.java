@@ -0,0 +1,127 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a database built by DatabaseHelper and prepared with prepareForShipping installs as-is,
+ * with its spots and indexes, and that a database from a newer app version or a damaged file is
+ * rejected so that onCreate builds the database instead.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PrebuiltDatabaseTest {
+
+    private static final String SOURCE_NAME = "parkNow-prebuilt-source.db";
+    private static final String TARGET_NAME = "parkNow-prebuilt-target.db";
+    private static final int CATALOG_SIZE = 2000;
+
+    private Context appContext;
+    private File source;
+    private File target;
+    private int databaseVersion;
+
+    @Before
+    public void setUp() {
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        source = appContext.getDatabasePath(SOURCE_NAME);
+        target = appContext.getDatabasePath(TARGET_NAME);
+        SQLiteDatabase.deleteDatabase(source);
+        SQLiteDatabase.deleteDatabase(target);
+
+        DatabaseHelper builder = new DatabaseHelper(appContext, SOURCE_NAME);
+        List<ParkingSpotModel> catalog = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(new ParkingSpotModel("Catalog Spot " + i, 6 + i * 0.001, 79 + i * 0.001, 10, 100, null));
+        }
+        assertFalse(builder.insertSpots(catalog).hasFailures());
+        databaseVersion = builder.getReadableDatabase().getVersion();
+        builder.close();
+        assertTrue(PrebuiltDatabase.prepareForShipping(source));
+    }
+
+    @After
+    public void tearDown() {
+        SQLiteDatabase.deleteDatabase(source);
+        SQLiteDatabase.deleteDatabase(target);
+    }
+
+    @Test
+    public void install_keepsTheCatalogAndIndexes() throws IOException {
+        assertFalse(new File(source.getPath() + "-wal").exists()); // One self-contained file
+
+        assertTrue(PrebuiltDatabase.install(new FileInputStream(source), target, databaseVersion));
+        DatabaseHelper helper = new DatabaseHelper(appContext, TARGET_NAME);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertEquals(databaseVersion, db.getVersion());
+            assertEquals(CATALOG_SIZE, count(db, "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_SPOTS
+                    + " WHERE " + DatabaseHelper.COL_SPOT_NAME + " LIKE 'Catalog Spot %'"));
+            assertEquals(1, count(db, "SELECT COUNT(*) FROM sqlite_master WHERE name = '"
+                    + DatabaseHelper.INDEX_SPOTS_LOCATION + "'"));
+            assertTrue(count(db, "SELECT COUNT(*) FROM sqlite_stat1") > 0); // Planner statistics ship too
+            assertTrue(helper.insertUser("First", "first@parknow.lk", "secret"));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void install_rejectsNewerVersion() throws IOException {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(source.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        db.setVersion(databaseVersion + 1);
+        db.close();
+
+        assertFalse(PrebuiltDatabase.install(new FileInputStream(source), target, databaseVersion));
+        assertFalse(target.exists());
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void install_rejectsDamagedFile() {
+        byte[] garbage = "This is not a database".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(PrebuiltDatabase.install(new ByteArrayInputStream(garbage), target, databaseVersion));
+        assertFalse(target.exists());
+
+        // Opening then creates the database as usual
+        DatabaseHelper helper = new DatabaseHelper(appContext, TARGET_NAME);
+        try {
+            assertTrue(count(helper.getReadableDatabase(), "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_SPOTS) > 0);
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void prepareForShipping_refusesUserData() {
+        DatabaseHelper helper = new DatabaseHelper(appContext, SOURCE_NAME);
+        assertTrue(helper.insertUser("Tester", "tester@parknow.lk", "secret"));
+        helper.close();
+        assertFalse(PrebuiltDatabase.prepareForShipping(source));
+    }
+
+    private static long count(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
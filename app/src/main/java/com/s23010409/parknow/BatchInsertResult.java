@@ -0,0 +1,70 @@
+package com.s23010409.parknow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BatchInsertResult
+ * Outcome of one of DatabaseHelper's bulk insert methods.
+ * Rows that fail (e.g. a duplicate favorite or a missing user) do not abort the batch;
+ * they are reported here by their position in the input collection.
+ */
+public class BatchInsertResult {
+
+    /**
+     * A single row that could not be inserted.
+     */
+    public static class RowFailure {
+        private final int index; // Position of the row in the input collection
+        private final String reason;
+
+        RowFailure(int index, String reason) {
+            this.index = index;
+            this.reason = reason;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + index + ": " + reason;
+        }
+    }
+
+    private int insertedCount;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    void addInserted(int count) {
+        insertedCount += count;
+    }
+
+    void addFailure(int index, String reason) {
+        failures.add(new RowFailure(index, reason));
+    }
+
+    /** Number of rows that were written and committed. */
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /** Rows that were skipped, in input order. */
+    public List<RowFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Inserted: " + insertedCount + ", Failed: " + failures.size();
+    }
+}
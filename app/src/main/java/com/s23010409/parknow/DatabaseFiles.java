@@ -0,0 +1,199 @@
+package com.s23010409.parknow;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * DatabaseFiles
+ * Operations on database files that no helper has open: copying a database into place only once it
+ * has been checked, turning a raw copy into a self-contained snapshot, and removing the journal files
+ * that belong to a database name. Used for the prebuilt database, snapshots and restores.
+ * Everything here reads or writes whole files, so call it off the main thread.
+ */
+final class DatabaseFiles {
+
+    private static final String TAG = "DatabaseFiles";
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final String[] SIDECAR_SUFFIXES = {"-journal", "-wal", "-shm"};
+
+    private DatabaseFiles() {
+    }
+
+    /**
+     * Copies a database to {@code target} and keeps it only if it checks out.
+     * The copy goes to a temporary file that is renamed into place, so a crash midway never leaves
+     * a half-written database behind.
+     *
+     * @param source          The database; always closed.
+     * @param target          Where the database should end up.
+     * @param databaseVersion The newest user_version that is accepted (older ones are upgraded when opened).
+     * @param fullCheck       true to run integrity_check, false for the faster quick_check.
+     * @param description     What is being installed, for the log.
+     * @return true if {@code target} now holds the copy.
+     */
+    static boolean installVerified(InputStream source, File target, int databaseVersion, boolean fullCheck,
+                                   String description) {
+        long start = System.currentTimeMillis();
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            Log.e(TAG, "Cannot create " + parent);
+            closeQuietly(source);
+            return false;
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        try (InputStream in = source; FileOutputStream out = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.getFD().sync(); // On disk before the rename makes it the database
+        } catch (IOException e) {
+            Log.e(TAG, "Error copying " + description + ": " + e.getMessage());
+            SQLiteDatabase.deleteDatabase(temp);
+            return false;
+        }
+
+        int version = checkedVersion(temp, fullCheck);
+        if (version < 1 || version > databaseVersion) {
+            Log.w(TAG, description + " rejected (version " + version + ", app expects up to " + databaseVersion + ").");
+            SQLiteDatabase.deleteDatabase(temp);
+            return false;
+        }
+        if (!moveIntoPlace(temp, target)) {
+            SQLiteDatabase.deleteDatabase(temp);
+            return false;
+        }
+        Log.d(TAG, "Installed " + description + " version " + version + " (" + target.length() / 1024 + " KB) in "
+                + (System.currentTimeMillis() - start) + " ms.");
+        return true;
+    }
+
+    /**
+     * Copies a file through its channel, so the kernel moves the bytes without a buffer in between,
+     * and syncs the copy to disk.
+     */
+    static void copy(File source, File destination) throws IOException {
+        try (FileInputStream in = new FileInputStream(source); FileOutputStream out = new FileOutputStream(destination)) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out.getChannel());
+            }
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * Turns a raw copy of a WAL database file into a snapshot: switches it to a rollback journal so it is
+     * one self-contained file, runs integrity_check, and renames it to {@code destination} if it passes.
+     * The copy is deleted either way.
+     *
+     * @return true if {@code destination} now holds the verified snapshot.
+     */
+    static boolean finishSnapshot(File copy, File destination) {
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(copy.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            try (Cursor cursor = db.rawQuery("PRAGMA journal_mode = DELETE", null)) {
+                cursor.moveToFirst();
+            }
+            String result = firstRow(db, "PRAGMA integrity_check");
+            if (!"ok".equals(result)) {
+                Log.e(TAG, "Snapshot failed integrity_check: " + result);
+                SQLiteDatabase.deleteDatabase(copy);
+                return false;
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Cannot open snapshot copy: " + e.getMessage());
+            SQLiteDatabase.deleteDatabase(copy);
+            return false;
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+        }
+        if (!moveIntoPlace(copy, destination)) {
+            SQLiteDatabase.deleteDatabase(copy);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Opens a database read-only and returns its user_version,
+     * or -1 if it cannot be opened or fails the check.
+     */
+    static int checkedVersion(File databaseFile, boolean fullCheck) {
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            String check = fullCheck ? "integrity_check" : "quick_check";
+            String result = firstRow(db, "PRAGMA " + check);
+            if (!"ok".equals(result)) {
+                Log.e(TAG, databaseFile.getName() + " failed " + check + ": " + result);
+                return -1;
+            }
+            return db.getVersion();
+        } catch (SQLException e) {
+            Log.e(TAG, "Cannot open " + databaseFile.getName() + ": " + e.getMessage());
+            return -1;
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes the rollback journal, WAL and shared-memory files of a database name. A journal left behind
+     * by an earlier database of that name would otherwise be replayed onto whatever file takes its place.
+     */
+    static void deleteSidecars(File databaseFile) {
+        for (String suffix : SIDECAR_SUFFIXES) {
+            File sidecar = new File(databaseFile.getPath() + suffix);
+            if (sidecar.exists() && !sidecar.delete()) {
+                Log.w(TAG, "Cannot delete " + sidecar);
+            }
+        }
+    }
+
+    /**
+     * Renames a closed, self-contained database file over {@code target}: a single rename, so
+     * {@code target} is always either the old file or the new one.
+     */
+    static boolean moveIntoPlace(File file, File target) {
+        deleteSidecars(target);
+        if (!file.renameTo(target)) {
+            Log.e(TAG, "Cannot move " + file + " to " + target);
+            return false;
+        }
+        return true;
+    }
+
+    private static String firstRow(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // Nothing was read from it
+        }
+    }
+}
@@ -3,23 +3,90 @@ package com.s23010409.parknow;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log; // Added for logging
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String TAG = "DatabaseHelper"; // Tag for Logcat
     private static final String DATABASE_NAME = "parkNow.db";
     // Increment database version for schema changes
-    // Current version 4 includes Users (with ProfileImage), Reservations, Favorites, Feedback tables
-    private static final int DATABASE_VERSION = 4; // Incremented database version
+    // Version 4 includes Users (with ProfileImage), Reservations, Favorites, Feedback tables
+    // Version 5 adds indexes for the per-user reservation, favorite and feedback queries
+    // Version 6 stores Reservations.TimeStamp and Feedback.TimeStamp as INTEGER epoch milliseconds
+    // Version 7 adds ReservationID to the reservations index so keyset pages come out in index order
+    // Version 8 adds the Spots table; Reservations and Favorites reference it by integer SpotID
+    // Version 9 adds Feedback.SpotID and the trigger-maintained RatingSummary table
+    // Version 10 adds the FeedbackFts full-text index over Feedback subjects and messages
+    // Version 11 adds a (Latitude, Longitude) index on Spots for bounding-box queries
+    // Version 12 adds the SlotCapacity table that reserveSpot books hourly slots from
+    // Version 13 adds ReservationHistory, where runMaintenance archives old reservations
+    private static final int DATABASE_VERSION = 13; // Incremented database version
+
+    // Write-ahead log tuning.
+    // Checkpoint after ~2 MB of WAL (500 pages of 4 KB) so reads never walk a long log,
+    // and truncate the WAL file back to 4 MB after a checkpoint so it does not stay large on disk.
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 500;
+    private static final long WAL_JOURNAL_SIZE_LIMIT_BYTES = 4L * 1024 * 1024;
+
+    // Suffix of a snapshot that stageRestore has checked and left next to the database for the next open
+    private static final String RESTORE_SUFFIX = ".restore";
+
+    // PRAGMA auto_vacuum value in which free pages stay in the file until PRAGMA incremental_vacuum releases them
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
+    // Pages released per incremental_vacuum step of runMaintenance; 256 pages is 1 MB with 4 KB pages
+    private static final int VACUUM_STEP_PAGES = 256;
+
+    /**
+     * Values for PRAGMA synchronous.
+     * With WAL, NORMAL is durable against app crashes and only risks the last few
+     * transactions on power loss, while avoiding an fsync on every commit.
+     */
+    public enum SynchronousMode {
+        OFF,
+        NORMAL,
+        FULL
+    }
+
+    /**
+     * Outcome of reserveSpot.
+     */
+    public enum ReservationResult {
+        RESERVED,
+        FULL, // At least one slot of the requested time has no capacity left; nothing was booked
+        FAILED
+    }
+
+    private volatile SynchronousMode synchronousMode = SynchronousMode.NORMAL;
 
     // Table names
     public static final String TABLE_USERS = "Users";
     public static final String TABLE_RESERVATIONS = "Reservations";
     public static final String TABLE_FAVORITES = "Favorites";
     public static final String TABLE_FEEDBACK = "Feedback";
+    public static final String TABLE_SPOTS = "Spots";
+    public static final String TABLE_RATING_SUMMARY = "RatingSummary";
+    // FTS4 index over Feedback (FTS5 is not available in the SQLite Android ships); rows share docid with FeedbackID
+    public static final String TABLE_FEEDBACK_FTS = "FeedbackFts";
+    public static final String TABLE_SLOT_CAPACITY = "SlotCapacity";
+    public static final String TABLE_RESERVATION_HISTORY = "ReservationHistory"; // Same columns as Reservations
 
     // User table columns
     public static final String COL_USER_ID = "UserID";
@@ -30,8 +97,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Reservation table columns
     public static final String COL_RES_ID = "ReservationID";
-    public static final String COL_SPOT_ID = "SpotID"; // Reused for Favorites table as well
-    public static final String COL_TIMESTAMP = "TimeStamp"; // Reused for Feedback table as well
+    public static final String COL_SPOT_ID = "SpotID"; // INTEGER key of the Spots table, reused in Reservations and Favorites
+    public static final String COL_TIMESTAMP = "TimeStamp"; // Epoch milliseconds (INTEGER), reused for Feedback table as well
 
     // Favorite table columns (reusing COL_USER_ID and COL_SPOT_ID)
     public static final String COL_FAV_ID = "FavoriteID";
@@ -42,8 +109,287 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COL_MESSAGE = "Message";
     public static final String COL_RATING = "Rating"; // Changed from COL_FEEDBACK_TIMESTAMP for clarity
 
+    // RatingSummary columns (keyed by COL_SPOT_ID, GENERAL_RATING_SPOT_ID for feedback without a spot)
+    public static final String COL_RATING_COUNT = "RatingCount";
+    public static final String COL_RATING_SUM = "RatingSum";
+    public static final String COL_STARS_PREFIX = "Stars"; // Stars1 .. Stars5: ratings that round to that many stars
+    public static final int GENERAL_RATING_SPOT_ID = 0;
+
+    // Extra columns of feedback search results
+    public static final String COL_MATCH_COUNT = "MatchCount"; // Search term occurrences in Subject and Message
+    public static final String COL_SNIPPET = "Snippet";
+    public static final String SNIPPET_MATCH_START = "<b>";
+    public static final String SNIPPET_MATCH_END = "</b>";
+
+    // Spots table columns (reusing COL_SPOT_ID as the primary key)
+    public static final String COL_SPOT_NAME = "SpotName";
+    public static final String COL_LATITUDE = "Latitude";
+    public static final String COL_LONGITUDE = "Longitude";
+    public static final String COL_AVAILABILITY = "Availability";
+    public static final String COL_PRICE_PER_HOUR = "PricePerHour";
+    public static final String COL_DESCRIPTION = "Description";
+
+    // SlotCapacity columns (keyed by COL_SPOT_ID and COL_SLOT_START)
+    public static final String COL_SLOT_START = "SlotStart"; // Epoch milliseconds, a multiple of SLOT_LENGTH_MILLIS
+    public static final String COL_REMAINING = "Remaining"; // Reservations the slot can still take
+    public static final long SLOT_LENGTH_MILLIS = 60 * 60 * 1000L; // One hour, the unit reservations are priced in
+
+    // Spots created with a fresh database (and added by the upgrade to V8); these used to be hardcoded in HomeActivity
+    private static final ParkingSpotModel[] SEED_SPOTS = {
+            new ParkingSpotModel("Colombo Fort Parking", 6.9271, 79.8612, 15, 150, null),
+            new ParkingSpotModel("Galle Face Green Parking", 6.8967, 79.8660, 20, 100, null),
+            new ParkingSpotModel("Nugegoda Urban Parking", 6.8650, 79.8997, 10, 120, null),
+            new ParkingSpotModel("Kandy City Center Parking", 7.2906, 80.6337, 8, 180, null),
+            new ParkingSpotModel("Galle Fort Parking", 6.0535, 80.2210, 12, 130, null),
+            new ParkingSpotModel("Negombo Beach Parking", 7.9000, 79.8900, 25, 90, null),
+            new ParkingSpotModel("Trincomalee Dock Parking", 8.5878, 81.2152, 7, 110, null),
+            new ParkingSpotModel("Jaffna City Parking", 9.6615, 80.0255, 18, 140, null)
+    };
+
+    // Index names (added in version 5)
+    static final String INDEX_RESERVATIONS_USER_TIME = "idx_reservations_user_time";
+    static final String INDEX_FAVORITES_SPOT = "idx_favorites_spot";
+    static final String INDEX_FEEDBACK_USER = "idx_feedback_user";
+    static final String INDEX_FEEDBACK_TIME = "idx_feedback_time"; // Added in version 6
+    static final String INDEX_RESERVATIONS_SPOT = "idx_reservations_spot"; // Added in version 8
+    static final String INDEX_SPOTS_LOCATION = "idx_spots_location"; // Added in version 11
+
+    // Triggers that keep RatingSummary in step with Feedback (added in version 9)
+    static final String TRIGGER_RATING_INSERT = "trg_feedback_rating_insert";
+    static final String TRIGGER_RATING_DELETE = "trg_feedback_rating_delete";
+    static final String TRIGGER_RATING_UPDATE = "trg_feedback_rating_update";
+    // Triggers that mirror Feedback into FeedbackFts (added in version 10)
+    static final String TRIGGER_FTS_INSERT = "trg_feedback_fts_insert";
+    static final String TRIGGER_FTS_DELETE = "trg_feedback_fts_delete";
+    static final String TRIGGER_FTS_BEFORE_UPDATE = "trg_feedback_fts_before_update";
+    static final String TRIGGER_FTS_AFTER_UPDATE = "trg_feedback_fts_after_update";
+
+    // Column lists of the read queries. Queries name exactly the columns RowMappers reads instead of
+    // SELECT *, so rows carry no unused columns (the user password never leaves the database).
+    private static final String USER_COLUMNS = columns("", COL_USER_ID, COL_NAME, COL_EMAIL, COL_PROFILE_IMAGE);
+    private static final String[] SPOT_COLUMN_NAMES = {COL_SPOT_ID, COL_SPOT_NAME, COL_LATITUDE, COL_LONGITUDE,
+            COL_AVAILABILITY, COL_PRICE_PER_HOUR, COL_DESCRIPTION};
+    private static final String[] FEEDBACK_COLUMN_NAMES = {COL_FEEDBACK_ID, COL_USER_ID, COL_SPOT_ID, COL_SUBJECT,
+            COL_MESSAGE, COL_RATING, COL_TIMESTAMP};
+    private static final String SPOT_COLUMNS = columns("", SPOT_COLUMN_NAMES);
+    private static final String FEEDBACK_COLUMNS = columns("", FEEDBACK_COLUMN_NAMES);
+    private static final String RESERVATION_COLUMNS = columns("", COL_RES_ID, COL_USER_ID, COL_SPOT_ID, COL_TIMESTAMP);
+    private static final String RATING_SUMMARY_COLUMNS = columns("", COL_SPOT_ID, COL_RATING_COUNT, COL_RATING_SUM,
+            COL_STARS_PREFIX + 1, COL_STARS_PREFIX + 2, COL_STARS_PREFIX + 3, COL_STARS_PREFIX + 4, COL_STARS_PREFIX + 5);
+
+    // Read queries, kept as constants so DatabaseHelperQueryPlanTest can check each one uses an index.
+    // Users.Email and Favorites(UserID, SpotID) are covered by the indexes SQLite creates for their UNIQUE constraints.
+    static final String SQL_CHECK_USER = "SELECT COUNT(*) FROM " + TABLE_USERS
+            + " WHERE " + COL_EMAIL + " = ? AND " + COL_PASSWORD + " = ?";
+    static final String SQL_USER_BY_EMAIL = "SELECT " + USER_COLUMNS + " FROM " + TABLE_USERS + " WHERE " + COL_EMAIL + " = ?";
+    static final String SQL_USER_ID_BY_EMAIL = "SELECT " + COL_USER_ID + " FROM " + TABLE_USERS + " WHERE " + COL_EMAIL + " = ?";
+    // Reservation rows carry the spot name from Spots. LEFT JOIN keeps a reservation even if its spot is unknown.
+    // Only r.* columns come from the reservations index, so the index stays covering and Spots is a rowid lookup.
+    private static final String RESERVATION_SELECT = "SELECT r." + COL_RES_ID + ", r." + COL_USER_ID + ", r." + COL_SPOT_ID
+            + ", r." + COL_TIMESTAMP + ", s." + COL_SPOT_NAME
+            + " FROM " + TABLE_RESERVATIONS + " r LEFT JOIN " + TABLE_SPOTS + " s ON s." + COL_SPOT_ID + " = r." + COL_SPOT_ID;
+    // Reservations are always listed newest first, with ReservationID breaking ties between equal timestamps
+    private static final String RESERVATION_ORDER = " ORDER BY r." + COL_TIMESTAMP + " DESC, r." + COL_RES_ID + " DESC";
+    static final String SQL_RESERVATIONS_BY_USER = RESERVATION_SELECT
+            + " WHERE r." + COL_USER_ID + " = ?" + RESERVATION_ORDER;
+    // Keyset pagination: the next page starts strictly after the (TimeStamp, ReservationID) of the last row shown.
+    // "TimeStamp <= ?" is the index range; the OR only filters rows that share the last timestamp.
+    // (Row-value comparisons would be shorter but need SQLite 3.15, newer than minSdk 21 ships.)
+    static final String SQL_RESERVATIONS_FIRST_PAGE = RESERVATION_SELECT
+            + " WHERE r." + COL_USER_ID + " = ?" + RESERVATION_ORDER + " LIMIT ?";
+    static final String SQL_RESERVATIONS_PAGE_AFTER = RESERVATION_SELECT
+            + " WHERE r." + COL_USER_ID + " = ? AND r." + COL_TIMESTAMP + " <= ?"
+            + " AND (r." + COL_TIMESTAMP + " < ? OR r." + COL_RES_ID + " < ?)" + RESERVATION_ORDER + " LIMIT ?";
+    // Range bounds are inclusive start, exclusive end, in epoch milliseconds
+    static final String SQL_RESERVATIONS_BY_USER_BETWEEN = RESERVATION_SELECT
+            + " WHERE r." + COL_USER_ID + " = ? AND r." + COL_TIMESTAMP + " >= ? AND r." + COL_TIMESTAMP + " < ?"
+            + RESERVATION_ORDER;
+    static final String SQL_FEEDBACK_SINCE = "SELECT " + FEEDBACK_COLUMNS + " FROM " + TABLE_FEEDBACK
+            + " WHERE " + COL_TIMESTAMP + " >= ? ORDER BY " + COL_TIMESTAMP;
+    // Favorite spots of a user, as full Spots rows
+    static final String SQL_FAVORITES_BY_USER = "SELECT " + columns("s.", SPOT_COLUMN_NAMES) + " FROM " + TABLE_FAVORITES + " f JOIN " + TABLE_SPOTS
+            + " s ON s." + COL_SPOT_ID + " = f." + COL_SPOT_ID + " WHERE f." + COL_USER_ID + " = ?";
+    static final String SQL_FAVORITE_SPOT_IDS_BY_USER = "SELECT " + COL_SPOT_ID + " FROM " + TABLE_FAVORITES
+            + " WHERE " + COL_USER_ID + " = ?";
+    static final String SQL_IS_SPOT_FAVORITE = "SELECT COUNT(*) FROM " + TABLE_FAVORITES
+            + " WHERE " + COL_USER_ID + " = ? AND " + COL_SPOT_ID + " = ?";
+    // Spots that can be shown on the map, in ID order. Spots without coordinates only exist for
+    // old reservations of spots that were not in the catalog when the database was upgraded to V8.
+    static final String SQL_ALL_SPOTS = "SELECT " + SPOT_COLUMNS + " FROM " + TABLE_SPOTS
+            + " WHERE " + COL_LATITUDE + " IS NOT NULL AND " + COL_LONGITUDE + " IS NOT NULL ORDER BY " + COL_SPOT_ID;
+    static final String SQL_SPOT_BY_ID = "SELECT " + SPOT_COLUMNS + " FROM " + TABLE_SPOTS + " WHERE " + COL_SPOT_ID + " = ?";
+    // Spots in a bounding box: a range scan of the location index on Latitude, with Longitude checked
+    // from the same index entries. (An R*Tree would be tighter, but Android's SQLite is built without it.)
+    static final String SQL_SPOTS_IN_BOUNDS = "SELECT " + SPOT_COLUMNS + " FROM " + TABLE_SPOTS
+            + " WHERE " + COL_LATITUDE + " BETWEEN ? AND ? AND " + COL_LONGITUDE + " BETWEEN ? AND ?";
+    // Rating summaries are single rows by primary key, however much feedback there is
+    static final String SQL_RATING_SUMMARY = "SELECT " + RATING_SUMMARY_COLUMNS + " FROM " + TABLE_RATING_SUMMARY + " WHERE " + COL_SPOT_ID + " = ?";
+    static final String SQL_ALL_RATING_SUMMARIES = "SELECT " + RATING_SUMMARY_COLUMNS + " FROM " + TABLE_RATING_SUMMARY
+            + " WHERE " + COL_RATING_COUNT + " > 0";
+    // Export reads whole tables BATCH_CHUNK_SIZE rows at a time in key order, each chunk starting after the
+    // last key of the previous one, so every chunk is a short range scan however deep into the table it is.
+    static final String SQL_RESERVATIONS_AFTER = "SELECT " + RESERVATION_COLUMNS + " FROM " + TABLE_RESERVATIONS
+            + " WHERE " + COL_RES_ID + " > ? ORDER BY " + COL_RES_ID + " LIMIT ?";
+    // ReservationHistory is keyed on (UserID, ReservationID); the range and filter work like SQL_RESERVATIONS_PAGE_AFTER
+    static final String SQL_ARCHIVED_RESERVATIONS_AFTER = "SELECT " + RESERVATION_COLUMNS + " FROM " + TABLE_RESERVATION_HISTORY
+            + " WHERE " + COL_USER_ID + " >= ? AND (" + COL_USER_ID + " > ? OR " + COL_RES_ID + " > ?)"
+            + " ORDER BY " + COL_USER_ID + ", " + COL_RES_ID + " LIMIT ?";
+    static final String SQL_FAVORITES_AFTER = "SELECT " + columns("", COL_FAV_ID, COL_USER_ID, COL_SPOT_ID)
+            + " FROM " + TABLE_FAVORITES + " WHERE " + COL_FAV_ID + " > ? ORDER BY " + COL_FAV_ID + " LIMIT ?";
+    static final String SQL_FEEDBACK_AFTER = "SELECT " + FEEDBACK_COLUMNS + " FROM " + TABLE_FEEDBACK
+            + " WHERE " + COL_FEEDBACK_ID + " > ? ORDER BY " + COL_FEEDBACK_ID + " LIMIT ?";
+    // Least capacity left over a range of slots. Slots nobody has booked yet have no row and still hold
+    // the spot's full Availability; an unknown spot gives NULL, which reads as 0.
+    static final String SQL_REMAINING_CAPACITY = "SELECT IFNULL(MIN(c." + COL_REMAINING + "), s." + COL_AVAILABILITY + ")"
+            + " FROM " + TABLE_SPOTS + " s LEFT JOIN " + TABLE_SLOT_CAPACITY + " c ON c." + COL_SPOT_ID + " = s." + COL_SPOT_ID
+            + " AND c." + COL_SLOT_START + " >= ? AND c." + COL_SLOT_START + " < ? WHERE s." + COL_SPOT_ID + " = ?";
+
+    // Full-text feedback search. Ranking every match of a common word would cost time proportional to
+    // the whole table, so only the SEARCH_CANDIDATE_LIMIT newest matches are ranked; FTS4 streams them
+    // in docid order and stops there. They are ranked by how often the terms occur (from offsets(),
+    // four numbers per occurrence) and paged with the same keyset scheme as the reservation pages.
+    static final int SEARCH_CANDIDATE_LIMIT = 1000;
+    private static final String SEARCH_SELECT = "SELECT " + columns("f.", FEEDBACK_COLUMN_NAMES) + ", (length(m.Offsets) - length(replace(m.Offsets, ' ', '')) + 1) / 4 AS "
+            + COL_MATCH_COUNT + ", m." + COL_SNIPPET
+            + " FROM (SELECT docid AS MatchID, offsets(" + TABLE_FEEDBACK_FTS + ") AS Offsets, snippet(" + TABLE_FEEDBACK_FTS
+            + ", '" + SNIPPET_MATCH_START + "', '" + SNIPPET_MATCH_END + "', '...', -1, 12) AS " + COL_SNIPPET
+            + " FROM " + TABLE_FEEDBACK_FTS + " WHERE " + TABLE_FEEDBACK_FTS + " MATCH ?"
+            + " ORDER BY docid DESC LIMIT " + SEARCH_CANDIDATE_LIMIT + ") m"
+            + " JOIN " + TABLE_FEEDBACK + " f ON f." + COL_FEEDBACK_ID + " = m.MatchID";
+    private static final String SEARCH_ORDER = " ORDER BY " + COL_MATCH_COUNT + " DESC, m.MatchID DESC LIMIT ?";
+    static final String SQL_SEARCH_FEEDBACK_FIRST_PAGE = SEARCH_SELECT + SEARCH_ORDER;
+    // MatchCount is an expression, so it has no affinity and a parameter bound as TEXT (query() binds
+    // strings) would never be converted: every INTEGER sorts below every TEXT and each page would repeat
+    // the first. The parameters are therefore cast explicitly.
+    static final String SQL_SEARCH_FEEDBACK_PAGE_AFTER = SEARCH_SELECT
+            + " WHERE " + COL_MATCH_COUNT + " <= CAST(? AS INTEGER) AND (" + COL_MATCH_COUNT + " < CAST(? AS INTEGER)"
+            + " OR m.MatchID < CAST(? AS INTEGER))" + SEARCH_ORDER;
+
+    // Hot writes, executed through cached compiled statements
+    static final String SQL_INSERT_RESERVATION = "INSERT INTO " + TABLE_RESERVATIONS
+            + "(" + COL_USER_ID + ", " + COL_SPOT_ID + ", " + COL_TIMESTAMP + ") VALUES (?, ?, ?)";
+    static final String SQL_INSERT_FAVORITE = "INSERT INTO " + TABLE_FAVORITES
+            + "(" + COL_USER_ID + ", " + COL_SPOT_ID + ") VALUES (?, ?)";
+    // Favorite changes applied by applyFavoriteChanges, where an existing or missing row is not an error
+    static final String SQL_ADD_FAVORITE_IF_MISSING = SQL_INSERT_FAVORITE.replace("INSERT INTO", "INSERT OR IGNORE INTO");
+    static final String SQL_DELETE_FAVORITE = "DELETE FROM " + TABLE_FAVORITES
+            + " WHERE " + COL_USER_ID + " = ? AND " + COL_SPOT_ID + " = ?";
+    static final String SQL_INSERT_FEEDBACK = "INSERT INTO " + TABLE_FEEDBACK
+            + "(" + COL_USER_ID + ", " + COL_SUBJECT + ", " + COL_MESSAGE + ", " + COL_RATING + ", " + COL_TIMESTAMP
+            + ", " + COL_SPOT_ID + ") VALUES (?, ?, ?, ?, ?, ?)";
+    // Slot booking: create the slot with the spot's full Availability the first time it is booked,
+    // then take one unit only if any is left. The UPDATE checks and decrements in one step,
+    // so two bookings can never both take the last unit.
+    static final String SQL_ENSURE_SLOT = "INSERT OR IGNORE INTO " + TABLE_SLOT_CAPACITY
+            + "(" + COL_SPOT_ID + ", " + COL_SLOT_START + ", " + COL_REMAINING + ")"
+            + " SELECT " + COL_SPOT_ID + ", ?, IFNULL(" + COL_AVAILABILITY + ", 0) FROM " + TABLE_SPOTS + " WHERE " + COL_SPOT_ID + " = ?";
+    static final String SQL_TAKE_SLOT = "UPDATE " + TABLE_SLOT_CAPACITY + " SET " + COL_REMAINING + " = " + COL_REMAINING + " - 1"
+            + " WHERE " + COL_SPOT_ID + " = ? AND " + COL_SLOT_START + " = ? AND " + COL_REMAINING + " > 0";
+    static final String SQL_RETURN_SLOT = "UPDATE " + TABLE_SLOT_CAPACITY + " SET " + COL_REMAINING + " = " + COL_REMAINING + " + 1"
+            + " WHERE " + COL_SPOT_ID + " = ? AND " + COL_SLOT_START + " = ?";
+    // The newest of the matching reservations; any of them would do, they hold the same slots
+    static final String SQL_DELETE_RESERVATION = "DELETE FROM " + TABLE_RESERVATIONS + " WHERE " + COL_RES_ID + " = ("
+            + "SELECT MAX(" + COL_RES_ID + ") FROM " + TABLE_RESERVATIONS
+            + " WHERE " + COL_USER_ID + " = ? AND " + COL_SPOT_ID + " = ? AND " + COL_TIMESTAMP + " = ?)";
+    // Archival, one chunk of ReservationIDs at a time: the chunk ends at the BATCH_CHUNK_SIZE-th old
+    // reservation after the previous chunk (0 when there are none left). Walking ReservationID order
+    // keeps every chunk a rowid range scan, whatever order the timestamps were inserted in.
+    static final String SQL_ARCHIVE_CHUNK_END = "SELECT IFNULL(MAX(" + COL_RES_ID + "), 0) FROM (SELECT " + COL_RES_ID
+            + " FROM " + TABLE_RESERVATIONS + " WHERE " + COL_RES_ID + " > ? AND " + COL_TIMESTAMP + " < ?"
+            + " ORDER BY " + COL_RES_ID + " LIMIT ?)";
+    private static final String ARCHIVE_CHUNK_WHERE = " WHERE " + COL_RES_ID + " > ? AND " + COL_RES_ID + " <= ? AND "
+            + COL_TIMESTAMP + " < ?";
+    static final String SQL_ARCHIVE_RESERVATIONS = "INSERT INTO " + TABLE_RESERVATION_HISTORY + "(" + RESERVATION_COLUMNS + ")"
+            + " SELECT " + RESERVATION_COLUMNS + " FROM " + TABLE_RESERVATIONS + ARCHIVE_CHUNK_WHERE;
+    static final String SQL_DELETE_ARCHIVED = "DELETE FROM " + TABLE_RESERVATIONS + ARCHIVE_CHUNK_WHERE;
+    // Capacity of slots that have already started can no longer be booked
+    static final String SQL_DELETE_PAST_SLOTS = "DELETE FROM " + TABLE_SLOT_CAPACITY + " WHERE " + COL_SLOT_START + " < ?";
+    static final String SQL_INSERT_SPOT = "INSERT INTO " + TABLE_SPOTS
+            + "(" + COL_SPOT_NAME + ", " + COL_LATITUDE + ", " + COL_LONGITUDE + ", " + COL_AVAILABILITY + ", "
+            + COL_PRICE_PER_HOUR + ", " + COL_DESCRIPTION + ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Bulk inserts commit every BATCH_CHUNK_SIZE rows, so one large batch never holds the
+    // write lock long enough to stall the single-row writes coming from the UI.
+    static final int BATCH_CHUNK_SIZE = 500;
+
+    // Compiled statements keyed by SQL, valid for statementDatabase only.
+    // A statement is not thread-safe, so callers synchronize on it while binding and executing.
+    private final Map<String, SQLiteStatement> statementCache = new HashMap<>();
+    private SQLiteDatabase statementDatabase;
+
+    private final TableChangeNotifier changeNotifier = new TableChangeNotifier();
+    private final DatabaseMetrics metrics = new DatabaseMetrics();
+
+    private final Context context;
+    private volatile boolean databaseFilePrepared; // Set once prepareDatabaseFile has looked at the database file
+
+    // Held by createSnapshot while it copies the database file and by runMaintenance, whose checkpoint
+    // would change the file under the copy. checkpointsHeld makes checkpoint() skip in the meantime.
+    private final Object databaseFileLock = new Object();
+    private volatile boolean checkpointsHeld;
+
     public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Creates a helper for a specific database file.
+     * Passing null as the name gives an in-memory database, which is what the tests use.
+     */
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        this.context = context;
+        databaseFilePrepared = databaseName == null; // An in-memory database has no file to prepare
+        // WAL lets readers run on their own pooled connections while a write is in progress,
+        // instead of the rollback journal blocking every read until the writer commits.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Opens the database, first putting a staged restore or, on the first run, the prebuilt database in place.
+     */
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        prepareDatabaseFile();
+        return super.getWritableDatabase();
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        prepareDatabaseFile();
+        return super.getReadableDatabase();
+    }
+
+    /**
+     * Runs before the database is first opened. A snapshot staged by stageRestore replaces the database file;
+     * otherwise, if there is no database file yet, assets/databases/parkNow.db is copied into place so onCreate
+     * does not have to build the spot catalog on the device. If neither applies, nothing happens and
+     * SQLiteOpenHelper creates or upgrades the database as usual.
+     */
+    private void prepareDatabaseFile() {
+        if (databaseFilePrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!databaseFilePrepared) {
+                File staged = restoreFile();
+                if (staged.exists()) {
+                    if (DatabaseFiles.moveIntoPlace(staged, context.getDatabasePath(getDatabaseName()))) {
+                        Log.d(TAG, "Restored the database from a snapshot.");
+                    }
+                } else {
+                    PrebuiltDatabase.installIfMissing(context, getDatabaseName(), DATABASE_VERSION);
+                }
+                databaseFilePrepared = true;
+            }
+        }
+    }
+
+    /**
+     * Where stageRestore leaves a snapshot for prepareDatabaseFile: next to the database, with a suffix.
+     */
+    private File restoreFile() {
+        return new File(context.getDatabasePath(getDatabaseName()).getPath() + RESTORE_SUFFIX);
     }
 
     @Override
@@ -51,6 +397,317 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         super.onConfigure(db);
         // Enable foreign key constraints for referential integrity
         db.setForeignKeyConstraintsEnabled(true);
+        // onConfigure runs on the primary (writer) connection, which is the one that commits and checkpoints
+        setPragma(db, "wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+        setPragma(db, "journal_size_limit = " + WAL_JOURNAL_SIZE_LIMIT_BYTES);
+        setPragma(db, "synchronous = " + synchronousMode.name());
+    }
+
+    /**
+     * Changes PRAGMA synchronous for writes.
+     * Takes effect immediately if the database is already open, otherwise when it is opened.
+     * Opens the database if needed, so call it off the main thread.
+     *
+     * @param mode The new synchronous mode.
+     */
+    public void setSynchronousMode(SynchronousMode mode) {
+        synchronousMode = mode;
+        setPragma(getWritableDatabase(), "synchronous = " + mode.name());
+        Log.d(TAG, "Synchronous mode set to " + mode);
+    }
+
+    /**
+     * Runs a WAL checkpoint now, e.g. when the app goes to the background.
+     * PASSIVE never blocks readers or writers; TRUNCATE also waits for them and resets the WAL file.
+     *
+     * @param truncate true for a TRUNCATE checkpoint, false for PASSIVE.
+     */
+    public void checkpoint(boolean truncate) {
+        if (checkpointsHeld) {
+            Log.d(TAG, "WAL checkpoint skipped: a snapshot is being copied.");
+            return;
+        }
+        setPragma(getWritableDatabase(), "wal_checkpoint(" + (truncate ? "TRUNCATE" : "PASSIVE") + ")");
+        Log.d(TAG, "WAL checkpoint (" + (truncate ? "TRUNCATE" : "PASSIVE") + ") done.");
+    }
+
+    /**
+     * Runs a PRAGMA through rawQuery, since some PRAGMAs return a row and execSQL rejects those.
+     */
+    private static void setPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Reads a PRAGMA that returns a single number, e.g. page_count.
+     */
+    private static long pragmaLong(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Writes a consistent copy of the database to {@code destination} while the app keeps reading and writing.
+     * Checkpoints are held off for the duration, so after one TRUNCATE checkpoint (the only moment writers
+     * wait, while the WAL is applied) the database file stops changing and is copied as-is while new commits
+     * go to the WAL. The copy is switched to a rollback journal, so the snapshot is one self-contained file,
+     * and is only renamed to {@code destination} once it passes PRAGMA integrity_check.
+     * Copies the whole file: call it on a background thread, outside any transaction.
+     *
+     * @param destination The snapshot file; replaced if it exists.
+     * @return true if the snapshot was written and verified, false on error or for an in-memory database.
+     */
+    public boolean createSnapshot(File destination) {
+        long start = metrics.start();
+        if (getDatabaseName() == null) {
+            Log.e(TAG, "createSnapshot: an in-memory database has no file to copy.");
+            metrics.record("createSnapshot", start, false);
+            return false;
+        }
+        File copy = new File(destination.getPath() + ".tmp");
+        boolean copied = false;
+        synchronized (databaseFileLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            checkpointsHeld = true;
+            try {
+                setAutoCheckpoint(db, 0);
+                long blockedStart = System.currentTimeMillis();
+                if (checkpointFully(db)) {
+                    Log.d(TAG, "createSnapshot: checkpoint took " + (System.currentTimeMillis() - blockedStart) + " ms.");
+                    DatabaseFiles.copy(new File(db.getPath()), copy);
+                    copied = true;
+                } else {
+                    Log.w(TAG, "createSnapshot: the WAL could not be checkpointed completely; try again later.");
+                }
+            } catch (IOException | SQLException e) {
+                Log.e(TAG, "Error copying database for snapshot: " + e.getMessage());
+            } finally {
+                try {
+                    setAutoCheckpoint(db, WAL_AUTOCHECKPOINT_PAGES);
+                } finally {
+                    checkpointsHeld = false;
+                }
+            }
+        }
+        if (!copied) {
+            SQLiteDatabase.deleteDatabase(copy);
+            metrics.record("createSnapshot", start, false);
+            return false;
+        }
+        boolean written = DatabaseFiles.finishSnapshot(copy, destination);
+        if (written) {
+            Log.d(TAG, "Snapshot written to " + destination + " (" + destination.length() / 1024 + " KB).");
+        }
+        metrics.record("createSnapshot", start, written);
+        return written;
+    }
+
+    /**
+     * Schedules a snapshot to replace the database the next time it is opened, i.e. once the app restarts;
+     * swapping the file under open connections could lose or mix up data. The snapshot is checked first
+     * (integrity_check, and a version this app can open or upgrade) and copied next to the database.
+     * The swap itself is a single rename, so the database is always either the old one or the restored one.
+     * Reads the whole snapshot: call it on a background thread.
+     *
+     * @param snapshot A file written by createSnapshot.
+     * @return true if the restore is staged, false if the snapshot is unusable or this is an in-memory database.
+     */
+    public boolean stageRestore(File snapshot) {
+        long start = metrics.start();
+        boolean staged = false;
+        if (getDatabaseName() == null) {
+            Log.e(TAG, "stageRestore: an in-memory database cannot be restored.");
+        } else {
+            try {
+                staged = DatabaseFiles.installVerified(new FileInputStream(snapshot), restoreFile(),
+                        DATABASE_VERSION, true, "snapshot " + snapshot.getName());
+            } catch (FileNotFoundException e) {
+                Log.e(TAG, "stageRestore: " + e.getMessage());
+            }
+        }
+        metrics.record("stageRestore", start, staged);
+        return staged;
+    }
+
+    /**
+     * Sets PRAGMA wal_autocheckpoint on the primary connection, the one that commits and so the only one
+     * that checkpoints automatically. A PRAGMA outside a transaction may run on any pooled connection.
+     */
+    private static void setAutoCheckpoint(SQLiteDatabase db, int pages) {
+        db.beginTransactionNonExclusive();
+        try {
+            setPragma(db, "wal_autocheckpoint = " + pages);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Runs a TRUNCATE checkpoint and reports whether every WAL frame made it into the database file.
+     * The row it returns holds busy (1 if it could not finish), frames in the WAL, and frames checkpointed.
+     */
+    private static boolean checkpointFully(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            return cursor.moveToFirst() && cursor.getInt(0) == 0 && cursor.getLong(1) == cursor.getLong(2);
+        }
+    }
+
+    /**
+     * Runs one step of a long job, such as a chunk of an import or of maintenance, on {@code writer} and
+     * waits for it. When writer is the repository's writer thread, single-row writes from the UI queued
+     * meanwhile run between two steps instead of waiting for the whole job. Must not be called on the
+     * writer thread itself, which would then wait for itself.
+     *
+     * @return The step's result; an exception thrown by the step is rethrown.
+     */
+    static <T> T runStep(Executor writer, Callable<T> step) {
+        FutureTask<T> task = new FutureTask<>(step);
+        writer.execute(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a write step", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Archives old reservations, then compacts the database file if enough of it is free.
+     * Reservations made for before {@code archiveBeforeMillis} move to ReservationHistory, BATCH_CHUNK_SIZE
+     * per transaction so bookings and reads are never held up for long, and the capacity rows of slots
+     * before it are dropped. If at least {@code minFreePages} pages are then free, they are handed back to
+     * the file system by an incremental vacuum (the first time, a full VACUUM that switches the database
+     * to incremental auto_vacuum) and a TRUNCATE checkpoint.
+     * Can take a while on a big database: call it on a background thread, outside any transaction.
+     *
+     * @param archiveBeforeMillis Cutoff in epoch milliseconds; a cutoff in the future is treated as now,
+     *                            so upcoming reservations are never archived.
+     * @param minFreePages        Free pages needed before a vacuum is worth it.
+     * @return What was archived and reclaimed, or null on error (chunks archived before the error stay archived).
+     */
+    public MaintenanceReport runMaintenance(long archiveBeforeMillis, int minFreePages) {
+        return runMaintenance(archiveBeforeMillis, minFreePages, Runnable::run);
+    }
+
+    /**
+     * Same as runMaintenance(long, int), but every write step (an archive chunk, VACUUM_STEP_PAGES pages of
+     * incremental vacuum, the checkpoint) runs as its own task on {@code writer}, see runStep. Only the
+     * first-time full VACUUM is one long step.
+     *
+     * @param writer The executor all other writes go through; never the calling thread's own executor.
+     */
+    public MaintenanceReport runMaintenance(long archiveBeforeMillis, int minFreePages, Executor writer) {
+        long start = metrics.start();
+        // Its checkpoint must not run while createSnapshot copies the database file
+        synchronized (databaseFileLock) {
+            try {
+                SQLiteDatabase db = getWritableDatabase();
+                long pageSize = pragmaLong(db, "page_size");
+                long pagesBefore = pragmaLong(db, "page_count");
+                int archived = archiveReservations(db, Math.min(archiveBeforeMillis, System.currentTimeMillis()), writer);
+                long freePages = pragmaLong(db, "freelist_count");
+                boolean vacuum = freePages > 0 && freePages >= minFreePages;
+                if (vacuum) {
+                    if (pragmaLong(db, "auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+                        // Bounded by the pages free now, so writes that free more meanwhile cannot keep it going
+                        for (long step = 0; step * VACUUM_STEP_PAGES < freePages; step++) {
+                            runStep(writer, () -> {
+                                setPragma(db, "incremental_vacuum(" + VACUUM_STEP_PAGES + ")");
+                                return null;
+                            });
+                        }
+                    } else {
+                        // auto_vacuum can only change in a VACUUM: switching to WAL writes the file header
+                        // before onCreate, so even new databases start with it off
+                        runStep(writer, () -> {
+                            setPragma(db, "auto_vacuum = INCREMENTAL");
+                            db.execSQL("VACUUM");
+                            return null;
+                        });
+                    }
+                    // With WAL the file only shrinks once the shortened database has been checkpointed
+                    runStep(writer, () -> {
+                        setPragma(db, "wal_checkpoint(TRUNCATE)");
+                        return null;
+                    });
+                }
+                MaintenanceReport report = new MaintenanceReport(archived, pageSize, pagesBefore, freePages,
+                        pragmaLong(db, "page_count"), vacuum);
+                Log.d(TAG, "Database maintenance done. " + report);
+                metrics.record("runMaintenance", start, true);
+                return report;
+            } catch (Exception e) {
+                Log.e(TAG, "Error during database maintenance: " + e.getMessage());
+                metrics.record("runMaintenance", start, false);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves the reservations before a cutoff to ReservationHistory, one committed chunk (one step on
+     * {@code writer}) at a time, and deletes the capacity rows of slots that ended before it.
+     *
+     * @return The number of reservations archived.
+     */
+    private int archiveReservations(SQLiteDatabase db, long cutoffMillis, Executor writer) {
+        int archived = 0;
+        // Compiled per call instead of taken from the statement cache, as in reserveSpot: they run inside transactions
+        try (SQLiteStatement chunkEnd = db.compileStatement(SQL_ARCHIVE_CHUNK_END);
+             SQLiteStatement copy = db.compileStatement(SQL_ARCHIVE_RESERVATIONS);
+             SQLiteStatement delete = db.compileStatement(SQL_DELETE_ARCHIVED);
+             SQLiteStatement deleteSlots = db.compileStatement(SQL_DELETE_PAST_SLOTS)) {
+            long after = 0; // Last ReservationID of the previous chunk
+            long[] chunk; // End of the chunk (0 when there is none left) and reservations moved
+            do {
+                long chunkStart = after;
+                chunk = runStep(writer, () -> {
+                    long end;
+                    int moved = 0;
+                    db.beginTransactionNonExclusive();
+                    try {
+                        chunkEnd.bindLong(1, chunkStart);
+                        chunkEnd.bindLong(2, cutoffMillis);
+                        chunkEnd.bindLong(3, BATCH_CHUNK_SIZE);
+                        end = chunkEnd.simpleQueryForLong();
+                        if (end > 0) {
+                            for (SQLiteStatement statement : new SQLiteStatement[]{copy, delete}) {
+                                statement.bindLong(1, chunkStart);
+                                statement.bindLong(2, end);
+                                statement.bindLong(3, cutoffMillis);
+                            }
+                            copy.executeUpdateDelete();
+                            moved = delete.executeUpdateDelete();
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    return new long[]{end, moved};
+                });
+                if (chunk[1] > 0) {
+                    archived += (int) chunk[1];
+                    changeNotifier.notifyChanged(TABLE_RESERVATIONS, TABLE_RESERVATION_HISTORY);
+                }
+                after = chunk[0];
+            } while (after > 0);
+
+            // The slot that contains the cutoff may still be booked, so only slots before it go
+            deleteSlots.bindLong(1, slotStart(cutoffMillis));
+            int slots = runStep(writer, deleteSlots::executeUpdateDelete);
+            if (slots > 0) {
+                notifyTableChanged(TABLE_SLOT_CAPACITY);
+            }
+            Log.d(TAG, "Archived " + archived + " reservations and dropped " + slots + " past slots before " + cutoffMillis);
+        }
+        return archived;
     }
 
     @Override
@@ -67,13 +724,17 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_USERS_TABLE);
         Log.d(TAG, "Table " + TABLE_USERS + " created.");
 
+        // Create Spots table and fill in the parking spots
+        createSpotsTable(db);
+
         // Create Reservations table
         String CREATE_RESERVATIONS_TABLE = "CREATE TABLE " + TABLE_RESERVATIONS + "("
                 + COL_RES_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COL_USER_ID + " INTEGER,"
-                + COL_SPOT_ID + " TEXT,"
-                + COL_TIMESTAMP + " TEXT,"
-                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE" + ")";
+                + COL_SPOT_ID + " INTEGER,"
+                + COL_TIMESTAMP + " INTEGER," // Epoch milliseconds
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ")" + ")";
         db.execSQL(CREATE_RESERVATIONS_TABLE);
         Log.d(TAG, "Table " + TABLE_RESERVATIONS + " created.");
 
@@ -82,9 +743,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_FAVORITES_TABLE = "CREATE TABLE " + TABLE_FAVORITES + "("
                 + COL_FAV_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COL_USER_ID + " INTEGER,"
-                + COL_SPOT_ID + " TEXT," // SpotID is the name/identifier of the parking spot
+                + COL_SPOT_ID + " INTEGER," // SpotID references the Spots table
                 + "UNIQUE(" + COL_USER_ID + ", " + COL_SPOT_ID + ")," // Prevent duplicate favorite entries for same user/spot
-                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE" + ")";
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ") ON DELETE CASCADE" + ")";
         db.execSQL(CREATE_FAVORITES_TABLE);
         Log.d(TAG, "Table " + TABLE_FAVORITES + " created.");
 
@@ -95,10 +757,210 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COL_SUBJECT + " TEXT,"
                 + COL_MESSAGE + " TEXT,"
                 + COL_RATING + " REAL," // Store rating as REAL (float/double)
-                + COL_TIMESTAMP + " TEXT," // Timestamp for when feedback was given
-                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE" + ")";
+                + COL_TIMESTAMP + " INTEGER," // Epoch milliseconds when feedback was given
+                + COL_SPOT_ID + " INTEGER," // Spot the feedback is about, NULL for general feedback
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ")" + ")";
         db.execSQL(CREATE_FEEDBACK_TABLE);
         Log.d(TAG, "Table " + TABLE_FEEDBACK + " created.");
+
+        createIndexes(db);
+        createRatingSummary(db);
+        createFeedbackSearch(db);
+        createSlotCapacity(db);
+        createReservationHistory(db);
+    }
+
+    /**
+     * Creates the Spots table if needed and adds the built-in spots that are missing.
+     */
+    private void createSpotsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SPOTS + "("
+                + COL_SPOT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_SPOT_NAME + " TEXT NOT NULL UNIQUE,"
+                + COL_LATITUDE + " REAL,"
+                + COL_LONGITUDE + " REAL,"
+                + COL_AVAILABILITY + " INTEGER," // Number of free slots
+                + COL_PRICE_PER_HOUR + " REAL," // LKR
+                + COL_DESCRIPTION + " TEXT" + ")");
+        try (SQLiteStatement insert = db.compileStatement(SQL_INSERT_SPOT.replace("INSERT INTO", "INSERT OR IGNORE INTO"))) {
+            for (ParkingSpotModel spot : SEED_SPOTS) {
+                bindSpot(insert, spot);
+                insert.executeInsert();
+            }
+        }
+        createSpotsLocationIndex(db);
+        Log.d(TAG, "Table " + TABLE_SPOTS + " created with " + SEED_SPOTS.length + " spots.");
+    }
+
+    /**
+     * Creates the index behind getSpotsInBounds. Kept apart from createIndexes, which also runs
+     * during upgrades from before the Spots table existed.
+     */
+    private void createSpotsLocationIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_SPOTS_LOCATION + " ON " + TABLE_SPOTS
+                + "(" + COL_LATITUDE + ", " + COL_LONGITUDE + ")");
+    }
+
+    /**
+     * Creates SlotCapacity: one row per spot and hourly slot that has been booked at least once,
+     * holding how many more reservations the slot can take. Rows are created lazily by reserveSpot,
+     * so the table only grows with actual bookings. Safe to run more than once.
+     */
+    private void createSlotCapacity(SQLiteDatabase db) {
+        // WITHOUT ROWID: the table is only ever read and written by its (SpotID, SlotStart) key
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SLOT_CAPACITY + "("
+                + COL_SPOT_ID + " INTEGER NOT NULL,"
+                + COL_SLOT_START + " INTEGER NOT NULL,"
+                + COL_REMAINING + " INTEGER NOT NULL CHECK(" + COL_REMAINING + " >= 0),"
+                + "PRIMARY KEY(" + COL_SPOT_ID + ", " + COL_SLOT_START + "),"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ") ON DELETE CASCADE"
+                + ") WITHOUT ROWID");
+        Log.d(TAG, "Table " + TABLE_SLOT_CAPACITY + " created.");
+    }
+
+    /**
+     * Creates ReservationHistory, which holds reservations archived by runMaintenance. Safe to run more than once.
+     */
+    private void createReservationHistory(SQLiteDatabase db) {
+        // WITHOUT ROWID and clustered on (UserID, ReservationID): one b-tree per row instead of the table plus
+        // two indexes Reservations needs, and a user's history (and ON DELETE CASCADE) is still one key range.
+        // ReservationIDs are AUTOINCREMENT in Reservations, so they stay unique here too.
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_RESERVATION_HISTORY + "("
+                + COL_RES_ID + " INTEGER NOT NULL,"
+                + COL_USER_ID + " INTEGER NOT NULL,"
+                + COL_SPOT_ID + " INTEGER,"
+                + COL_TIMESTAMP + " INTEGER NOT NULL,"
+                + "PRIMARY KEY(" + COL_USER_ID + ", " + COL_RES_ID + "),"
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE"
+                + ") WITHOUT ROWID");
+        Log.d(TAG, "Table " + TABLE_RESERVATION_HISTORY + " created.");
+    }
+
+    /**
+     * Joins column names into a SELECT list.
+     *
+     * @param prefix A table alias with its dot, e.g. "s.", or "" for none.
+     * @return e.g. "s.SpotID, s.SpotName".
+     */
+    private static String columns(String prefix, String... names) {
+        StringBuilder list = new StringBuilder();
+        for (String name : names) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append(prefix).append(name);
+        }
+        return list.toString();
+    }
+
+    /**
+     * Creates the secondary indexes (version 5, plus the feedback time index from version 6).
+     * Safe to run more than once.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        // Covers the per-user reservation queries completely: filter on UserID, already sorted by
+        // (TimeStamp, ReservationID) newest first, and SpotID is in the index so the reservation columns never have to come from the table.
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_RESERVATIONS_USER_TIME + " ON " + TABLE_RESERVATIONS
+                + "(" + COL_USER_ID + ", " + COL_TIMESTAMP + " DESC, " + COL_RES_ID + " DESC, " + COL_SPOT_ID + ")");
+        // Reservations of a spot; also keeps the Spots foreign key check cheap
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_RESERVATIONS_SPOT + " ON " + TABLE_RESERVATIONS
+                + "(" + COL_SPOT_ID + ")");
+        // Lookups by spot (e.g. "who favorited this spot"); per-user lookups use the UNIQUE(UserID, SpotID) index
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_FAVORITES_SPOT + " ON " + TABLE_FAVORITES
+                + "(" + COL_SPOT_ID + ")");
+        // Per-user feedback, also used by ON DELETE CASCADE when a user is removed
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_FEEDBACK_USER + " ON " + TABLE_FEEDBACK
+                + "(" + COL_USER_ID + ")");
+        // Feedback since a point in time, across all users
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_FEEDBACK_TIME + " ON " + TABLE_FEEDBACK
+                + "(" + COL_TIMESTAMP + ")");
+        Log.d(TAG, "Indexes created.");
+    }
+
+    /**
+     * Creates RatingSummary and the Feedback triggers that maintain it, then recomputes it from Feedback.
+     * Each summary row holds the count, sum and 1-5 star histogram of one spot's ratings, so an average
+     * never needs a scan of Feedback. The triggers also cover batch inserts, edits, and cascaded deletes.
+     * Safe to run more than once.
+     */
+    private void createRatingSummary(SQLiteDatabase db) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder histogram = new StringBuilder();
+        for (int stars = 1; stars <= 5; stars++) {
+            columns.append(", ").append(COL_STARS_PREFIX).append(stars).append(" INTEGER NOT NULL DEFAULT 0");
+            histogram.append(", SUM(").append(starBucket("f")).append(" = ").append(stars).append(")");
+        }
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_RATING_SUMMARY + "("
+                + COL_SPOT_ID + " INTEGER PRIMARY KEY,"
+                + COL_RATING_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + COL_RATING_SUM + " REAL NOT NULL DEFAULT 0" + columns + ")");
+
+        String ensureRow = "INSERT OR IGNORE INTO " + TABLE_RATING_SUMMARY + "(" + COL_SPOT_ID + ")"
+                + " VALUES (IFNULL(NEW." + COL_SPOT_ID + ", " + GENERAL_RATING_SPOT_ID + "));";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_RATING_INSERT + " AFTER INSERT ON " + TABLE_FEEDBACK
+                + " BEGIN " + ensureRow + ratingDelta("NEW", "+") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_RATING_DELETE + " AFTER DELETE ON " + TABLE_FEEDBACK
+                + " BEGIN " + ratingDelta("OLD", "-") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_RATING_UPDATE + " AFTER UPDATE OF " + COL_RATING + ", " + COL_SPOT_ID
+                + " ON " + TABLE_FEEDBACK + " BEGIN " + ratingDelta("OLD", "-") + ensureRow + ratingDelta("NEW", "+") + " END");
+
+        db.execSQL("DELETE FROM " + TABLE_RATING_SUMMARY);
+        db.execSQL("INSERT INTO " + TABLE_RATING_SUMMARY
+                + " SELECT IFNULL(" + COL_SPOT_ID + ", " + GENERAL_RATING_SPOT_ID + "), COUNT(*), SUM(" + COL_RATING + ")" + histogram
+                + " FROM " + TABLE_FEEDBACK + " f WHERE " + COL_RATING + " IS NOT NULL"
+                + " GROUP BY IFNULL(" + COL_SPOT_ID + ", " + GENERAL_RATING_SPOT_ID + ")");
+        Log.d(TAG, "Table " + TABLE_RATING_SUMMARY + " created and filled from " + TABLE_FEEDBACK + ".");
+    }
+
+    /**
+     * Creates the FeedbackFts full-text index and the Feedback triggers that keep it in step, then
+     * rebuilds it from Feedback. FeedbackFts is an external-content table: it stores only the index,
+     * and reads the text back from Feedback for snippets. Safe to run more than once.
+     */
+    private void createFeedbackSearch(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_FEEDBACK_FTS + " USING fts4(content=\"" + TABLE_FEEDBACK + "\", "
+                + COL_SUBJECT + ", " + COL_MESSAGE + ", tokenize=porter)"); // porter: match word stems, not exact forms
+        String deleteOld = "DELETE FROM " + TABLE_FEEDBACK_FTS + " WHERE docid = OLD." + COL_FEEDBACK_ID + ";";
+        String insertNew = "INSERT INTO " + TABLE_FEEDBACK_FTS + "(docid, " + COL_SUBJECT + ", " + COL_MESSAGE + ")"
+                + " VALUES (NEW." + COL_FEEDBACK_ID + ", NEW." + COL_SUBJECT + ", NEW." + COL_MESSAGE + ");";
+        // Old index entries must be removed while Feedback still holds the old text
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_DELETE + " BEFORE DELETE ON " + TABLE_FEEDBACK
+                + " BEGIN " + deleteOld + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_BEFORE_UPDATE + " BEFORE UPDATE OF " + COL_SUBJECT + ", " + COL_MESSAGE
+                + " ON " + TABLE_FEEDBACK + " BEGIN " + deleteOld + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_AFTER_UPDATE + " AFTER UPDATE OF " + COL_SUBJECT + ", " + COL_MESSAGE
+                + " ON " + TABLE_FEEDBACK + " BEGIN " + insertNew + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_INSERT + " AFTER INSERT ON " + TABLE_FEEDBACK
+                + " BEGIN " + insertNew + " END");
+        db.execSQL("INSERT INTO " + TABLE_FEEDBACK_FTS + "(" + TABLE_FEEDBACK_FTS + ") VALUES ('rebuild')");
+        Log.d(TAG, "Table " + TABLE_FEEDBACK_FTS + " created and filled from " + TABLE_FEEDBACK + ".");
+    }
+
+    /**
+     * The star bucket of a feedback row: its rating rounded to whole stars, clamped to 1-5
+     * (the RatingBar allows 0 and half stars).
+     */
+    private static String starBucket(String row) {
+        return "MIN(5, MAX(1, CAST(ROUND(" + row + "." + COL_RATING + ") AS INTEGER)))";
+    }
+
+    /**
+     * Trigger statement adding ({@code sign} "+") or removing ("-") one feedback row's rating
+     * to or from its RatingSummary row. Rows without a rating are not counted.
+     */
+    private static String ratingDelta(String row, String sign) {
+        StringBuilder sql = new StringBuilder("UPDATE " + TABLE_RATING_SUMMARY + " SET "
+                + COL_RATING_COUNT + " = " + COL_RATING_COUNT + " " + sign + " 1, "
+                + COL_RATING_SUM + " = " + COL_RATING_SUM + " " + sign + " " + row + "." + COL_RATING);
+        for (int stars = 1; stars <= 5; stars++) {
+            String column = COL_STARS_PREFIX + stars;
+            sql.append(", ").append(column).append(" = ").append(column).append(" ").append(sign)
+                    .append(" (").append(starBucket(row)).append(" = ").append(stars).append(")");
+        }
+        return sql.append(" WHERE ").append(COL_SPOT_ID).append(" = IFNULL(").append(row).append(".").append(COL_SPOT_ID)
+                .append(", ").append(GENERAL_RATING_SPOT_ID).append(") AND ").append(row).append(".").append(COL_RATING)
+                .append(" IS NOT NULL;").toString();
     }
 
     @Override
@@ -137,9 +999,248 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.execSQL("ALTER TABLE " + TABLE_USERS + " ADD COLUMN " + COL_PROFILE_IMAGE + " TEXT");
             Log.d(TAG, "Column " + COL_PROFILE_IMAGE + " added to " + TABLE_USERS + " during upgrade to V4.");
         }
+        if (oldVersion < 5) {
+            // Add indexes for per-user reservation, favorite and feedback queries
+            createIndexes(db);
+            Log.d(TAG, "Indexes added during upgrade to V5.");
+        }
+        if (oldVersion < 6) {
+            // Convert TEXT timestamps to INTEGER epoch milliseconds
+            migrateTimestampsToInteger(db);
+            Log.d(TAG, "Timestamps converted to epoch milliseconds during upgrade to V6.");
+        }
+        if (oldVersion < 7) {
+            // Recreate the reservations index with ReservationID as a tie-breaker
+            db.execSQL("DROP INDEX IF EXISTS " + INDEX_RESERVATIONS_USER_TIME);
+            createIndexes(db);
+            Log.d(TAG, "Reservations index rebuilt during upgrade to V7.");
+        }
+        if (oldVersion < 8) {
+            // Add the Spots table and switch Reservations and Favorites to integer spot IDs
+            migrateSpotNamesToIds(db);
+            Log.d(TAG, "Spots table added and spot references converted during upgrade to V8.");
+        }
+        if (oldVersion < 9) {
+            // Let feedback refer to a spot, and summarize ratings per spot
+            db.execSQL("ALTER TABLE " + TABLE_FEEDBACK + " ADD COLUMN " + COL_SPOT_ID + " INTEGER"
+                    + " REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ")");
+            createRatingSummary(db);
+            Log.d(TAG, "Feedback spot column and rating summary added during upgrade to V9.");
+        }
+        if (oldVersion < 10) {
+            // Index existing feedback for full-text search
+            createFeedbackSearch(db);
+            Log.d(TAG, "Feedback full-text index added during upgrade to V10.");
+        }
+        if (oldVersion < 11) {
+            // Index spot coordinates for bounding-box queries
+            createSpotsLocationIndex(db);
+            Log.d(TAG, "Spots location index added during upgrade to V11.");
+        }
+        if (oldVersion < 12) {
+            // Track per-slot capacity. Earlier reservations were made for "now" and have no stored
+            // duration, so they are not counted against any slot.
+            createSlotCapacity(db);
+            Log.d(TAG, "Slot capacity table added during upgrade to V12.");
+        }
+        if (oldVersion < 13) {
+            // Somewhere to archive old reservations to
+            createReservationHistory(db);
+            Log.d(TAG, "Reservation history table added during upgrade to V13.");
+        }
         // Add more 'if (oldVersion < X)' blocks for future migrations
     }
 
+    /**
+     * Creates Spots and rewrites Reservations.SpotID and Favorites.SpotID from spot names to Spots IDs.
+     * Names that are not among the built-in spots get a Spots row of their own (without coordinates),
+     * so no reservation or favorite loses its spot.
+     */
+    private void migrateSpotNamesToIds(SQLiteDatabase db) {
+        createSpotsTable(db);
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_SPOTS + "(" + COL_SPOT_NAME + ")"
+                + " SELECT " + COL_SPOT_ID + " FROM " + TABLE_RESERVATIONS + " WHERE " + COL_SPOT_ID + " IS NOT NULL"
+                + " UNION SELECT " + COL_SPOT_ID + " FROM " + TABLE_FAVORITES + " WHERE " + COL_SPOT_ID + " IS NOT NULL");
+        String spotIdForName = "(SELECT " + TABLE_SPOTS + "." + COL_SPOT_ID + " FROM " + TABLE_SPOTS
+                + " WHERE " + TABLE_SPOTS + "." + COL_SPOT_NAME + " = %s." + COL_SPOT_ID + ")";
+
+        db.execSQL("CREATE TABLE " + TABLE_RESERVATIONS + "_new("
+                + COL_RES_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_USER_ID + " INTEGER,"
+                + COL_SPOT_ID + " INTEGER,"
+                + COL_TIMESTAMP + " INTEGER,"
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ")" + ")");
+        db.execSQL("INSERT INTO " + TABLE_RESERVATIONS + "_new(" + COL_RES_ID + ", " + COL_USER_ID + ", " + COL_SPOT_ID + ", " + COL_TIMESTAMP + ")"
+                + " SELECT " + COL_RES_ID + ", " + COL_USER_ID + ", " + String.format(spotIdForName, TABLE_RESERVATIONS) + ", " + COL_TIMESTAMP
+                + " FROM " + TABLE_RESERVATIONS);
+        db.execSQL("DROP TABLE " + TABLE_RESERVATIONS);
+        db.execSQL("ALTER TABLE " + TABLE_RESERVATIONS + "_new RENAME TO " + TABLE_RESERVATIONS);
+
+        db.execSQL("CREATE TABLE " + TABLE_FAVORITES + "_new("
+                + COL_FAV_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_USER_ID + " INTEGER,"
+                + COL_SPOT_ID + " INTEGER,"
+                + "UNIQUE(" + COL_USER_ID + ", " + COL_SPOT_ID + "),"
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + COL_SPOT_ID + ") REFERENCES " + TABLE_SPOTS + "(" + COL_SPOT_ID + ") ON DELETE CASCADE" + ")");
+        db.execSQL("INSERT INTO " + TABLE_FAVORITES + "_new(" + COL_FAV_ID + ", " + COL_USER_ID + ", " + COL_SPOT_ID + ")"
+                + " SELECT " + COL_FAV_ID + ", " + COL_USER_ID + ", " + String.format(spotIdForName, TABLE_FAVORITES)
+                + " FROM " + TABLE_FAVORITES);
+        db.execSQL("DROP TABLE " + TABLE_FAVORITES);
+        db.execSQL("ALTER TABLE " + TABLE_FAVORITES + "_new RENAME TO " + TABLE_FAVORITES);
+
+        // Dropping the old tables dropped their indexes too
+        createIndexes(db);
+    }
+
+    /**
+     * Rebuilds Reservations and Feedback with an INTEGER TimeStamp column.
+     * Changing the values in place is not enough, because a TEXT column would store the
+     * converted numbers as text again. Reservations used "yyyy-MM-dd HH:mm:ss" in the device's
+     * time zone; Feedback already held String.valueOf(System.currentTimeMillis()).
+     */
+    private void migrateTimestampsToInteger(SQLiteDatabase db) {
+        String toMillis = "CASE WHEN " + COL_TIMESTAMP + " GLOB '[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]*'"
+                + " THEN CAST(strftime('%s', " + COL_TIMESTAMP + ", 'utc') AS INTEGER) * 1000"
+                + " ELSE CAST(" + COL_TIMESTAMP + " AS INTEGER) END";
+
+        db.execSQL("CREATE TABLE " + TABLE_RESERVATIONS + "_new("
+                + COL_RES_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_USER_ID + " INTEGER,"
+                + COL_SPOT_ID + " TEXT,"
+                + COL_TIMESTAMP + " INTEGER,"
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE" + ")");
+        db.execSQL("INSERT INTO " + TABLE_RESERVATIONS + "_new(" + COL_RES_ID + ", " + COL_USER_ID + ", " + COL_SPOT_ID + ", " + COL_TIMESTAMP + ")"
+                + " SELECT " + COL_RES_ID + ", " + COL_USER_ID + ", " + COL_SPOT_ID + ", " + toMillis + " FROM " + TABLE_RESERVATIONS);
+        db.execSQL("DROP TABLE " + TABLE_RESERVATIONS);
+        db.execSQL("ALTER TABLE " + TABLE_RESERVATIONS + "_new RENAME TO " + TABLE_RESERVATIONS);
+
+        db.execSQL("CREATE TABLE " + TABLE_FEEDBACK + "_new("
+                + COL_FEEDBACK_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_USER_ID + " INTEGER,"
+                + COL_SUBJECT + " TEXT,"
+                + COL_MESSAGE + " TEXT,"
+                + COL_RATING + " REAL,"
+                + COL_TIMESTAMP + " INTEGER,"
+                + "FOREIGN KEY(" + COL_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + ") ON DELETE CASCADE" + ")");
+        db.execSQL("INSERT INTO " + TABLE_FEEDBACK + "_new(" + COL_FEEDBACK_ID + ", " + COL_USER_ID + ", " + COL_SUBJECT + ", "
+                + COL_MESSAGE + ", " + COL_RATING + ", " + COL_TIMESTAMP + ")"
+                + " SELECT " + COL_FEEDBACK_ID + ", " + COL_USER_ID + ", " + COL_SUBJECT + ", " + COL_MESSAGE + ", " + COL_RATING + ", "
+                + toMillis + " FROM " + TABLE_FEEDBACK);
+        db.execSQL("DROP TABLE " + TABLE_FEEDBACK);
+        db.execSQL("ALTER TABLE " + TABLE_FEEDBACK + "_new RENAME TO " + TABLE_FEEDBACK);
+
+        // Dropping the old tables dropped their indexes too
+        createIndexes(db);
+    }
+
+    /**
+     * Returns the cached compiled statement for {@code sql}, compiling it on first use.
+     * The cache is dropped whenever the helper hands out a different database object
+     * (e.g. after close() and reopen), since statements belong to the database they were compiled on.
+     */
+    SQLiteStatement getStatement(String sql) {
+        SQLiteDatabase db = getWritableDatabase();
+        synchronized (statementCache) {
+            if (statementDatabase != db) {
+                closeStatements();
+                statementDatabase = db;
+            }
+            SQLiteStatement statement = statementCache.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statementCache.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private void closeStatements() {
+        for (SQLiteStatement statement : statementCache.values()) {
+            statement.close();
+        }
+        statementCache.clear();
+        statementDatabase = null;
+    }
+
+    /**
+     * Binds a spot to SQL_INSERT_SPOT (or its INSERT OR IGNORE form).
+     */
+    private static void bindSpot(SQLiteStatement statement, ParkingSpotModel spot) {
+        bindText(statement, 1, spot.getSpotName());
+        statement.bindDouble(2, spot.getLatitude());
+        statement.bindDouble(3, spot.getLongitude());
+        statement.bindLong(4, spot.getAvailability());
+        statement.bindDouble(5, spot.getPricePerHour());
+        bindText(statement, 6, spot.getDescription());
+    }
+
+    /**
+     * Where writes publish the tables they changed, for observed queries.
+     */
+    public TableChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    /**
+     * Per-operation call counts and latencies; off until enabled, e.g. from the settings screen.
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs a read query, timed as {@code operation} while metrics are enabled. rawQuery only prepares
+     * the statement and the rows are fetched when the cursor is first read, so when timing, the first
+     * window is filled here (getCount) to include the actual query, which the caller was about to do anyway.
+     */
+    private Cursor query(String operation, String sql, String... args) {
+        long start = metrics.start();
+        if (start == DatabaseMetrics.NOT_TIMED) {
+            return getReadableDatabase().rawQuery(sql, args);
+        }
+        boolean succeeded = false;
+        try {
+            Cursor cursor = getReadableDatabase().rawQuery(sql, args);
+            cursor.getCount();
+            succeeded = true;
+            return cursor;
+        } finally {
+            metrics.record(operation, start, succeeded);
+        }
+    }
+
+    /**
+     * Publishes a committed change to a table, together with the tables its triggers maintain.
+     */
+    private void notifyTableChanged(String table) {
+        if (TABLE_FEEDBACK.equals(table)) {
+            changeNotifier.notifyChanged(TABLE_FEEDBACK, TABLE_RATING_SUMMARY, TABLE_FEEDBACK_FTS);
+        } else {
+            changeNotifier.notifyChanged(table);
+        }
+    }
+
+    /**
+     * Binds a possibly-null string; SQLiteStatement.bindString rejects null.
+     */
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        synchronized (statementCache) {
+            closeStatements();
+        }
+        super.close();
+    }
+
     /**
      * Inserts a new user into the Users table.
      *
@@ -149,6 +1250,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if insertion is successful, false otherwise.
      */
     public boolean insertUser(String name, String email, String password) {
+        long start = metrics.start();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_NAME, name);
@@ -160,7 +1262,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             Log.e(TAG, "Failed to insert user: " + email);
         } else {
             Log.d(TAG, "User inserted: " + email + ", Row ID: " + result);
+            notifyTableChanged(TABLE_USERS);
         }
+        metrics.record("insertUser", start, result != -1);
         return result != -1;
     }
 
@@ -172,23 +1276,22 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if a matching user is found, false otherwise.
      */
     public boolean checkUser(String email, String password) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String[] columns = {COL_USER_ID};
-        String selection = COL_EMAIL + " = ?" + " AND " + COL_PASSWORD + " = ?";
-        String[] selectionArgs = {email, password};
-        Cursor cursor = null;
+        long start = metrics.start();
         boolean userExists = false;
+        boolean succeeded = false;
         try {
-            cursor = db.query(TABLE_USERS, columns, selection, selectionArgs, null, null, null);
-            userExists = cursor != null && cursor.getCount() > 0;
+            SQLiteStatement statement = getStatement(SQL_CHECK_USER);
+            synchronized (statement) {
+                bindText(statement, 1, email);
+                bindText(statement, 2, password);
+                userExists = statement.simpleQueryForLong() > 0;
+            }
+            succeeded = true;
             Log.d(TAG, "Checking user: " + email + ", Exists: " + userExists);
         } catch (Exception e) {
             Log.e(TAG, "Error checking user: " + e.getMessage());
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
         }
+        metrics.record("checkUser", start, succeeded);
         return userExists;
     }
 
@@ -199,12 +1302,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return A Cursor containing user data, or null if no user found or an error occurs.
      */
     public Cursor getUserByEmail(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(
-                    "SELECT * FROM " + TABLE_USERS + " WHERE " + COL_EMAIL + " = ?",
-                    new String[]{email});
+            cursor = query("getUserByEmail", SQL_USER_BY_EMAIL, email);
             if (cursor != null && cursor.getCount() > 0) {
                 Log.d(TAG, "User data retrieved for: " + email);
             } else {
@@ -223,24 +1323,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return The UserID if found, -1 otherwise.
      */
     public int getUserIdByEmail(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+        long start = metrics.start();
         int userId = -1;
+        boolean succeeded = true; // Not finding the email is not a failure
         try {
-            cursor = db.rawQuery("SELECT " + COL_USER_ID + " FROM " + TABLE_USERS + " WHERE " + COL_EMAIL + " = ?", new String[]{email});
-            if (cursor != null && cursor.moveToFirst()) {
-                userId = cursor.getInt(cursor.getColumnIndexOrThrow(COL_USER_ID));
-                Log.d(TAG, "Retrieved UserID " + userId + " for email: " + email);
-            } else {
-                Log.d(TAG, "UserID not found for email: " + email);
+            SQLiteStatement statement = getStatement(SQL_USER_ID_BY_EMAIL);
+            synchronized (statement) {
+                bindText(statement, 1, email);
+                userId = (int) statement.simpleQueryForLong();
             }
+            Log.d(TAG, "Retrieved UserID " + userId + " for email: " + email);
+        } catch (SQLiteDoneException e) {
+            // simpleQueryForLong throws when the query returns no rows
+            Log.d(TAG, "UserID not found for email: " + email);
         } catch (Exception e) {
             Log.e(TAG, "Error getting user ID by email: " + e.getMessage());
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+            succeeded = false;
         }
+        metrics.record("getUserIdByEmail", start, succeeded);
         return userId;
     }
 
@@ -252,15 +1352,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if update is successful, false otherwise.
      */
     public boolean updateUser(String email, String newName) {
+        long start = metrics.start();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_NAME, newName);
         int rowsAffected = db.update(TABLE_USERS, values, COL_EMAIL + " = ?", new String[]{email});
         if (rowsAffected > 0) {
             Log.d(TAG, "User " + email + " name updated to: " + newName);
+            notifyTableChanged(TABLE_USERS);
         } else {
             Log.e(TAG, "Failed to update user " + email + " name.");
         }
+        metrics.record("updateUser", start, rowsAffected > 0);
         return rowsAffected > 0;
     }
 
@@ -272,50 +1375,224 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if update is successful, false otherwise.
      */
     public boolean updateProfileImage(int userId, String imageUriString) {
+        long start = metrics.start();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_PROFILE_IMAGE, imageUriString);
         int rowsAffected = db.update(TABLE_USERS, values, COL_USER_ID + " = ?", new String[]{String.valueOf(userId)});
         if (rowsAffected > 0) {
             Log.d(TAG, "User " + userId + " profile image updated to: " + imageUriString);
+            notifyTableChanged(TABLE_USERS);
         } else {
             Log.e(TAG, "Failed to update user " + userId + " profile image.");
         }
+        metrics.record("updateProfileImage", start, rowsAffected > 0);
         return rowsAffected > 0;
     }
 
 
     /**
      * Inserts a new parking reservation into the Reservations table.
+     * Does not check or take slot capacity; bookings made by users go through reserveSpot.
      *
      * @param userId    The ID of the user making the reservation.
-     * @param spotId    The ID/name of the parking spot.
-     * @param timestamp The timestamp of the reservation.
+     * @param spotId    The ID of the parking spot.
+     * @param timestamp The time of the reservation, in epoch milliseconds.
      * @return true if insertion is successful, false otherwise.
      */
-    public boolean insertReservation(int userId, String spotId, String timestamp) {
-        SQLiteDatabase db = null;
+    public boolean insertReservation(int userId, int spotId, long timestamp) {
+        long start = metrics.start();
         try {
-            db = getWritableDatabase();
-            ContentValues values = new ContentValues();
-            values.put(COL_USER_ID, userId);
-            values.put(COL_SPOT_ID, spotId);
-            values.put(COL_TIMESTAMP, timestamp);
-
-            long result = db.insert(TABLE_RESERVATIONS, null, values);
+            SQLiteStatement statement = getStatement(SQL_INSERT_RESERVATION);
+            long result;
+            synchronized (statement) {
+                statement.bindLong(1, userId);
+                statement.bindLong(2, spotId);
+                statement.bindLong(3, timestamp);
+                result = statement.executeInsert();
+            }
             if (result == -1) {
                 Log.e(TAG, "Failed to insert reservation for user " + userId + " spot " + spotId);
             } else {
                 Log.d(TAG, "Reservation inserted: UserID=" + userId + ", SpotID=" + spotId + ", Timestamp=" + timestamp);
+                notifyTableChanged(TABLE_RESERVATIONS);
             }
+            metrics.record("insertReservation", start, result != -1);
             return result != -1;
         } catch (Exception e) {
             Log.e(TAG, "Error inserting reservation: " + e.getMessage());
             e.printStackTrace();
+            metrics.record("insertReservation", start, false);
+            return false;
+        }
+    }
+
+    /**
+     * Books a spot for a number of hours: takes one unit of capacity from every hourly slot the stay
+     * overlaps and inserts the reservation, all in one transaction. If any slot is already full the
+     * transaction is rolled back, so either the whole stay is booked or nothing changes, and no slot
+     * is ever booked beyond the spot's Availability however many threads reserve at once.
+     *
+     * @param userId        The ID of the user making the reservation.
+     * @param spotId        The ID of the parking spot.
+     * @param startMillis   Start of the stay, in epoch milliseconds; stored as the reservation's timestamp.
+     * @param durationHours Length of the stay, at least 1.
+     * @return RESERVED if booked, FULL if some slot had no capacity left (or the spot does not exist), FAILED on error.
+     * @throws IllegalArgumentException If durationHours is less than 1.
+     */
+    public ReservationResult reserveSpot(int userId, int spotId, long startMillis, int durationHours) {
+        checkDuration(durationHours);
+        long start = metrics.start();
+        ReservationResult result = reserveSpotOnce(userId, spotId, startMillis, durationHours);
+        metrics.record("reserveSpot", start, result != ReservationResult.FAILED); // A full spot is an answer, not a failure
+        return result;
+    }
+
+    // The work of reserveSpot, which times it
+    private ReservationResult reserveSpotOnce(int userId, int spotId, long startMillis, int durationHours) {
+        long endMillis = startMillis + durationHours * SLOT_LENGTH_MILLIS;
+        SQLiteDatabase db = getWritableDatabase();
+        // Compiled per call instead of taken from the statement cache: cached statements are locked
+        // before a transaction begins (see insertBatch), so locking one inside this transaction could deadlock.
+        try (SQLiteStatement ensureSlot = db.compileStatement(SQL_ENSURE_SLOT);
+             SQLiteStatement takeSlot = db.compileStatement(SQL_TAKE_SLOT);
+             SQLiteStatement insert = db.compileStatement(SQL_INSERT_RESERVATION)) {
+            db.beginTransactionNonExclusive();
+            try {
+                for (long slot = slotStart(startMillis); slot < endMillis; slot += SLOT_LENGTH_MILLIS) {
+                    ensureSlot.bindLong(1, slot);
+                    ensureSlot.bindLong(2, spotId);
+                    ensureSlot.executeInsert();
+                    takeSlot.bindLong(1, spotId);
+                    takeSlot.bindLong(2, slot);
+                    if (takeSlot.executeUpdateDelete() == 0) {
+                        // Ending without setTransactionSuccessful gives back the slots already taken
+                        Log.d(TAG, "Spot " + spotId + " is full for the slot starting " + slot);
+                        return ReservationResult.FULL;
+                    }
+                }
+                insert.bindLong(1, userId);
+                insert.bindLong(2, spotId);
+                insert.bindLong(3, startMillis);
+                if (insert.executeInsert() == -1) {
+                    Log.e(TAG, "Failed to insert reservation for user " + userId + " spot " + spotId);
+                    return ReservationResult.FAILED;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.d(TAG, "Spot reserved: UserID=" + userId + ", SpotID=" + spotId + ", Start=" + startMillis
+                    + ", Hours=" + durationHours);
+            changeNotifier.notifyChanged(TABLE_RESERVATIONS, TABLE_SLOT_CAPACITY);
+            return ReservationResult.RESERVED;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reserving spot: " + e.getMessage());
+            return ReservationResult.FAILED;
+        }
+    }
+
+    /**
+     * Undoes a reserveSpot, e.g. when the payment for it fails: deletes the reservation and gives its
+     * capacity back to every hourly slot of the stay, in one transaction.
+     *
+     * @param userId        The ID of the user the reservation was made for.
+     * @param spotId        The ID of the parking spot.
+     * @param startMillis   Start of the stay, as passed to reserveSpot.
+     * @param durationHours Length of the stay, as passed to reserveSpot.
+     * @return true if a reservation was released, false if there was none or on error.
+     * @throws IllegalArgumentException If durationHours is less than 1.
+     */
+    public boolean releaseSpot(int userId, int spotId, long startMillis, int durationHours) {
+        checkDuration(durationHours);
+        long start = metrics.start();
+        long endMillis = startMillis + durationHours * SLOT_LENGTH_MILLIS;
+        SQLiteDatabase db = getWritableDatabase();
+        // Compiled per call for the same reason as in reserveSpot
+        try (SQLiteStatement delete = db.compileStatement(SQL_DELETE_RESERVATION);
+             SQLiteStatement returnSlot = db.compileStatement(SQL_RETURN_SLOT)) {
+            db.beginTransactionNonExclusive();
+            try {
+                delete.bindLong(1, userId);
+                delete.bindLong(2, spotId);
+                delete.bindLong(3, startMillis);
+                if (delete.executeUpdateDelete() == 0) {
+                    Log.w(TAG, "No reservation to release: UserID=" + userId + ", SpotID=" + spotId + ", Start=" + startMillis);
+                    metrics.record("releaseSpot", start, false);
+                    return false;
+                }
+                for (long slot = slotStart(startMillis); slot < endMillis; slot += SLOT_LENGTH_MILLIS) {
+                    returnSlot.bindLong(1, spotId);
+                    returnSlot.bindLong(2, slot);
+                    returnSlot.executeUpdateDelete();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.d(TAG, "Spot released: UserID=" + userId + ", SpotID=" + spotId + ", Start=" + startMillis
+                    + ", Hours=" + durationHours);
+            changeNotifier.notifyChanged(TABLE_RESERVATIONS, TABLE_SLOT_CAPACITY);
+            metrics.record("releaseSpot", start, true);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing spot: " + e.getMessage());
+            metrics.record("releaseSpot", start, false);
             return false;
         }
     }
 
+    /**
+     * How many more reservations a spot can take over a whole stay, i.e. the least remaining
+     * capacity among the hourly slots the stay overlaps. A quick check before asking for payment;
+     * reserveSpot still has the final say.
+     *
+     * @param spotId        The ID of the parking spot.
+     * @param startMillis   Start of the stay, in epoch milliseconds.
+     * @param durationHours Length of the stay, at least 1.
+     * @return The remaining capacity (0 if full or the spot does not exist), or -1 on error.
+     * @throws IllegalArgumentException If durationHours is less than 1; the stay would overlap no slot,
+     *                                  which the query would report as 0, i.e. full.
+     */
+    public int getRemainingCapacity(int spotId, long startMillis, int durationHours) {
+        checkDuration(durationHours);
+        long start = metrics.start();
+        try {
+            SQLiteStatement statement = getStatement(SQL_REMAINING_CAPACITY);
+            long remaining;
+            synchronized (statement) {
+                statement.bindLong(1, slotStart(startMillis));
+                statement.bindLong(2, startMillis + durationHours * SLOT_LENGTH_MILLIS);
+                statement.bindLong(3, spotId);
+                remaining = statement.simpleQueryForLong();
+            }
+            Log.d(TAG, "Spot " + spotId + " has " + remaining + " left from " + startMillis + " for " + durationHours + " hours");
+            metrics.record("getRemainingCapacity", start, true);
+            return (int) remaining;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting remaining capacity: " + e.getMessage());
+            metrics.record("getRemainingCapacity", start, false);
+            return -1;
+        }
+    }
+
+    /**
+     * Rejects a stay shorter than one slot, which is a caller's bug rather than a database error.
+     */
+    static void checkDuration(int durationHours) {
+        if (durationHours < 1) {
+            throw new IllegalArgumentException("Duration must be at least 1 hour, got " + durationHours);
+        }
+    }
+
+    /**
+     * Start of the hourly slot containing a point in time.
+     */
+    static long slotStart(long millis) {
+        // Math.floorMod needs API 24; this also rounds times before 1970 down rather than toward zero
+        return millis - ((millis % SLOT_LENGTH_MILLIS) + SLOT_LENGTH_MILLIS) % SLOT_LENGTH_MILLIS;
+    }
+
     /**
      * Retrieves all reservations from the Reservations table.
      *
@@ -323,7 +1600,32 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public Cursor getAllReservations() {
         Log.d(TAG, "Retrieving all reservations.");
-        return getReadableDatabase().rawQuery("SELECT * FROM " + TABLE_RESERVATIONS, null);
+        return query("getAllReservations", "SELECT " + RESERVATION_COLUMNS + " FROM " + TABLE_RESERVATIONS);
+    }
+
+    /**
+     * Retrieves reservations in ReservationID order, one chunk at a time, e.g. to export the whole table.
+     *
+     * @param afterId The last ReservationID of the previous chunk, or 0 for the first chunk.
+     * @param limit   Maximum number of rows to return.
+     * @return A Cursor of at most {@code limit} Reservations rows (without the spot name).
+     */
+    public Cursor getReservationsAfter(long afterId, int limit) {
+        return query("getReservationsAfter", SQL_RESERVATIONS_AFTER, String.valueOf(afterId), String.valueOf(limit));
+    }
+
+    /**
+     * Retrieves archived reservations in (UserID, ReservationID) order, one chunk at a time.
+     *
+     * @param afterUserId The UserID of the last row of the previous chunk, or 0 for the first chunk.
+     * @param afterId     The ReservationID of the last row of the previous chunk, or 0 for the first chunk.
+     * @param limit       Maximum number of rows to return.
+     * @return A Cursor of at most {@code limit} ReservationHistory rows.
+     */
+    public Cursor getArchivedReservationsAfter(int afterUserId, long afterId, int limit) {
+        String user = String.valueOf(afterUserId);
+        return query("getArchivedReservationsAfter", SQL_ARCHIVED_RESERVATIONS_AFTER, user, user,
+                String.valueOf(afterId), String.valueOf(limit));
     }
 
     /**
@@ -334,29 +1636,139 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public Cursor getReservationsByUser(int userId) {
         Log.d(TAG, "Retrieving reservations for UserID: " + userId);
-        return getReadableDatabase().rawQuery(
-                "SELECT * FROM " + TABLE_RESERVATIONS + " WHERE " + COL_USER_ID + "=? ORDER BY " + COL_TIMESTAMP + " DESC",
-                new String[]{String.valueOf(userId)});
+        return query("getReservationsByUser", SQL_RESERVATIONS_BY_USER, String.valueOf(userId));
+    }
+
+    /**
+     * Retrieves one page of a user's reservations, newest first.
+     * Pages are keyed on the last row already shown rather than an OFFSET, so every page costs the
+     * same no matter how deep the user scrolls, and rows inserted meanwhile do not shift the pages.
+     *
+     * @param userId   The ID of the user.
+     * @param after    The last reservation of the previous page, or null for the first page.
+     * @param pageSize Maximum number of rows to return.
+     * @return A Cursor containing at most pageSize reservations.
+     */
+    public Cursor getReservationsPage(int userId, ReservationModel after, int pageSize) {
+        Log.d(TAG, "Retrieving reservations page for UserID: " + userId
+                + (after == null ? " (first page)" : " after ReservationID " + after.getId()));
+        if (after == null) {
+            return query("getReservationsPage", SQL_RESERVATIONS_FIRST_PAGE, String.valueOf(userId), String.valueOf(pageSize));
+        }
+        String afterTimestamp = String.valueOf(after.getTimestamp());
+        return query("getReservationsPage", SQL_RESERVATIONS_PAGE_AFTER, String.valueOf(userId),
+                afterTimestamp, afterTimestamp, String.valueOf(after.getId()), String.valueOf(pageSize));
+    }
+
+    /**
+     * Retrieves the reservations a user made within a time range.
+     *
+     * @param userId     The ID of the user.
+     * @param fromMillis Start of the range in epoch milliseconds (inclusive).
+     * @param toMillis   End of the range in epoch milliseconds (exclusive).
+     * @return A Cursor containing the matching reservations, ordered by timestamp descending.
+     */
+    public Cursor getReservationsByUserBetween(int userId, long fromMillis, long toMillis) {
+        Log.d(TAG, "Retrieving reservations for UserID: " + userId + " between " + fromMillis + " and " + toMillis);
+        return query("getReservationsByUserBetween", SQL_RESERVATIONS_BY_USER_BETWEEN,
+                String.valueOf(userId), String.valueOf(fromMillis), String.valueOf(toMillis));
+    }
+
+    /**
+     * Inserts a new parking spot into the Spots table.
+     *
+     * @param spot The spot to add; its ID is ignored.
+     * @return The new SpotID, or -1 if the insert failed (e.g. the name is already taken).
+     */
+    public long insertSpot(ParkingSpotModel spot) {
+        long start = metrics.start();
+        long result;
+        try {
+            SQLiteStatement statement = getStatement(SQL_INSERT_SPOT);
+            synchronized (statement) {
+                bindSpot(statement, spot);
+                result = statement.executeInsert();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error inserting spot: " + e.getMessage());
+            result = -1;
+        }
+        if (result == -1) {
+            Log.e(TAG, "Failed to insert spot: " + spot.getSpotName());
+        } else {
+            Log.d(TAG, "Spot inserted: " + spot.getSpotName() + ", SpotID: " + result);
+            notifyTableChanged(TABLE_SPOTS);
+        }
+        metrics.record("insertSpot", start, result != -1);
+        return result;
+    }
+
+    /**
+     * Retrieves all parking spots that have a location, in SpotID order.
+     *
+     * @return A Cursor containing the Spots rows.
+     */
+    public Cursor getAllSpots() {
+        Log.d(TAG, "Retrieving all spots.");
+        return query("getAllSpots", SQL_ALL_SPOTS);
+    }
+
+    /**
+     * Retrieves a single parking spot.
+     *
+     * @param spotId The ID of the spot.
+     * @return A Cursor with at most one Spots row.
+     */
+    public Cursor getSpotById(int spotId) {
+        Log.d(TAG, "Retrieving spot " + spotId);
+        return query("getSpotById", SQL_SPOT_BY_ID, String.valueOf(spotId));
+    }
+
+    /**
+     * Retrieves the spots inside a bounding box, e.g. the visible map region.
+     * The box must not cross the antimeridian (west <= east), which holds anywhere in Sri Lanka.
+     *
+     * @param south Minimum latitude.
+     * @param west  Minimum longitude.
+     * @param north Maximum latitude.
+     * @param east  Maximum longitude.
+     * @return A Cursor containing the spots inside the box, edges included.
+     */
+    public Cursor getSpotsInBounds(double south, double west, double north, double east) {
+        Log.d(TAG, "Retrieving spots in [" + south + ", " + west + "] - [" + north + ", " + east + "]");
+        return query("getSpotsInBounds", SQL_SPOTS_IN_BOUNDS,
+                String.valueOf(south), String.valueOf(north), String.valueOf(west), String.valueOf(east));
     }
 
     /**
      * Inserts a parking spot into the Favorites table for a specific user.
      *
      * @param userId The ID of the user.
-     * @param spotId The ID/name of the parking spot to favorite.
+     * @param spotId The ID of the parking spot to favorite.
      * @return true if insertion is successful, false otherwise.
      */
-    public boolean insertFavoriteSpot(int userId, String spotId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COL_USER_ID, userId);
-        values.put(COL_SPOT_ID, spotId);
-        long result = db.insert(TABLE_FAVORITES, null, values);
+    public boolean insertFavoriteSpot(int userId, int spotId) {
+        long start = metrics.start();
+        long result;
+        try {
+            SQLiteStatement statement = getStatement(SQL_INSERT_FAVORITE);
+            synchronized (statement) {
+                statement.bindLong(1, userId);
+                statement.bindLong(2, spotId);
+                result = statement.executeInsert();
+            }
+        } catch (Exception e) {
+            // Same contract as SQLiteDatabase.insert: a constraint violation (already a favorite) gives -1
+            Log.e(TAG, "Error inserting favorite spot: " + e.getMessage());
+            result = -1;
+        }
         if (result == -1) {
             Log.e(TAG, "Failed to insert favorite spot: UserID=" + userId + ", SpotID=" + spotId);
         } else {
             Log.d(TAG, "Favorite spot inserted: UserID=" + userId + ", SpotID=" + spotId);
+            notifyTableChanged(TABLE_FAVORITES);
         }
+        metrics.record("insertFavoriteSpot", start, result != -1);
         return result != -1;
     }
 
@@ -364,59 +1776,140 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Deletes a parking spot from the Favorites table for a specific user.
      *
      * @param userId The ID of the user.
-     * @param spotId The ID/name of the parking spot to unfavorite.
+     * @param spotId The ID of the parking spot to unfavorite.
      * @return true if deletion is successful, false otherwise.
      */
-    public boolean deleteFavoriteSpot(int userId, String spotId) {
+    public boolean deleteFavoriteSpot(int userId, int spotId) {
+        long start = metrics.start();
         SQLiteDatabase db = this.getWritableDatabase();
         int rowsAffected = db.delete(TABLE_FAVORITES, COL_USER_ID + " = ? AND " + COL_SPOT_ID + " = ?",
-                new String[]{String.valueOf(userId), spotId});
+                new String[]{String.valueOf(userId), String.valueOf(spotId)});
         if (rowsAffected > 0) {
             Log.d(TAG, "Favorite spot deleted: UserID=" + userId + ", SpotID=" + spotId);
+            notifyTableChanged(TABLE_FAVORITES);
         } else {
             Log.e(TAG, "Failed to delete favorite spot: UserID=" + userId + ", SpotID=" + spotId);
         }
+        metrics.record("deleteFavoriteSpot", start, rowsAffected > 0);
         return rowsAffected > 0;
     }
 
+    /**
+     * Adds and removes many favorites in one transaction, e.g. the toggles collected by FavoriteWriteQueue.
+     * Adding a favorite that already exists, or removing one that does not, changes nothing and is not
+     * an error. A pair that cannot be written (e.g. its spot no longer exists) is logged and skipped,
+     * like a failed row of insertBatch, and the rest still commits.
+     *
+     * @param added   Pairs that should be favorites.
+     * @param removed Pairs that should not be favorites.
+     * @return true if the transaction committed, false on error (then nothing was written).
+     */
+    public boolean applyFavoriteChanges(Collection<FavoriteModel> added, Collection<FavoriteModel> removed) {
+        long start = metrics.start();
+        int changed = 0;
+        SQLiteDatabase db = getWritableDatabase();
+        // Compiled per call instead of taken from the statement cache, as in reserveSpot: they run inside a transaction
+        try (SQLiteStatement insert = db.compileStatement(SQL_ADD_FAVORITE_IF_MISSING);
+             SQLiteStatement delete = db.compileStatement(SQL_DELETE_FAVORITE)) {
+            db.beginTransactionNonExclusive();
+            try {
+                for (FavoriteModel favorite : added) {
+                    changed += applyFavoriteChange(insert, favorite);
+                }
+                for (FavoriteModel favorite : removed) {
+                    changed += applyFavoriteChange(delete, favorite);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying favorite changes: " + e.getMessage());
+            metrics.record("applyFavoriteChanges", start, false);
+            return false;
+        }
+        Log.d(TAG, "Favorite changes applied: " + added.size() + " added, " + removed.size() + " removed, "
+                + changed + " rows changed.");
+        if (changed > 0) {
+            notifyTableChanged(TABLE_FAVORITES);
+        }
+        metrics.record("applyFavoriteChanges", start, true);
+        return true;
+    }
+
+    /**
+     * Runs SQL_ADD_FAVORITE_IF_MISSING or SQL_DELETE_FAVORITE for one pair.
+     *
+     * @return The number of rows changed; 0 if the pair was skipped.
+     */
+    private static int applyFavoriteChange(SQLiteStatement statement, FavoriteModel favorite) {
+        statement.bindLong(1, favorite.getUserId());
+        statement.bindLong(2, favorite.getSpotId());
+        try {
+            return statement.executeUpdateDelete();
+        } catch (SQLException e) {
+            Log.e(TAG, "Skipped favorite change for " + favorite + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
     /**
      * Retrieves all favorite spots for a specific user.
      *
      * @param userId The ID of the user.
-     * @return A Cursor containing favorite spots for the specified user.
+     * @return A Cursor over the Spots rows the user has favorited.
      */
     public Cursor getFavoriteSpotsByUser(int userId) {
-        SQLiteDatabase db = this.getReadableDatabase();
         Log.d(TAG, "Retrieving favorite spots for UserID: " + userId);
-        return db.rawQuery(
-                "SELECT * FROM " + TABLE_FAVORITES + " WHERE " + COL_USER_ID + "=?",
-                new String[]{String.valueOf(userId)});
+        return query("getFavoriteSpotsByUser", SQL_FAVORITES_BY_USER, String.valueOf(userId));
+    }
+
+    /**
+     * Retrieves just the SpotIDs a user has favorited, e.g. to fill FavoritesCache.
+     *
+     * @param userId The ID of the user.
+     * @return A Cursor with a single SpotID column.
+     */
+    public Cursor getFavoriteSpotIdsByUser(int userId) {
+        Log.d(TAG, "Retrieving favorite spot IDs for UserID: " + userId);
+        return query("getFavoriteSpotIdsByUser", SQL_FAVORITE_SPOT_IDS_BY_USER, String.valueOf(userId));
+    }
+
+    /**
+     * Retrieves favorites in FavoriteID order, one chunk at a time, e.g. to export the whole table.
+     *
+     * @param afterId The last FavoriteID of the previous chunk, or 0 for the first chunk.
+     * @param limit   Maximum number of rows to return.
+     * @return A Cursor of at most {@code limit} rows of FavoriteID, UserID and SpotID.
+     */
+    public Cursor getFavoritesAfter(long afterId, int limit) {
+        return query("getFavoritesAfter", SQL_FAVORITES_AFTER, String.valueOf(afterId), String.valueOf(limit));
     }
 
     /**
      * Checks if a specific parking spot is favorited by a user.
      *
      * @param userId The ID of the user.
-     * @param spotId The ID/name of the parking spot.
+     * @param spotId The ID of the parking spot.
      * @return true if the spot is favorited by the user, false otherwise.
      */
-    public boolean isSpotFavorite(int userId, String spotId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+    public boolean isSpotFavorite(int userId, int spotId) {
+        long start = metrics.start();
         boolean isFavorite = false;
+        boolean succeeded = false;
         try {
-            String selection = COL_USER_ID + " = ? AND " + COL_SPOT_ID + " = ?";
-            String[] selectionArgs = {String.valueOf(userId), spotId};
-            cursor = db.query(TABLE_FAVORITES, null, selection, selectionArgs, null, null, null);
-            isFavorite = cursor != null && cursor.getCount() > 0;
+            SQLiteStatement statement = getStatement(SQL_IS_SPOT_FAVORITE);
+            synchronized (statement) {
+                statement.bindLong(1, userId);
+                statement.bindLong(2, spotId);
+                isFavorite = statement.simpleQueryForLong() > 0;
+            }
+            succeeded = true;
             Log.d(TAG, "Is spot " + spotId + " favorite for user " + userId + "? " + isFavorite);
         } catch (Exception e) {
             Log.e(TAG, "Error checking if spot is favorite: " + e.getMessage());
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
         }
+        metrics.record("isSpotFavorite", start, succeeded);
         return isFavorite;
     }
 
@@ -430,19 +1923,40 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if insertion is successful, false otherwise.
      */
     public boolean insertFeedback(int userId, String subject, String message, float rating) {
+        return insertFeedback(userId, GENERAL_RATING_SPOT_ID, subject, message, rating);
+    }
+
+    /**
+     * Inserts new feedback about a parking spot into the Feedback table.
+     * The spot's RatingSummary row is updated by a trigger in the same statement.
+     *
+     * @param userId  The ID of the user submitting feedback.
+     * @param spotId  The ID of the spot, or GENERAL_RATING_SPOT_ID for feedback about the app.
+     * @param subject The subject of the feedback.
+     * @param message The detailed feedback message.
+     * @param rating  The rating given by the user (e.g., 1.0 to 5.0).
+     * @return true if insertion is successful, false otherwise.
+     */
+    public boolean insertFeedback(int userId, int spotId, String subject, String message, float rating) {
+        long start = metrics.start();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_USER_ID, userId);
+        if (spotId != GENERAL_RATING_SPOT_ID) {
+            values.put(COL_SPOT_ID, spotId);
+        }
         values.put(COL_SUBJECT, subject);
         values.put(COL_MESSAGE, message);
         values.put(COL_RATING, rating); // Store rating as REAL
-        values.put(COL_TIMESTAMP, String.valueOf(System.currentTimeMillis())); // Store current timestamp
+        values.put(COL_TIMESTAMP, System.currentTimeMillis()); // Store current time in epoch milliseconds
         long result = db.insert(TABLE_FEEDBACK, null, values);
         if (result == -1) {
             Log.e(TAG, "Failed to insert feedback for user " + userId);
         } else {
             Log.d(TAG, "Feedback inserted: UserID=" + userId + ", Subject=" + subject + ", Rating=" + rating);
+            notifyTableChanged(TABLE_FEEDBACK);
         }
+        metrics.record("insertFeedback", start, result != -1);
         return result != -1;
     }
 
@@ -453,7 +1967,221 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public Cursor getAllFeedback() {
         Log.d(TAG, "Retrieving all feedback.");
-        return getReadableDatabase().rawQuery("SELECT * FROM " + TABLE_FEEDBACK, null);
+        return query("getAllFeedback", "SELECT " + FEEDBACK_COLUMNS + " FROM " + TABLE_FEEDBACK);
+    }
+
+    /**
+     * Retrieves feedback in FeedbackID order, one chunk at a time, e.g. to export the whole table.
+     *
+     * @param afterId The last FeedbackID of the previous chunk, or 0 for the first chunk.
+     * @param limit   Maximum number of rows to return.
+     * @return A Cursor of at most {@code limit} Feedback rows.
+     */
+    public Cursor getFeedbackAfter(long afterId, int limit) {
+        return query("getFeedbackAfter", SQL_FEEDBACK_AFTER, String.valueOf(afterId), String.valueOf(limit));
+    }
+
+    /**
+     * Retrieves all feedback given at or after a point in time.
+     *
+     * @param sinceMillis Epoch milliseconds (inclusive).
+     * @return A Cursor containing the matching feedback, oldest first.
+     */
+    public Cursor getFeedbackSince(long sinceMillis) {
+        Log.d(TAG, "Retrieving feedback since " + sinceMillis);
+        return query("getFeedbackSince", SQL_FEEDBACK_SINCE, String.valueOf(sinceMillis));
+    }
+
+    /**
+     * Retrieves the rating summary of one spot: a single primary-key lookup.
+     *
+     * @param spotId The ID of the spot, or GENERAL_RATING_SPOT_ID for feedback about the app.
+     * @return A Cursor with at most one RatingSummary row; none if the spot has never been rated.
+     */
+    public Cursor getRatingSummary(int spotId) {
+        Log.d(TAG, "Retrieving rating summary for SpotID: " + spotId);
+        return query("getRatingSummary", SQL_RATING_SUMMARY, String.valueOf(spotId));
+    }
+
+    /**
+     * Retrieves the rating summaries of every rated spot, e.g. to badge all map markers with one query.
+     *
+     * @return A Cursor with one RatingSummary row per rated spot (including GENERAL_RATING_SPOT_ID).
+     */
+    public Cursor getAllRatingSummaries() {
+        Log.d(TAG, "Retrieving all rating summaries.");
+        return query("getAllRatingSummaries", SQL_ALL_RATING_SUMMARIES);
+    }
+
+    /**
+     * Full-text search over feedback subjects and messages, best matches first.
+     * Every word of {@code text} must occur (words are stemmed, so "overcharge" also finds "overcharged");
+     * FTS operators in the text are treated as plain words. Only the SEARCH_CANDIDATE_LIMIT newest
+     * matching entries are ranked, which keeps searches for very common words fast.
+     * Pages are keyed on the last result already shown, like getReservationsPage.
+     *
+     * @param text     The words to search for, as typed.
+     * @param after    The last result of the previous page, or null for the first page.
+     * @param pageSize Maximum number of rows to return.
+     * @return A Cursor of Feedback rows plus COL_MATCH_COUNT and COL_SNIPPET, or null if {@code text} has no words.
+     */
+    public Cursor searchFeedback(String text, FeedbackSearchResult after, int pageSize) {
+        String match = toMatchQuery(text);
+        if (match == null) {
+            Log.d(TAG, "Feedback search skipped: no words in \"" + text + "\"");
+            return null;
+        }
+        Log.d(TAG, "Searching feedback for " + match
+                + (after == null ? " (first page)" : " after FeedbackID " + after.getFeedback().getId()));
+        if (after == null) {
+            return query("searchFeedback", SQL_SEARCH_FEEDBACK_FIRST_PAGE, match, String.valueOf(pageSize));
+        }
+        String afterCount = String.valueOf(after.getMatchCount());
+        return query("searchFeedback", SQL_SEARCH_FEEDBACK_PAGE_AFTER, match,
+                afterCount, afterCount, String.valueOf(after.getFeedback().getId()), String.valueOf(pageSize));
+    }
+
+    /**
+     * Turns typed text into an FTS MATCH expression that requires every word:
+     * each word becomes a quoted phrase, so quotes, '-', '*', AND/OR/NOT and NEAR lose their query meaning.
+     *
+     * @return The expression, or null if the text contains no letters or digits.
+     */
+    static String toMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(word).append('"');
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    /**
+     * Inserts many reservations at once, e.g. when restoring or syncing a user's history.
+     *
+     * @param reservations The reservations to insert; their IDs are ignored.
+     * @return Which rows were inserted and which failed (by position in {@code reservations}).
+     */
+    public BatchInsertResult insertReservations(Collection<ReservationModel> reservations) {
+        return insertBatch("insertReservations", TABLE_RESERVATIONS, SQL_INSERT_RESERVATION, reservations, (statement, reservation) -> {
+            statement.bindLong(1, reservation.getUserId());
+            statement.bindLong(2, reservation.getSpotId());
+            statement.bindLong(3, reservation.getTimestamp());
+        });
+    }
+
+    /**
+     * Inserts many parking spots at once, e.g. when importing a spot catalog.
+     * Spots whose name already exists are reported as failed rows.
+     *
+     * @param spots The spots to insert; their IDs are ignored.
+     * @return Which rows were inserted and which failed (by position in {@code spots}).
+     */
+    public BatchInsertResult insertSpots(Collection<ParkingSpotModel> spots) {
+        return insertBatch("insertSpots", TABLE_SPOTS, SQL_INSERT_SPOT, spots, DatabaseHelper::bindSpot);
+    }
+
+    /**
+     * Inserts many favorite spots at once.
+     * Spots that are already a favorite of the user are reported as failed rows, like insertFavoriteSpot.
+     *
+     * @param favorites The user/spot pairs to insert.
+     * @return Which rows were inserted and which failed (by position in {@code favorites}).
+     */
+    public BatchInsertResult insertFavoriteSpots(Collection<FavoriteModel> favorites) {
+        return insertBatch("insertFavoriteSpots", TABLE_FAVORITES, SQL_INSERT_FAVORITE, favorites, (statement, favorite) -> {
+            statement.bindLong(1, favorite.getUserId());
+            statement.bindLong(2, favorite.getSpotId());
+        });
+    }
+
+    /**
+     * Inserts many feedback entries at once, keeping each entry's own timestamp.
+     *
+     * @param feedback The feedback entries to insert; their IDs are ignored.
+     * @return Which rows were inserted and which failed (by position in {@code feedback}).
+     */
+    public BatchInsertResult insertFeedbackBatch(Collection<FeedbackModel> feedback) {
+        return insertBatch("insertFeedbackBatch", TABLE_FEEDBACK, SQL_INSERT_FEEDBACK, feedback, (statement, entry) -> {
+            statement.bindLong(1, entry.getUserId());
+            bindText(statement, 2, entry.getSubject());
+            bindText(statement, 3, entry.getMessage());
+            statement.bindDouble(4, entry.getRating());
+            statement.bindLong(5, entry.getTimestamp());
+            if (entry.getSpotId() == GENERAL_RATING_SPOT_ID) {
+                statement.bindNull(6);
+            } else {
+                statement.bindLong(6, entry.getSpotId());
+            }
+        });
+    }
+
+    /**
+     * Binds one row of a batch to a compiled INSERT statement.
+     */
+    private interface RowBinder<T> {
+        void bind(SQLiteStatement statement, T row);
+    }
+
+    /**
+     * Runs a compiled INSERT for every row, committing once per BATCH_CHUNK_SIZE rows.
+     * A row that violates a constraint only rolls back its own statement, so it is recorded
+     * as a failure and the rest of the chunk still commits. So is a row the binder rejects
+     * (e.g. a null row): nothing of it has been executed.
+     */
+    private <T> BatchInsertResult insertBatch(String operation, String table, String sql, Collection<T> rows, RowBinder<T> binder) {
+        long start = metrics.start();
+        BatchInsertResult result = new BatchInsertResult();
+        if (rows == null || rows.isEmpty()) {
+            metrics.record(operation, start, true);
+            return result;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement statement = getStatement(sql);
+        Iterator<T> iterator = rows.iterator();
+        int index = 0;
+        while (iterator.hasNext()) {
+            int insertedInChunk = 0;
+            synchronized (statement) {
+                db.beginTransactionNonExclusive();
+                try {
+                    for (int n = 0; n < BATCH_CHUNK_SIZE && iterator.hasNext(); n++, index++) {
+                        T row = iterator.next();
+                        try {
+                            statement.clearBindings();
+                            binder.bind(statement, row);
+                            if (statement.executeInsert() == -1) {
+                                result.addFailure(index, "Insert returned -1");
+                            } else {
+                                insertedInChunk++;
+                            }
+                        } catch (SQLException e) {
+                            result.addFailure(index, e.getMessage());
+                        } catch (RuntimeException e) { // Thrown by the binder for an invalid row
+                            result.addFailure(index, e.toString());
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            // Only counted and published once the chunk has committed
+            result.addInserted(insertedInChunk);
+            if (insertedInChunk > 0) {
+                notifyTableChanged(table);
+            }
+        }
+        Log.d(TAG, "Batch insert into " + table + ": " + result);
+        metrics.record(operation, start, !result.hasFailures());
+        return result;
     }
 }
 
@@ -0,0 +1,209 @@
+package com.s23010409.parknow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DatabaseMetrics
+ * Call count, error count and latency percentiles for each named DatabaseHelper operation.
+ * Off by default: while disabled, {@link #start()} is one volatile read and {@link #record} returns at once.
+ * Latencies go into a fixed log-scale histogram per operation (four buckets per power of two,
+ * so a percentile is off by at most a quarter), updated with atomics and no locks.
+ */
+public final class DatabaseMetrics {
+
+    /** Returned by {@link #start()} while disabled; {@link #record} ignores it. */
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    // Buckets 0-3 hold 0-3 µs exactly; above that, each power of two is split into four buckets.
+    // 160 buckets reach 2^40 µs (about 12 days); anything longer lands in the last one.
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKET_COUNT = 160;
+
+    private volatile boolean enabled;
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Figures recorded so far are kept; see {@link #reset()}.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to {@link #record}, or NOT_TIMED while disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Records one finished operation.
+     *
+     * @param operation  The operation name, e.g. the DatabaseHelper method name.
+     * @param startNanos The value {@link #start()} returned.
+     * @param succeeded  false if the operation failed (threw, or returned its failure value).
+     */
+    public void record(String operation, long startNanos, boolean succeeded) {
+        if (startNanos == NOT_TIMED) {
+            return;
+        }
+        recordMicros(operation, (System.nanoTime() - startNanos) / 1000, succeeded);
+    }
+
+    void recordMicros(String operation, long micros, boolean succeeded) {
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            OperationStats created = new OperationStats();
+            stats = operations.putIfAbsent(operation, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        stats.add(Math.max(0, micros), succeeded);
+    }
+
+    /**
+     * @return The figures of every operation recorded so far, the one with the most total time first.
+     */
+    public List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            OperationSnapshot snapshot = entry.getValue().snapshot(entry.getKey());
+            if (snapshot.count > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        Collections.sort(snapshots, (a, b) -> Long.compare(b.totalMicros, a.totalMicros));
+        return snapshots;
+    }
+
+    /**
+     * @return A plain-text table of {@link #snapshot()}, for a dialog, Logcat, or dumpsys.
+     */
+    public String report() {
+        List<OperationSnapshot> snapshots = snapshot();
+        if (snapshots.isEmpty()) {
+            return enabled ? "No database operations recorded yet." : "Database timing is off.";
+        }
+        StringBuilder report = new StringBuilder(String.format(Locale.US, "%-28s %7s %5s %8s %8s %8s %8s%n",
+                "operation", "count", "err", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (OperationSnapshot s : snapshots) {
+            report.append(String.format(Locale.US, "%-28s %7d %5d %8.2f %8.2f %8.2f %8.2f%n", s.operation, s.count, s.errors,
+                    s.p50Micros / 1000.0, s.p95Micros / 1000.0, s.p99Micros / 1000.0, s.maxMicros / 1000.0));
+        }
+        return report.toString();
+    }
+
+    /**
+     * The histogram bucket of a latency.
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(micros); // >= 2
+        int sub = (int) (micros >> (power - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKET_COUNT - 1, SUB_BUCKETS * (power - 1) + sub);
+    }
+
+    /**
+     * The largest latency that falls into a bucket, reported for percentiles so they never understate.
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int power = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (power - 2)) - 1;
+    }
+
+    private static final class OperationStats {
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong totalMicros = new AtomicLong();
+        final AtomicLong maxMicros = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        void add(long micros, boolean succeeded) {
+            buckets.incrementAndGet(bucketOf(micros)); // The bucket total is the call count
+            if (!succeeded) {
+                errors.incrementAndGet();
+            }
+            totalMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        OperationSnapshot snapshot(String operation) {
+            // Copy the buckets first and take percentiles from the copy, so they agree with each other
+            // even while other threads keep recording
+            long[] copy = new long[BUCKET_COUNT];
+            long inBuckets = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                copy[i] = buckets.get(i);
+                inBuckets += copy[i];
+            }
+            long max = maxMicros.get();
+            return new OperationSnapshot(operation, inBuckets, errors.get(), totalMicros.get(), max,
+                    Math.min(max, percentile(copy, inBuckets, 0.50)), Math.min(max, percentile(copy, inBuckets, 0.95)),
+                    Math.min(max, percentile(copy, inBuckets, 0.99)));
+        }
+
+        private static long percentile(long[] buckets, long total, double fraction) {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * The figures of one operation at one moment. Latencies are in microseconds.
+     */
+    public static final class OperationSnapshot {
+        public final String operation;
+        public final long count;
+        public final long errors;
+        public final long totalMicros;
+        public final long maxMicros;
+        public final long p50Micros;
+        public final long p95Micros;
+        public final long p99Micros;
+
+        OperationSnapshot(String operation, long count, long errors, long totalMicros, long maxMicros,
+                          long p50Micros, long p95Micros, long p99Micros) {
+            this.operation = operation;
+            this.count = count;
+            this.errors = errors;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+            this.p50Micros = p50Micros;
+            this.p95Micros = p95Micros;
+            this.p99Micros = p99Micros;
+        }
+    }
+}
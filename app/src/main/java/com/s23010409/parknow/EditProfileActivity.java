@@ -1,7 +1,6 @@
 package com.s23010409.parknow;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.widget.Button;
@@ -16,7 +15,7 @@ public class EditProfileActivity extends AppCompatActivity {
 
     private EditText editName;
     private Button buttonSave;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
 
     private String currentUserEmail;
 
@@ -25,7 +24,7 @@ public class EditProfileActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_edit_profile);
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         // Setup toolbar with back button and title
         MaterialToolbar toolbar = findViewById(R.id.topAppBar);
@@ -57,40 +56,33 @@ public class EditProfileActivity extends AppCompatActivity {
                 return;
             }
 
-            boolean success = db.updateUser(currentUserEmail, newName);
-            if (success) {
-                Toast.makeText(this, "Profile updated successfully", Toast.LENGTH_SHORT).show();
-
-                // Return updated name to caller
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra("UPDATED_NAME", newName);
-                setResult(RESULT_OK, resultIntent);
-
-                finish();
-            } else {
-                Toast.makeText(this, "Failed to update profile", Toast.LENGTH_SHORT).show();
-            }
+            buttonSave.setEnabled(false);
+            repository.updateUserName(this, currentUserEmail, newName, success -> {
+                buttonSave.setEnabled(true);
+                if (success) {
+                    Toast.makeText(this, "Profile updated successfully", Toast.LENGTH_SHORT).show();
+
+                    // Return updated name to caller
+                    Intent resultIntent = new Intent();
+                    resultIntent.putExtra("UPDATED_NAME", newName);
+                    setResult(RESULT_OK, resultIntent);
+
+                    finish();
+                } else {
+                    Toast.makeText(this, "Failed to update profile", Toast.LENGTH_SHORT).show();
+                }
+            });
         });
     }
 
     private void loadUserData(String email) {
-        Cursor cursor = null;
-        try {
-            cursor = db.getUserByEmail(email);
-            if (cursor != null && cursor.moveToFirst()) {
-                String name = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_NAME));
-                editName.setText(name);
+        repository.getSessionUser(this, email, user -> {
+            if (user != null) {
+                editName.setText(user.getName());
             } else {
                 Toast.makeText(this, "User data not found", Toast.LENGTH_SHORT).show();
             }
-        } catch (Exception e) {
-            Toast.makeText(this, "Error loading user data", Toast.LENGTH_SHORT).show();
-            e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+        });
     }
 
     // No need to override onSupportNavigateUp if using toolbar.setNavigationOnClickListener
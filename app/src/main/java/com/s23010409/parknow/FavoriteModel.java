@@ -0,0 +1,43 @@
+package com.s23010409.parknow;
+
+/**
+ * FavoriteModel
+ * A data model class to represent a parking spot that a user has marked as favorite.
+ * This class holds the ID of the user and the ID of the favorited parking spot.
+ */
+public class FavoriteModel {
+
+    private int userId;
+    private int spotId; // ID of the parking spot in the Spots table
+
+    /**
+     * Constructor for FavoriteModel.
+     *
+     * @param userId The ID of the user who favorited the spot.
+     * @param spotId The ID of the favorited parking spot.
+     */
+    public FavoriteModel(int userId, int spotId) {
+        this.userId = userId;
+        this.spotId = spotId;
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getSpotId() {
+        return spotId;
+    }
+
+    /**
+     * Provides a string representation of the FavoriteModel, useful for debugging.
+     * @return A string containing the user ID and spot.
+     */
+    @Override
+    public String toString() {
+        return "User ID: " + userId +
+                ", Spot: " + spotId;
+    }
+}
@@ -1,7 +1,6 @@
 package com.s23010409.parknow;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.view.MenuItem; // Import MenuItem for drawer
 import android.view.View; // Import View for nav header
@@ -20,12 +19,14 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView; // Import for NavigationView
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class FavoriteSpotsActivity extends AppCompatActivity {
 
     private ListView listView;
     private ArrayList<String> favoriteSpots;
-    private DatabaseHelper db;
+    private ArrayAdapter<String> adapter;
+    private ParkNowRepository repository;
     private String currentUserEmail;
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
@@ -36,7 +37,7 @@ public class FavoriteSpotsActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_favorite_spots); // Ensure this layout uses DrawerLayout
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
         listView = findViewById(R.id.listFavoriteSpots);
         favoriteSpots = new ArrayList<>();
 
@@ -108,28 +109,31 @@ public class FavoriteSpotsActivity extends AppCompatActivity {
     }
 
     private void loadFavoriteSpots() {
-        favoriteSpots.clear();
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user == null) {
+                Toast.makeText(this, "User not found in database.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // Re-delivered whenever favorites change, e.g. after toggling one on the details screen
+            repository.observeFavoriteSpotsByUser(this, user.getId(), this::showFavoriteSpots);
+        });
+    }
 
-        int userId = db.getUserIdByEmail(currentUserEmail);
-        if (userId == -1) {
-            Toast.makeText(this, "User not found in database.", Toast.LENGTH_SHORT).show();
-            return;
+    private void showFavoriteSpots(List<ParkingSpotModel> spots) {
+        favoriteSpots.clear();
+        if (spots.isEmpty()) {
+            Toast.makeText(this, "No favorite spots found.", Toast.LENGTH_SHORT).show();
+        }
+        for (ParkingSpotModel spot : spots) {
+            favoriteSpots.add("⭐ " + spot.getSpotName());
         }
 
-        Cursor cursor = db.getFavoriteSpotsByUser(userId);
-
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                String spot = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID));
-                favoriteSpots.add("⭐ " + spot);
-            } while (cursor.moveToNext());
-            cursor.close();
+        if (adapter == null) {
+            adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, favoriteSpots);
+            listView.setAdapter(adapter);
         } else {
-            Toast.makeText(this, "No favorite spots found.", Toast.LENGTH_SHORT).show();
+            adapter.notifyDataSetChanged(); // Keeps the scroll position on refreshes
         }
-
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, favoriteSpots);
-        listView.setAdapter(adapter);
     }
 
     private void setupBottomNavigation() {
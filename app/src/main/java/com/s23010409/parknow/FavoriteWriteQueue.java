@@ -0,0 +1,183 @@
+package com.s23010409.parknow;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * FavoriteWriteQueue
+ * Write-behind queue for favorite toggles. A toggle only records the wanted state of its (user, spot)
+ * pair and updates FavoritesCache, so the screen and the map show it at once; toggling the same pair
+ * again before the queue is written just replaces the wanted state. FLUSH_DELAY_MILLIS after the first
+ * toggle of a burst, everything pending is written in one DatabaseHelper transaction.
+ * ParkNowRepository also flushes as soon as the app goes to the background.
+ */
+final class FavoriteWriteQueue {
+
+    private static final String TAG = "FavoriteWriteQueue";
+
+    static final long FLUSH_DELAY_MILLIS = 1000;
+    // A batch that fails this many times in a row is dropped, and FavoritesCache reloads the real state
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final DatabaseHelper db;
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final Runnable scheduledFlush = this::onFlushDue;
+    private boolean flushScheduled; // Main thread only
+
+    // Wanted state per pair (see key()), not yet written; guarded by "this"
+    private Map<Long, Boolean> pending = new LinkedHashMap<>();
+    // The batch being written, still overlaid on loads until it has committed; guarded by "this"
+    private Map<Long, Boolean> inFlight;
+
+    // Serializes flushes, so an older batch can never be written after a newer one
+    private final Object flushLock = new Object();
+    private int failedAttempts; // Guarded by flushLock
+
+    FavoriteWriteQueue(DatabaseHelper db, Executor executor, Handler mainHandler) {
+        this.db = db;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+    }
+
+    /**
+     * Records that a spot should (or should not) be one of a user's favorites, to be written shortly.
+     */
+    @MainThread
+    void set(int userId, int spotId, boolean favorite) {
+        synchronized (this) {
+            pending.put(key(userId, spotId), favorite);
+        }
+        if (favorite) {
+            FavoritesCache.onAdded(userId, spotId);
+        } else {
+            FavoritesCache.onRemoved(userId, spotId);
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Writes everything pending now instead of waiting for the flush delay, e.g. when the app is backgrounded.
+     *
+     * @param afterFlush Runs on the database thread once the write has finished, or null.
+     */
+    @MainThread
+    void flushNow(Runnable afterFlush) {
+        mainHandler.removeCallbacks(scheduledFlush);
+        flushScheduled = false;
+        submitFlush(afterFlush);
+    }
+
+    /**
+     * Applies the changes not yet written to a set of favorite SpotIDs just read from the database.
+     */
+    synchronized void applyPendingTo(int userId, Set<Integer> spotIds) {
+        if (inFlight != null) {
+            applyTo(inFlight, userId, spotIds);
+        }
+        applyTo(pending, userId, spotIds);
+    }
+
+    private void onFlushDue() {
+        flushScheduled = false;
+        submitFlush(null);
+    }
+
+    private void submitFlush(Runnable afterFlush) {
+        try {
+            executor.execute(() -> {
+                flush();
+                if (afterFlush != null) {
+                    afterFlush.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Flush rejected: database queue is full. Retrying later.");
+            scheduleFlush();
+        }
+    }
+
+    @MainThread
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(scheduledFlush, FLUSH_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Writes all pending changes in one transaction. On failure they are queued again,
+     * unless the same pair was toggled since.
+     */
+    @WorkerThread
+    void flush() {
+        synchronized (flushLock) {
+            Map<Long, Boolean> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+            }
+            List<FavoriteModel> added = new ArrayList<>();
+            List<FavoriteModel> removed = new ArrayList<>();
+            for (Map.Entry<Long, Boolean> entry : batch.entrySet()) {
+                FavoriteModel favorite = new FavoriteModel((int) (entry.getKey() >> 32), entry.getKey().intValue());
+                (entry.getValue() ? added : removed).add(favorite);
+            }
+            boolean written = db.applyFavoriteChanges(added, removed);
+            synchronized (this) {
+                inFlight = null;
+                if (!written && failedAttempts + 1 < MAX_FLUSH_ATTEMPTS) {
+                    for (Map.Entry<Long, Boolean> entry : batch.entrySet()) {
+                        if (!pending.containsKey(entry.getKey())) {
+                            pending.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            }
+            if (written) {
+                failedAttempts = 0;
+                FavoritesCache.onWritten();
+                Log.d(TAG, "Flushed " + batch.size() + " favorite changes.");
+            } else if (++failedAttempts < MAX_FLUSH_ATTEMPTS) {
+                Log.e(TAG, "Writing " + batch.size() + " favorite changes failed; retrying.");
+                mainHandler.post(this::scheduleFlush);
+            } else {
+                failedAttempts = 0;
+                FavoritesCache.clear(); // The cache shows changes that were never written
+                Log.e(TAG, "Dropped " + batch.size() + " favorite changes after " + MAX_FLUSH_ATTEMPTS + " failed writes.");
+            }
+        }
+    }
+
+    private static void applyTo(Map<Long, Boolean> changes, int userId, Set<Integer> spotIds) {
+        for (Map.Entry<Long, Boolean> entry : changes.entrySet()) {
+            if ((int) (entry.getKey() >> 32) == userId) {
+                if (entry.getValue()) {
+                    spotIds.add(entry.getKey().intValue());
+                } else {
+                    spotIds.remove(entry.getKey().intValue());
+                }
+            }
+        }
+    }
+
+    // UserID in the high 32 bits, SpotID in the low 32 bits
+    private static long key(int userId, int spotId) {
+        return ((long) userId << 32) | (spotId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,114 @@
+package com.s23010409.parknow;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * FavoritesCache
+ * Process-wide, in-memory set of the favorite SpotIDs of the signed-in user.
+ * It is loaded once from the Favorites table by ParkNowRepository and then kept up to date
+ * write-through by every favorite insert or delete, so "is this spot a favorite?" is a
+ * HashSet lookup instead of a query, and the map can highlight all favorites at once.
+ *
+ * Like UserSession, the cached set is never mutated: every change swaps in a new
+ * unmodifiable copy, so readers on any thread always see a consistent snapshot.
+ */
+public final class FavoritesCache {
+
+    /**
+     * The loaded favorites of one user.
+     */
+    private static final class Entry {
+        final int userId;
+        final Set<Integer> spotIds;
+
+        Entry(int userId, Set<Integer> spotIds) {
+            this.userId = userId;
+            this.spotIds = Collections.unmodifiableSet(spotIds);
+        }
+    }
+
+    private static volatile Entry current;
+    // Bumped by every write, so a load that overlapped a write does not cache what it read
+    private static long generation;
+
+    private FavoritesCache() {
+        // Static holder, not instantiable
+    }
+
+    /**
+     * Returns the cached favorite SpotIDs of a user.
+     *
+     * @param userId The ID of the user.
+     * @return An unmodifiable set, or null if that user's favorites are not loaded.
+     */
+    public static Set<Integer> get(int userId) {
+        Entry entry = current;
+        return entry != null && entry.userId == userId ? entry.spotIds : null;
+    }
+
+    /**
+     * Call before reading the Favorites table, and pass the result to {@link #finishLoad}.
+     */
+    static synchronized long beginLoad() {
+        return generation;
+    }
+
+    /**
+     * Caches a set read from the Favorites table, unless a favorite was added or removed
+     * since the matching {@link #beginLoad}; the set may be stale in that case.
+     *
+     * @return true if the set was cached.
+     */
+    static synchronized boolean finishLoad(int userId, long loadGeneration, Set<Integer> spotIds) {
+        if (loadGeneration != generation) {
+            return false;
+        }
+        current = new Entry(userId, new HashSet<>(spotIds));
+        return true;
+    }
+
+    /**
+     * Records a favorite that has just been written to the Favorites table.
+     */
+    public static synchronized void onAdded(int userId, int spotId) {
+        generation++;
+        Entry entry = current;
+        if (entry != null && entry.userId == userId && !entry.spotIds.contains(spotId)) {
+            Set<Integer> spotIds = new HashSet<>(entry.spotIds);
+            spotIds.add(spotId);
+            current = new Entry(userId, spotIds);
+        }
+    }
+
+    /**
+     * Records a favorite that has just been deleted from the Favorites table.
+     */
+    public static synchronized void onRemoved(int userId, int spotId) {
+        generation++;
+        Entry entry = current;
+        if (entry != null && entry.userId == userId && entry.spotIds.contains(spotId)) {
+            Set<Integer> spotIds = new HashSet<>(entry.spotIds);
+            spotIds.remove(spotId);
+            current = new Entry(userId, spotIds);
+        }
+    }
+
+    /**
+     * Call after writing favorite changes that were already recorded here with onAdded or onRemoved
+     * (see FavoriteWriteQueue), so a load that read the table before the write is not cached.
+     */
+    static synchronized void onWritten() {
+        generation++;
+    }
+
+    /**
+     * Forgets the cached favorites, e.g. on logout or after a write whose outcome is unclear.
+     * The next lookup reloads them from the database.
+     */
+    public static synchronized void clear() {
+        generation++;
+        current = null;
+    }
+}
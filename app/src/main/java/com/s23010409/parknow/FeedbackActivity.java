@@ -25,7 +25,7 @@ public class FeedbackActivity extends AppCompatActivity {
     private EditText editSubject, editMessage;
     private RatingBar ratingBar;
     private Button submitButton;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
     private String currentUserEmail;
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
@@ -36,7 +36,7 @@ public class FeedbackActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_feedback); // Ensure this layout uses DrawerLayout
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         // Get current user email from intent
         currentUserEmail = getIntent().getStringExtra("USER_EMAIL");
@@ -131,14 +131,19 @@ public class FeedbackActivity extends AppCompatActivity {
             return;
         }
 
-        int userId = db.getUserIdByEmail(currentUserEmail);
-        if (userId == -1) {
-            Toast.makeText(this, "User not found. Cannot submit feedback.", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        boolean isInserted = db.insertFeedback(userId, subject, message, rating);
+        submitButton.setEnabled(false);
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user == null) {
+                submitButton.setEnabled(true);
+                Toast.makeText(this, "User not found. Cannot submit feedback.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            repository.insertFeedback(this, user.getId(), subject, message, rating, this::onFeedbackSubmitted);
+        });
+    }
 
+    private void onFeedbackSubmitted(boolean isInserted) {
+        submitButton.setEnabled(true);
         if (isInserted) {
             Toast.makeText(this, "Feedback submitted successfully!", Toast.LENGTH_SHORT).show();
             // Clear fields after successful submission
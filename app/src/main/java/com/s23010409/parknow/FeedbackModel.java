@@ -0,0 +1,109 @@
+package com.s23010409.parknow;
+
+/**
+ * FeedbackModel
+ * A data model class to represent a single feedback entry submitted by a user.
+ * This class holds the feedback ID (if applicable), the ID of the user, the spot the feedback
+ * is about (if any), the subject, the message, the star rating and the time the feedback was given.
+ */
+public class FeedbackModel {
+
+    private int id; // Primary key for the feedback in the database
+    private int userId;
+    private int spotId; // DatabaseHelper.GENERAL_RATING_SPOT_ID for feedback about the app
+    private String subject;
+    private String message;
+    private float rating; // 1.0 to 5.0
+    private long timestamp; // Epoch milliseconds when the feedback was given
+
+    /**
+     * Constructor for creating a FeedbackModel read from the database, including the ID.
+     *
+     * @param id        The unique ID of the feedback.
+     * @param userId    The ID of the user who gave the feedback.
+     * @param spotId    The ID of the spot the feedback is about, or DatabaseHelper.GENERAL_RATING_SPOT_ID.
+     * @param subject   The subject of the feedback.
+     * @param message   The detailed feedback message.
+     * @param rating    The rating given by the user.
+     * @param timestamp The time the feedback was given, in epoch milliseconds.
+     */
+    public FeedbackModel(int id, int userId, int spotId, String subject, String message, float rating, long timestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.spotId = spotId;
+        this.subject = subject;
+        this.message = message;
+        this.rating = rating;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Constructor for creating a new FeedbackModel without an ID, e.g. for inserting.
+     *
+     * @param userId    The ID of the user who gave the feedback.
+     * @param subject   The subject of the feedback.
+     * @param message   The detailed feedback message.
+     * @param rating    The rating given by the user.
+     * @param timestamp The time the feedback was given, in epoch milliseconds.
+     */
+    public FeedbackModel(int userId, String subject, String message, float rating, long timestamp) {
+        this(0, userId, DatabaseHelper.GENERAL_RATING_SPOT_ID, subject, message, rating, timestamp);
+    }
+
+    /**
+     * Constructor for creating new feedback about a parking spot, e.g. for inserting.
+     *
+     * @param userId    The ID of the user who gave the feedback.
+     * @param spotId    The ID of the spot the feedback is about.
+     * @param subject   The subject of the feedback.
+     * @param message   The detailed feedback message.
+     * @param rating    The rating given by the user.
+     * @param timestamp The time the feedback was given, in epoch milliseconds.
+     */
+    public FeedbackModel(int userId, int spotId, String subject, String message, float rating, long timestamp) {
+        this(0, userId, spotId, subject, message, rating, timestamp);
+    }
+
+    // --- Getters ---
+
+    public int getId() {
+        return id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getSpotId() {
+        return spotId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public float getRating() {
+        return rating;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Provides a string representation of the FeedbackModel, useful for debugging.
+     * @return A string containing the feedback details.
+     */
+    @Override
+    public String toString() {
+        return "Feedback ID: " + id +
+                ", User ID: " + userId +
+                ", Spot ID: " + spotId +
+                ", Subject: " + subject +
+                ", Rating: " + rating;
+    }
+}
@@ -0,0 +1,51 @@
+package com.s23010409.parknow;
+
+/**
+ * FeedbackSearchResult
+ * One hit of a full-text feedback search: the feedback entry, how many times the search terms
+ * occur in it (the ranking), and a snippet of the message with the terms highlighted.
+ */
+public class FeedbackSearchResult {
+
+    private final FeedbackModel feedback;
+    private final int matchCount;
+    private final String snippet; // Terms wrapped in DatabaseHelper.SNIPPET_MATCH_START / SNIPPET_MATCH_END
+
+    /**
+     * Constructor for a FeedbackSearchResult read from the database.
+     *
+     * @param feedback   The matching feedback entry.
+     * @param matchCount The number of search term occurrences in its subject and message.
+     * @param snippet    An excerpt with the search terms highlighted.
+     */
+    public FeedbackSearchResult(FeedbackModel feedback, int matchCount, String snippet) {
+        this.feedback = feedback;
+        this.matchCount = matchCount;
+        this.snippet = snippet;
+    }
+
+    // --- Getters ---
+
+    public FeedbackModel getFeedback() {
+        return feedback;
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    /**
+     * Provides a string representation of the FeedbackSearchResult, useful for debugging.
+     * @return A string containing the result details.
+     */
+    @Override
+    public String toString() {
+        return "Feedback ID: " + feedback.getId() +
+                ", Matches: " + matchCount +
+                ", Snippet: " + snippet;
+    }
+}
@@ -0,0 +1,573 @@
+package com.s23010409.parknow;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * HistoryTransfer
+ * Exports the Reservations, Favorites or Feedback table to CSV or JSON, and imports such files back.
+ * Both directions move DatabaseHelper.BATCH_CHUNK_SIZE rows at a time: exports read keyset-paged
+ * chunks and stream each row straight into a buffered writer, imports parse rows from a buffered
+ * reader and insert each chunk with the matching batch insert. Memory use therefore stays the same
+ * however large the table or file is.
+ * Files have one column (CSV) or member (JSON) per Dataset column; a JSON file is an array of objects.
+ */
+public final class HistoryTransfer {
+
+    private static final String TAG = "HistoryTransfer";
+
+    private static final int CHUNK_SIZE = DatabaseHelper.BATCH_CHUNK_SIZE;
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    /**
+     * The tables that can be exported and imported, with the columns of their files.
+     * IDs are exported for reference; on import they are ignored and new ones are assigned.
+     */
+    public enum Dataset {
+        // Live reservations followed by archived ones (ReservationHistory)
+        RESERVATIONS(DatabaseHelper.COL_RES_ID, DatabaseHelper.COL_USER_ID, DatabaseHelper.COL_SPOT_ID,
+                DatabaseHelper.COL_TIMESTAMP),
+        FAVORITES(DatabaseHelper.COL_FAV_ID, DatabaseHelper.COL_USER_ID, DatabaseHelper.COL_SPOT_ID),
+        // An empty SpotID is general feedback about the app
+        FEEDBACK(DatabaseHelper.COL_FEEDBACK_ID, DatabaseHelper.COL_USER_ID, DatabaseHelper.COL_SPOT_ID,
+                DatabaseHelper.COL_SUBJECT, DatabaseHelper.COL_MESSAGE, DatabaseHelper.COL_RATING,
+                DatabaseHelper.COL_TIMESTAMP);
+
+        private final String[] columns;
+
+        Dataset(String... columns) {
+            this.columns = columns;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private final Executor writer;
+
+    HistoryTransfer(DatabaseHelper db) {
+        this(db, Runnable::run);
+    }
+
+    /**
+     * @param writer Runs each chunk insert of an import as its own task (see DatabaseHelper.runStep),
+     *               so other writes are not held up for the whole file.
+     */
+    HistoryTransfer(DatabaseHelper db, Executor writer) {
+        this.db = db;
+        this.writer = writer;
+    }
+
+    /**
+     * Writes every row of a dataset, in key order. The export is not one snapshot: rows written
+     * while it runs may or may not be included.
+     *
+     * @param out Where to write; always closed.
+     * @return The number of rows written, or -1 if the export failed part way.
+     */
+    @WorkerThread
+    public long export(Dataset dataset, Format format, OutputStream out) {
+        long start = System.currentTimeMillis();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_CHARS)) {
+            RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new JsonRowWriter(writer);
+            rows.begin(dataset.columns);
+            long count;
+            switch (dataset) {
+                case RESERVATIONS:
+                    count = exportChunks(rows, dataset.columns,
+                            key -> db.getReservationsAfter(key[0], CHUNK_SIZE), DatabaseHelper.COL_RES_ID)
+                            + exportChunks(rows, dataset.columns,
+                            key -> db.getArchivedReservationsAfter((int) key[0], key[1], CHUNK_SIZE),
+                            DatabaseHelper.COL_USER_ID, DatabaseHelper.COL_RES_ID);
+                    break;
+                case FAVORITES:
+                    count = exportChunks(rows, dataset.columns,
+                            key -> db.getFavoritesAfter(key[0], CHUNK_SIZE), DatabaseHelper.COL_FAV_ID);
+                    break;
+                default:
+                    count = exportChunks(rows, dataset.columns,
+                            key -> db.getFeedbackAfter(key[0], CHUNK_SIZE), DatabaseHelper.COL_FEEDBACK_ID);
+                    break;
+            }
+            rows.end();
+            Log.d(TAG, "Exported " + count + " " + dataset + " rows as " + format + " in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+            return count;
+        } catch (IOException | SQLException e) {
+            Log.e(TAG, "Export of " + dataset + " failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Inserts every row of a file, BATCH_CHUNK_SIZE rows per transaction. Rows that cannot be parsed
+     * or inserted are reported by their position in the file (0 is the first row after a CSV header)
+     * and skipped. If the file itself is unreadable, the rows before that point are kept and the
+     * failure is reported at the position where reading stopped.
+     *
+     * @param in The file; always closed.
+     * @return The inserted count and the failed rows.
+     */
+    @WorkerThread
+    public BatchInsertResult importFrom(Dataset dataset, Format format, InputStream in) {
+        long start = System.currentTimeMillis();
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_CHARS);
+        BatchInsertResult result;
+        try {
+            RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new JsonRowReader(reader);
+            switch (dataset) {
+                case RESERVATIONS:
+                    result = importChunks(rows, record -> new ReservationModel(intValue(record, DatabaseHelper.COL_USER_ID),
+                            intValue(record, DatabaseHelper.COL_SPOT_ID), longValue(record, DatabaseHelper.COL_TIMESTAMP)),
+                            onWriter(db::insertReservations));
+                    break;
+                case FAVORITES:
+                    result = importChunks(rows, record -> new FavoriteModel(intValue(record, DatabaseHelper.COL_USER_ID),
+                            intValue(record, DatabaseHelper.COL_SPOT_ID)), onWriter(db::insertFavoriteSpots));
+                    break;
+                default:
+                    result = importChunks(rows, record -> {
+                        String spotId = record.get(DatabaseHelper.COL_SPOT_ID);
+                        return new FeedbackModel(intValue(record, DatabaseHelper.COL_USER_ID),
+                                spotId == null || spotId.isEmpty() ? DatabaseHelper.GENERAL_RATING_SPOT_ID : parseInt(spotId),
+                                record.get(DatabaseHelper.COL_SUBJECT), record.get(DatabaseHelper.COL_MESSAGE),
+                                Float.parseFloat(value(record, DatabaseHelper.COL_RATING)),
+                                longValue(record, DatabaseHelper.COL_TIMESTAMP));
+                    }, onWriter(db::insertFeedbackBatch));
+                    break;
+            }
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing " + dataset + " import: " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "Imported " + dataset + " from " + format + ": " + result + " in "
+                + (System.currentTimeMillis() - start) + " ms.");
+        return result;
+    }
+
+    // --- Export ---
+
+    /**
+     * Reads the chunk of rows after a key: the key columns of the last row of the previous chunk,
+     * all 0 before the first chunk.
+     */
+    private interface ChunkQuery {
+        Cursor after(long[] key);
+    }
+
+    private static long exportChunks(RowWriter rows, String[] columns, ChunkQuery query, String... keyColumns)
+            throws IOException {
+        long[] key = new long[keyColumns.length];
+        long count = 0;
+        int read;
+        do {
+            read = 0;
+            try (Cursor cursor = query.after(key)) {
+                int[] indexes = columnIndexes(cursor, columns);
+                int[] keyIndexes = columnIndexes(cursor, keyColumns);
+                while (cursor.moveToNext()) {
+                    rows.write(cursor, indexes);
+                    read++;
+                    for (int i = 0; i < key.length; i++) {
+                        key[i] = cursor.getLong(keyIndexes[i]);
+                    }
+                }
+            }
+            count += read;
+        } while (read == CHUNK_SIZE);
+        return count;
+    }
+
+    private static int[] columnIndexes(Cursor cursor, String[] columns) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = cursor.getColumnIndexOrThrow(columns[i]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Writes rows in one file format.
+     */
+    private interface RowWriter {
+        void begin(String[] columns) throws IOException;
+
+        /** Writes the cursor's current row; {@code indexes} are the cursor columns, in file column order. */
+        void write(Cursor cursor, int[] indexes) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV with a header line. NULL is written as an empty field.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin(String[] columns) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(columns[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Cursor cursor, int[] indexes) throws IOException {
+            for (int i = 0; i < indexes.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                switch (cursor.getType(indexes[i])) {
+                    case Cursor.FIELD_TYPE_NULL:
+                        break;
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        writer.write(Long.toString(cursor.getLong(indexes[i])));
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        writer.write(Double.toString(cursor.getDouble(indexes[i])));
+                        break;
+                    default:
+                        writeField(cursor.getString(indexes[i]));
+                        break;
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void end() {
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * A JSON array with one object per row; NULL columns are written as null.
+     */
+    private static final class JsonRowWriter implements RowWriter {
+        private final JsonWriter json;
+        private String[] columns;
+
+        JsonRowWriter(Writer writer) {
+            this.json = new JsonWriter(writer);
+        }
+
+        @Override
+        public void begin(String[] columns) throws IOException {
+            this.columns = columns;
+            json.beginArray();
+        }
+
+        @Override
+        public void write(Cursor cursor, int[] indexes) throws IOException {
+            json.beginObject();
+            for (int i = 0; i < indexes.length; i++) {
+                json.name(columns[i]);
+                switch (cursor.getType(indexes[i])) {
+                    case Cursor.FIELD_TYPE_NULL:
+                        json.nullValue();
+                        break;
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        json.value(cursor.getLong(indexes[i]));
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        json.value(cursor.getDouble(indexes[i]));
+                        break;
+                    default:
+                        json.value(cursor.getString(indexes[i]));
+                        break;
+                }
+            }
+            json.endObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            json.endArray();
+            json.flush(); // Closing the underlying writer is left to export
+        }
+    }
+
+    // --- Import ---
+
+    /**
+     * Turns one parsed row into a model; throws IllegalArgumentException (e.g. NumberFormatException)
+     * for a row that is missing a value or has one of the wrong type.
+     */
+    private interface RecordParser<T> {
+        T parse(Map<String, String> record);
+    }
+
+    /**
+     * One of DatabaseHelper's batch inserts.
+     */
+    private interface ChunkInserter<T> {
+        BatchInsertResult insert(List<T> chunk);
+    }
+
+    private <T> ChunkInserter<T> onWriter(ChunkInserter<T> inserter) {
+        return chunk -> DatabaseHelper.runStep(writer, () -> inserter.insert(chunk));
+    }
+
+    private static <T> BatchInsertResult importChunks(RowReader rows, RecordParser<T> parser, ChunkInserter<T> inserter) {
+        BatchInsertResult result = new BatchInsertResult();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        int[] positions = new int[CHUNK_SIZE]; // File position of each row in chunk
+        int position = 0;
+        try {
+            Map<String, String> record;
+            while ((record = rows.next()) != null) {
+                try {
+                    T model = parser.parse(record);
+                    positions[chunk.size()] = position;
+                    chunk.add(model);
+                } catch (IllegalArgumentException e) {
+                    result.addFailure(position, "Invalid row: " + e.getMessage());
+                }
+                position++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    insertChunk(chunk, positions, inserter, result);
+                }
+            }
+            insertChunk(chunk, positions, inserter, result);
+        } catch (IOException | IllegalStateException e) {
+            // Malformed CSV or JSON: keep what was read before it
+            insertChunk(chunk, positions, inserter, result);
+            result.addFailure(position, "Unreadable input: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static <T> void insertChunk(List<T> chunk, int[] positions, ChunkInserter<T> inserter,
+                                        BatchInsertResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BatchInsertResult inserted = inserter.insert(chunk);
+        result.addInserted(inserted.getInsertedCount());
+        for (BatchInsertResult.RowFailure failure : inserted.getFailures()) {
+            result.addFailure(positions[failure.getIndex()], failure.getReason());
+        }
+        chunk.clear();
+    }
+
+    private static String value(Map<String, String> record, String column) {
+        String value = record.get(column);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("No " + column);
+        }
+        return value;
+    }
+
+    private static int intValue(Map<String, String> record, String column) {
+        return parseInt(value(record, column));
+    }
+
+    private static long longValue(Map<String, String> record, String column) {
+        return Long.parseLong(value(record, column).trim());
+    }
+
+    private static int parseInt(String value) {
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Reads rows in one file format.
+     */
+    private interface RowReader {
+        /**
+         * Reads the next row as column name to value (null for NULL). The map is reused by the next call.
+         *
+         * @return The row, or null at the end of the input.
+         */
+        Map<String, String> next() throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV whose first line names the columns. Quoted fields may span lines; blank lines are skipped.
+     */
+    private static final class CsvRowReader implements RowReader {
+        private static final int NONE = -2;
+
+        private final Reader reader;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private final Map<String, String> record = new HashMap<>();
+        private String[] header;
+        private int peeked = NONE;
+
+        CsvRowReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                if (!readFields()) {
+                    return null;
+                }
+                header = fields.toArray(new String[0]);
+                if (header.length > 0 && header[0].startsWith("\uFEFF")) {
+                    header[0] = header[0].substring(1); // Byte order mark, as spreadsheet apps write it
+                }
+            }
+            do {
+                if (!readFields()) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            record.clear();
+            for (int i = 0; i < header.length && i < fields.size(); i++) {
+                record.put(header[i], fields.get(i));
+            }
+            return record;
+        }
+
+        /**
+         * Reads one record into {@code fields}.
+         *
+         * @return false at the end of the input.
+         */
+        private boolean readFields() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return false;
+            }
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false; // Closing quote; c is the character after it
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            peeked = next;
+                        }
+                    }
+                    fields.add(field.toString());
+                    return true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (peeked != NONE) {
+                int c = peeked;
+                peeked = NONE;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+
+    /**
+     * A JSON array of objects. Numbers keep their text; nested values are skipped.
+     */
+    private static final class JsonRowReader implements RowReader {
+        private final JsonReader json;
+        private final Map<String, String> record = new HashMap<>();
+        private boolean started;
+
+        JsonRowReader(Reader reader) {
+            this.json = new JsonReader(reader);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (!started) {
+                json.beginArray();
+                started = true;
+            }
+            if (!json.hasNext()) {
+                return null;
+            }
+            record.clear();
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                JsonToken token = json.peek();
+                if (token == JsonToken.NULL) {
+                    json.nextNull();
+                    record.put(name, null);
+                } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    record.put(name, json.nextString());
+                } else if (token == JsonToken.BOOLEAN) {
+                    record.put(name, String.valueOf(json.nextBoolean()));
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            return record;
+        }
+    }
+}
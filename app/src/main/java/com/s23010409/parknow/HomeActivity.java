@@ -3,6 +3,9 @@ package com.s23010409.parknow;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log; // Import Log for debugging
@@ -22,7 +25,10 @@ import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.location.FusedLocationProviderClient;
@@ -34,16 +40,35 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.navigation.NavigationView;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 public class HomeActivity extends AppCompatActivity implements OnMapReadyCallback {
 
     private static final String TAG = "HomeActivity";
     private GoogleMap mMap;
     private static final int LOCATION_PERMISSION_REQUEST = 100;
+    private static final int NEARBY_SPOT_COUNT = 5; // Spots framed around the user when the map opens
     private LatLng selectedDestination; // Used for navigating to a selected parking spot
     private FloatingActionButton fabNavigate;
     private FusedLocationProviderClient fusedLocationClient;
 
     private String currentUserEmail;
+    private ParkNowRepository repository;
+    private final Map<Integer, Marker> spotMarkers = new HashMap<>(); // Single-spot markers on the map by SpotID
+    private final Map<String, Marker> clusterMarkers = new HashMap<>(); // All markers on the map by Cluster key
+    private final Map<String, BitmapDescriptor> clusterIcons = new HashMap<>(); // By icon label
+    private SpotIndex spotIndex; // Spatial index over the loaded spots, for nearby queries
+    private SpotClusterer clusterer; // Groups the spots into one marker per grid cell for each zoom level
+    private int clusterRequest; // Numbers the cluster requests, so only the latest one is drawn
+    private Set<Integer> favoriteSpotIds = Collections.emptySet();
+    private Map<Integer, RatingSummaryModel> ratingSummaries = Collections.emptyMap(); // By SpotID
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private MaterialToolbar topAppBar;
@@ -54,6 +79,8 @@ public class HomeActivity extends AppCompatActivity implements OnMapReadyCallbac
         setContentView(R.layout.activity_home);
         Log.d(TAG, "onCreate: HomeActivity started.");
 
+        repository = ParkNowRepository.getInstance(this);
+
         // Get current user email from intent
         currentUserEmail = getIntent().getStringExtra("USER_EMAIL");
         if (currentUserEmail == null || currentUserEmail.isEmpty()) {
@@ -165,6 +192,15 @@ public class HomeActivity extends AppCompatActivity implements OnMapReadyCallbac
         Log.d(TAG, "onCreate: setupBottomNavigation completed.");
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // A favorite may have been toggled in ParkingDetailsActivity; served from FavoritesCache
+        if (clusterer != null) {
+            highlightFavoriteSpots();
+        }
+    }
+
     private void navigateToCurrentLocation() {
         Log.d(TAG, "navigateToCurrentLocation() called.");
         // Check for location permission at runtime
@@ -227,38 +263,273 @@ public class HomeActivity extends AppCompatActivity implements OnMapReadyCallbac
         Log.d(TAG, "onMapReady: Camera moved to Sri Lanka center.");
 
 
-        // Add sample parking spots in Sri Lanka
-        addParkingSpot(mMap, new LatLng(6.9271, 79.8612), "Colombo Fort Parking", "Available: 15, Price: 150 LKR/hr");
-        addParkingSpot(mMap, new LatLng(6.8967, 79.8660), "Galle Face Green Parking", "Available: 20, Price: 100 LKR/hr");
-        addParkingSpot(mMap, new LatLng(6.8650, 79.8997), "Nugegoda Urban Parking", "Available: 10, Price: 120 LKR/hr");
-        addParkingSpot(mMap, new LatLng(7.2906, 80.6337), "Kandy City Center Parking", "Available: 8, Price: 180 LKR/hr");
-        addParkingSpot(mMap, new LatLng(6.0535, 80.2210), "Galle Fort Parking", "Available: 12, Price: 130 LKR/hr");
-        addParkingSpot(mMap, new LatLng(7.9000, 79.8900), "Negombo Beach Parking", "Available: 25, Price: 90 LKR/hr");
-        addParkingSpot(mMap, new LatLng(8.5878, 81.2152), "Trincomalee Dock Parking", "Available: 7, Price: 110 LKR/hr");
-        addParkingSpot(mMap, new LatLng(9.6615, 80.0255), "Jaffna City Parking", "Available: 18, Price: 140 LKR/hr");
-        Log.d(TAG, "onMapReady: Added sample parking markers.");
+        // Add the parking spots from the Spots table, indexed by location off the main thread
+        repository.getSpotIndex(this, index -> {
+            spotIndex = index;
+            showParkingSpots(index);
+            showNearbySpots();
+        });
+
+        // Regroup the markers for the new zoom level and visible area whenever the camera stops moving
+        mMap.setOnCameraIdleListener(this::refreshClusters);
+
 
+        mMap.setOnMarkerClickListener(marker -> {
+            if (marker.getTag() instanceof SpotClusterer.Cluster) {
+                zoomIntoCluster((SpotClusterer.Cluster) marker.getTag());
+                return true; // Consume the tap: no info window for a cluster
+            }
+            // Fill in the info window text only for the spot that was tapped, from the SpotCatalog
+            if (marker.getTag() instanceof Integer) {
+                marker.setSnippet(describeSpot((Integer) marker.getTag()));
+            }
+            return false; // Keep the default behaviour: center the marker and show its info window
+        });
 
         // Set up info window click listener
         mMap.setOnInfoWindowClickListener(marker -> {
             Log.d(TAG, "onInfoWindowClick: Marker clicked: " + marker.getTitle());
-            // When a parking spot marker's info window is clicked, open ParkingDetailsActivity
+            if (!(marker.getTag() instanceof Integer)) {
+                return;
+            }
+            // When a parking spot marker's info window is clicked, open ParkingDetailsActivity,
+            // which looks the spot up in the SpotCatalog by its ID
             Intent intent = new Intent(HomeActivity.this, ParkingDetailsActivity.class);
-            intent.putExtra("spot_name", marker.getTitle());
-            intent.putExtra("spot_snippet", marker.getSnippet()); // Pass the snippet (price, availability)
+            intent.putExtra("spot_id", (Integer) marker.getTag()); // Spots.SpotID of the marker
             intent.putExtra("USER_EMAIL", currentUserEmail); // Pass user email
-            intent.putExtra("spot_lat", marker.getPosition().latitude); // Pass latitude
-            intent.putExtra("spot_lng", marker.getPosition().longitude); // Pass longitude
             startActivity(intent);
             Log.d(TAG, "onInfoWindowClick: Launched ParkingDetailsActivity.");
         });
     }
 
-    private void addParkingSpot(GoogleMap map, LatLng latLng, String title, String snippet) {
-        map.addMarker(new MarkerOptions()
-                .position(latLng)
-                .title(title)
-                .snippet(snippet));
+    private void showParkingSpots(SpotIndex index) {
+        clusterer = new SpotClusterer(index);
+        Log.d(TAG, "showParkingSpots: Clustering " + index.size() + " parking spots.");
+        refreshClusters();
+        highlightFavoriteSpots();
+        repository.getAllRatingSummaries(this, this::showRatingBadges);
+    }
+
+    /**
+     * Asks for the clusters at the camera's zoom level and visible area; they are computed off the main thread.
+     * A reply that arrives after a newer request was made is dropped, so a fast pan or zoom only draws
+     * where the camera ended up.
+     */
+    private void refreshClusters() {
+        if (mMap == null || clusterer == null) {
+            return;
+        }
+        int request = ++clusterRequest;
+        int zoom = (int) mMap.getCameraPosition().zoom;
+        LatLngBounds visible = mMap.getProjection().getVisibleRegion().latLngBounds;
+        repository.getSpotClusters(this, clusterer, zoom, visible.southwest.latitude, visible.southwest.longitude,
+                visible.northeast.latitude, visible.northeast.longitude, clusters -> {
+                    if (request == clusterRequest) {
+                        showClusters(clusters);
+                    }
+                });
+    }
+
+    /**
+     * Brings the markers on the map in line with a set of clusters: adds the new ones and removes the
+     * ones that are gone. Markers whose cluster is unchanged, such as a single spot seen at two zoom
+     * levels, stay where they are instead of flickering.
+     */
+    private void showClusters(List<SpotClusterer.Cluster> clusters) {
+        Set<String> keys = new HashSet<>();
+        int added = 0;
+        for (SpotClusterer.Cluster cluster : clusters) {
+            keys.add(cluster.getKey());
+            if (!clusterMarkers.containsKey(cluster.getKey())) {
+                Marker marker = cluster.isSingleSpot() ? addParkingSpot(mMap, cluster.getSpots().get(0))
+                        : addCluster(mMap, cluster);
+                if (marker != null) {
+                    clusterMarkers.put(cluster.getKey(), marker);
+                    added++;
+                }
+            }
+        }
+        int removed = 0;
+        for (Iterator<Map.Entry<String, Marker>> it = clusterMarkers.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Marker> entry = it.next();
+            if (!keys.contains(entry.getKey())) {
+                Marker marker = entry.getValue();
+                if (marker.getTag() instanceof Integer) {
+                    spotMarkers.remove(marker.getTag());
+                }
+                marker.remove();
+                it.remove();
+                removed++;
+            }
+        }
+        Log.d(TAG, "showClusters: " + clusters.size() + " markers shown, " + added + " added, " + removed + " removed.");
+    }
+
+    private Marker addCluster(GoogleMap map, SpotClusterer.Cluster cluster) {
+        Marker marker = map.addMarker(new MarkerOptions()
+                .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()))
+                .title(cluster.size() + " parking spots")
+                .icon(clusterIcon(cluster.size(), cluster.getTotalAvailability()))
+                .anchor(0.5f, 0.5f));
+        if (marker != null) {
+            marker.setTag(cluster);
+        }
+        return marker;
+    }
+
+    /**
+     * Zooms in on a tapped cluster far enough that its spots split into smaller clusters or single markers.
+     */
+    private void zoomIntoCluster(SpotClusterer.Cluster cluster) {
+        Log.d(TAG, "zoomIntoCluster: " + cluster.size() + " spots in " + cluster.getKey());
+        if (cluster.getSouth() == cluster.getNorth() && cluster.getWest() == cluster.getEast()) {
+            // All spots at one point: bounds would be empty, so step in two zoom levels instead
+            mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                    new LatLng(cluster.getLatitude(), cluster.getLongitude()), mMap.getCameraPosition().zoom + 2));
+            return;
+        }
+        LatLngBounds bounds = new LatLngBounds(new LatLng(cluster.getSouth(), cluster.getWest()),
+                new LatLng(cluster.getNorth(), cluster.getEast()));
+        mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, 120)); // 120px padding
+    }
+
+    /**
+     * The icon of a cluster marker: a circle with the number of spots and, below it, the slots available
+     * across them; red when none are. Icons are cached by label, as many clusters share one.
+     */
+    private BitmapDescriptor clusterIcon(int spotCount, int availability) {
+        String label = spotCount + "/" + availability;
+        BitmapDescriptor icon = clusterIcons.get(label);
+        if (icon != null) {
+            return icon;
+        }
+        float density = getResources().getDisplayMetrics().density;
+        int size = (int) (56 * density);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        Paint circle = new Paint(Paint.ANTI_ALIAS_FLAG);
+        circle.setColor(ContextCompat.getColor(this, availability > 0 ? R.color.primaryColor : R.color.errorColor));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, circle);
+        circle.setColor(ContextCompat.getColor(this, R.color.white));
+        circle.setStyle(Paint.Style.STROKE);
+        circle.setStrokeWidth(2 * density);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f - density, circle);
+
+        Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+        text.setColor(ContextCompat.getColor(this, R.color.white));
+        text.setTextAlign(Paint.Align.CENTER);
+        text.setFakeBoldText(true);
+        text.setTextSize(16 * density);
+        canvas.drawText(String.valueOf(spotCount), size / 2f, size / 2f, text);
+        text.setFakeBoldText(false);
+        text.setTextSize(10 * density);
+        canvas.drawText(availability + " free", size / 2f, size / 2f + 13 * density, text);
+
+        icon = BitmapDescriptorFactory.fromBitmap(bitmap);
+        clusterIcons.put(label, icon);
+        return icon;
+    }
+
+    /**
+     * Keeps the average rating of every rated spot for its marker's info window.
+     * One query for all markers, answered from the precomputed RatingSummary rows.
+     */
+    private void showRatingBadges(Map<Integer, RatingSummaryModel> summaries) {
+        ratingSummaries = summaries;
+        Log.d(TAG, "showRatingBadges: " + summaries.size() + " rating summaries loaded.");
+    }
+
+    /**
+     * The info window text of a spot's marker: availability, price and, once loaded, its rating.
+     */
+    private String describeSpot(int spotId) {
+        ParkingSpotModel spot = SpotCatalog.get(spotId);
+        if (spot == null) {
+            return null;
+        }
+        String snippet = String.format(Locale.US, "Available: %d, Price: %.0f LKR/hr",
+                spot.getAvailability(), spot.getPricePerHour());
+        RatingSummaryModel summary = ratingSummaries.get(spotId);
+        if (summary != null) {
+            snippet += String.format(Locale.US, ", Rating: %.1f (%d)", summary.getAverageRating(), summary.getRatingCount());
+        }
+        return snippet;
+    }
+
+    /**
+     * Moves the camera to frame the user's last known location and the nearest parking spots.
+     * Does nothing without location permission; the camera then stays on the whole island.
+     */
+    private void showNearbySpots() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED || spotIndex == null || spotIndex.size() == 0) {
+            Log.d(TAG, "showNearbySpots: No location permission or no spots; keeping the default camera.");
+            return;
+        }
+        try {
+            fusedLocationClient.getLastLocation().addOnSuccessListener(this, location -> {
+                if (location == null || mMap == null) {
+                    Log.w(TAG, "showNearbySpots: Last location is null.");
+                    return;
+                }
+                LatLng userLocation = new LatLng(location.getLatitude(), location.getLongitude());
+                LatLngBounds.Builder bounds = new LatLngBounds.Builder().include(userLocation);
+                List<ParkingSpotModel> nearest = spotIndex.nearest(userLocation.latitude, userLocation.longitude, NEARBY_SPOT_COUNT);
+                for (ParkingSpotModel spot : nearest) {
+                    bounds.include(new LatLng(spot.getLatitude(), spot.getLongitude()));
+                }
+                mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds.build(), 120)); // 120px padding
+                Log.d(TAG, "showNearbySpots: Framed " + nearest.size() + " nearest spots, closest "
+                        + Math.round(SpotIndex.distanceMeters(userLocation.latitude, userLocation.longitude,
+                        nearest.get(0).getLatitude(), nearest.get(0).getLongitude())) + " m away.");
+            });
+        } catch (SecurityException e) {
+            Log.e(TAG, "showNearbySpots: SecurityException getting location: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Colours the markers of the user's favorite spots. The favorite IDs come from
+     * FavoritesCache, so after the first load this is one set lookup per marker, not a query.
+     */
+    private void highlightFavoriteSpots() {
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user == null) {
+                Log.e(TAG, "highlightFavoriteSpots: User not found for email: " + currentUserEmail);
+                return;
+            }
+            repository.getFavoriteSpotIds(this, user.getId(), this::applyFavoriteHighlights);
+        });
+    }
+
+    /**
+     * Keeps the favorite IDs for the markers added as the user zooms in, and recolours the ones on the map.
+     */
+    private void applyFavoriteHighlights(Set<Integer> favoriteSpotIds) {
+        this.favoriteSpotIds = favoriteSpotIds;
+        for (Map.Entry<Integer, Marker> entry : spotMarkers.entrySet()) {
+            entry.getValue().setIcon(spotIcon(entry.getKey()));
+        }
+        Log.d(TAG, "applyFavoriteHighlights: " + favoriteSpotIds.size() + " favorite spots highlighted.");
+    }
+
+    private BitmapDescriptor spotIcon(int spotId) {
+        return favoriteSpotIds.contains(spotId)
+                ? BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_YELLOW)
+                : BitmapDescriptorFactory.defaultMarker();
+    }
+
+    private Marker addParkingSpot(GoogleMap map, ParkingSpotModel spot) {
+        Marker marker = map.addMarker(new MarkerOptions()
+                .position(new LatLng(spot.getLatitude(), spot.getLongitude()))
+                .title(spot.getSpotName()) // The snippet is filled in when the marker is tapped
+                .icon(spotIcon(spot.getId())));
+        if (marker != null) {
+            marker.setTag(spot.getId());
+            spotMarkers.put(spot.getId(), marker);
+        }
+        return marker;
     }
 
     private void setupBottomNavigation() {
@@ -20,7 +20,7 @@ public class LoginActivity extends AppCompatActivity {
     private EditText emailField, passwordField;
     private Button buttonLogin;
     private TextView textSignup;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,7 +28,7 @@ public class LoginActivity extends AppCompatActivity {
         setContentView(R.layout.activity_login);
         Log.d(TAG, "onCreate: LoginActivity started.");
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         emailField = findViewById(R.id.editTextEmail);
         passwordField = findViewById(R.id.editTextPassword);
@@ -65,7 +65,16 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        boolean isValid = db.checkUser(email, password);
+        // Credentials are checked off the main thread; the button is disabled meanwhile
+        buttonLogin.setEnabled(false);
+        // A successful login also starts the UserSession, so later screens do not look the user up again
+        repository.login(this, email, password, user -> {
+            buttonLogin.setEnabled(true);
+            onLoginChecked(email, user != null);
+        });
+    }
+
+    private void onLoginChecked(String email, boolean isValid) {
         Log.d(TAG, "Login attempt for email: " + email + ", isValid: " + isValid);
 
         if (isValid) {
@@ -0,0 +1,61 @@
+package com.s23010409.parknow;
+
+import java.util.Locale;
+
+/**
+ * MaintenanceReport
+ * Outcome of DatabaseHelper.runMaintenance: how many reservations were archived,
+ * and the database size in pages before and after compaction.
+ */
+public class MaintenanceReport {
+
+    private final int archivedReservations;
+    private final long pageSize; // Bytes
+    private final long pagesBefore;
+    private final long freePagesBefore; // Pages on the freelist before compaction, i.e. reclaimable space
+    private final long pagesAfter;
+    private final boolean vacuumed; // false if there were too few free pages to be worth a vacuum
+
+    MaintenanceReport(int archivedReservations, long pageSize, long pagesBefore, long freePagesBefore,
+                      long pagesAfter, boolean vacuumed) {
+        this.archivedReservations = archivedReservations;
+        this.pageSize = pageSize;
+        this.pagesBefore = pagesBefore;
+        this.freePagesBefore = freePagesBefore;
+        this.pagesAfter = pagesAfter;
+        this.vacuumed = vacuumed;
+    }
+
+    /** Reservations moved from Reservations into ReservationHistory. */
+    public int getArchivedReservations() {
+        return archivedReservations;
+    }
+
+    public long getSizeBeforeBytes() {
+        return pagesBefore * pageSize;
+    }
+
+    public long getSizeAfterBytes() {
+        return pagesAfter * pageSize;
+    }
+
+    public long getFreeBytesBefore() {
+        return freePagesBefore * pageSize;
+    }
+
+    /** Bytes the database file shrank by. */
+    public long getReclaimedBytes() {
+        return Math.max(0, pagesBefore - pagesAfter) * pageSize;
+    }
+
+    public boolean isVacuumed() {
+        return vacuumed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "Archived: %d reservations, Size: %.1f KB -> %.1f KB, Reclaimed: %.1f KB%s",
+                archivedReservations, getSizeBeforeBytes() / 1024.0, getSizeAfterBytes() / 1024.0,
+                getReclaimedBytes() / 1024.0, vacuumed ? "" : " (not vacuumed, " + freePagesBefore + " free pages)");
+    }
+}
@@ -1,11 +1,11 @@
 package com.s23010409.parknow;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log; // Import Log for debugging
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
@@ -20,16 +20,32 @@ import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 public class MyReservationsActivity extends AppCompatActivity {
 
     private static final String TAG = "MyReservationsActivity"; // Tag for Logcat
+    private static final int PAGE_SIZE = 20; // Reservations fetched per page
+    private static final int LOAD_AHEAD = 5; // Fetch the next page when this close to the end of the list
+
     private ListView listView;
     private ArrayList<String> reservationsList;
-    private DatabaseHelper db;
+    private ArrayAdapter<String> adapter;
+    private ParkNowRepository repository;
     private String currentUserEmail;
 
+    // Paging state
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+    private int userId = -1;
+    private ReservationModel lastLoaded; // Last row shown, the key for the next page
+    private boolean loadingPage = false;
+    private boolean reachedEnd = false;
+    private int listGeneration = 0; // Bumped when the list is reloaded, so older page results are dropped
+
     // Drawer and Toolbar elements
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
@@ -44,9 +60,23 @@ public class MyReservationsActivity extends AppCompatActivity {
             setContentView(R.layout.activity_my_reservations);
             Log.d(TAG, "onCreate: Layout set successfully.");
 
-            db = new DatabaseHelper(this);
+            repository = ParkNowRepository.getInstance(this);
             listView = findViewById(R.id.listMyReservations);
             reservationsList = new ArrayList<>();
+            adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, reservationsList);
+            listView.setAdapter(adapter);
+            // Load the next page as the user scrolls towards the end of what is loaded
+            listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+                @Override
+                public void onScrollStateChanged(AbsListView view, int scrollState) {}
+
+                @Override
+                public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                    if (totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - LOAD_AHEAD) {
+                        loadNextPage();
+                    }
+                }
+            });
 
             // Get current user email from intent
             currentUserEmail = getIntent().getStringExtra("USER_EMAIL");
@@ -141,45 +171,69 @@ public class MyReservationsActivity extends AppCompatActivity {
 
     private void loadReservations() {
         Log.d(TAG, "loadReservations() called.");
-        reservationsList.clear();
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user == null) {
+                Toast.makeText(this, "User not found in database.", Toast.LENGTH_SHORT).show();
+                Log.e(TAG, "loadReservations: User ID not found for email: " + currentUserEmail);
+                return;
+            }
+            Log.d(TAG, "loadReservations: User ID: " + user.getId());
+            userId = user.getId();
+            // Delivered now and again whenever reservations change, e.g. after paying for one
+            repository.observeReservationsFirstPage(this, userId, PAGE_SIZE, this::showFirstPage);
+        });
+    }
 
-        int userId = db.getUserIdByEmail(currentUserEmail);
-        if (userId == -1) {
-            Toast.makeText(this, "User not found in database.", Toast.LENGTH_SHORT).show();
-            Log.e(TAG, "loadReservations: User ID not found for email: " + currentUserEmail);
+    /**
+     * Requests the page after lastLoaded, unless one is already in flight, the end was reached,
+     * or the first page has not arrived yet.
+     */
+    private void loadNextPage() {
+        if (lastLoaded == null || loadingPage || reachedEnd) {
             return;
         }
-        Log.d(TAG, "loadReservations: User ID: " + userId);
+        loadingPage = true;
+        Log.d(TAG, "loadNextPage: Loading page after ReservationID " + lastLoaded.getId());
+        int generation = listGeneration;
+        repository.getReservationsPage(this, userId, lastLoaded, PAGE_SIZE, reservations -> {
+            if (generation == listGeneration) {
+                showReservations(reservations);
+            }
+        });
+    }
 
-        Cursor cursor = null;
-        try {
-            cursor = db.getReservationsByUser(userId);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                Log.d(TAG, "loadReservations: Found " + cursor.getCount() + " reservations.");
-                do {
-                    String spot = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID));
-                    String time = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_TIMESTAMP));
-                    reservationsList.add("📍 Spot: " + spot + "\n🕒 Time: " + time);
-                    Log.d(TAG, "loadReservations: Added reservation - Spot: " + spot + ", Time: " + time);
-                } while (cursor.moveToNext());
-            } else {
+    /**
+     * Replaces the list with a fresh first page; later pages are loaded again as the user scrolls.
+     */
+    private void showFirstPage(List<ReservationModel> reservations) {
+        listGeneration++;
+        reservationsList.clear();
+        lastLoaded = null;
+        reachedEnd = false;
+        showReservations(reservations);
+        adapter.notifyDataSetChanged(); // Also when the new first page is empty
+    }
+
+    private void showReservations(List<ReservationModel> reservations) {
+        loadingPage = false;
+        if (reservations.size() < PAGE_SIZE) {
+            reachedEnd = true; // A short page is the last one
+        }
+        if (reservations.isEmpty()) {
+            if (lastLoaded == null) {
                 Toast.makeText(this, "No reservations found.", Toast.LENGTH_SHORT).show();
-                Log.d(TAG, "loadReservations: No reservations found for user.");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "loadReservations: Error retrieving reservations: " + e.getMessage(), e);
-            Toast.makeText(this, "Error loading reservations: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-                Log.d(TAG, "loadReservations: Cursor closed.");
+                Log.d(TAG, "showReservations: No reservations found for user.");
             }
+            return;
         }
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, reservationsList);
-        listView.setAdapter(adapter);
-        Log.d(TAG, "loadReservations: Adapter set.");
+        Log.d(TAG, "showReservations: Loaded " + reservations.size() + " more reservations.");
+        for (ReservationModel reservation : reservations) {
+            reservationsList.add("📍 Spot: " + reservation.getSpotName() + "\n🕒 Time: " + timeFormat.format(new Date(reservation.getTimestamp())));
+        }
+        lastLoaded = reservations.get(reservations.size() - 1);
+        adapter.notifyDataSetChanged();
+        Log.d(TAG, "showReservations: Adapter updated, " + reservationsList.size() + " reservations shown.");
     }
 
     private void setupBottomNavigation() {
@@ -0,0 +1,1059 @@
+package com.s23010409.parknow;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParkNowRepository
+ * Single entry point the activities use to talk to the database.
+ * Every DatabaseHelper read is run on a small, bounded pool of background threads and
+ * every write on a writer thread of its own; the typed result is posted back to the main
+ * thread. Each request is bound to the calling activity's lifecycle: when the activity is
+ * destroyed, queued reads are cancelled and any result that arrives afterwards is dropped
+ * instead of touching dead views.
+ *
+ * All public methods must be called from the main thread.
+ */
+public class ParkNowRepository {
+
+    private static final String TAG = "ParkNowRepository";
+
+    // The database runs in WAL mode, so reads proceed in parallel on pooled reader
+    // connections while one write is in progress. Three reader threads plus the writer
+    // thread matches Android's default connection pool size without oversubscribing it.
+    // Only reads are bounded: when the app floods the read queue (e.g. map clusters while
+    // panning) the excess reads fail fast, but a user's write, such as a paid reservation,
+    // never waits behind them and is never rejected. Long jobs (exports, imports, snapshots,
+    // maintenance) run one at a time on a thread of their own and hand the writer one chunk
+    // at a time, so the user's writes run between two chunks instead of after the whole job.
+    private static final int READ_POOL_SIZE = 3;
+    private static final int QUEUE_CAPACITY = 64;
+
+    // Table changes arriving within this window after the first one cause a single re-run of an observed query
+    private static final long OBSERVE_COALESCE_MILLIS = 100;
+
+    // Database maintenance (see runMaintenanceIfDue). The retention period can be changed under
+    // PREF_RESERVATION_RETENTION_DAYS; 256 free pages is 1 MB with the default 4 KB page size.
+    public static final String PREFS_NAME = "ParkNowPrefs";
+    public static final String PREF_RESERVATION_RETENTION_DAYS = "reservationRetentionDays";
+    private static final String PREF_LAST_MAINTENANCE = "lastDatabaseMaintenance";
+    public static final int DEFAULT_RESERVATION_RETENTION_DAYS = 365;
+    private static final int MAINTENANCE_MIN_FREE_PAGES = 256;
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Database snapshots (see createSnapshot), kept in the app's private files directory
+    private static final String SNAPSHOT_DIRECTORY = "snapshots";
+    private static final String SNAPSHOT_PREFIX = "parkNow-";
+    private static final String SNAPSHOT_SUFFIX = ".db";
+    private static final int SNAPSHOTS_KEPT = 3;
+
+    private static ParkNowRepository instance;
+
+    private final DatabaseHelper db;
+    private final ThreadPoolExecutor executor; // Reads
+    private final ThreadPoolExecutor writeExecutor; // Writes, in submission order
+    private final ThreadPoolExecutor bulkExecutor; // Long jobs, one at a time
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final FavoriteWriteQueue favoriteQueue;
+    private final HistoryTransfer historyTransfer;
+    private int startedActivities; // Main thread only; 0 while the app is in the background
+
+    /**
+     * Callback used to hand a result back to the main thread.
+     *
+     * @param <T> The type of the delivered result.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /** Outcome of {@link #registerUser}. */
+    public enum RegistrationResult {
+        SUCCESS,
+        EMAIL_TAKEN,
+        FAILED
+    }
+
+    /**
+     * Returns the process-wide repository, creating it on first use.
+     *
+     * @param context Any context; only the application context is retained.
+     * @return The shared repository instance.
+     */
+    public static synchronized ParkNowRepository getInstance(Context context) {
+        if (instance == null) {
+            Application application = (Application) context.getApplicationContext();
+            instance = new ParkNowRepository(new DatabaseHelper(application));
+            instance.watchAppVisibility(application);
+        }
+        return instance;
+    }
+
+    private ParkNowRepository(DatabaseHelper db) {
+        this.db = db;
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, "ParkNow-DB-" + count.getAndIncrement());
+            }
+        };
+        this.executor = new ThreadPoolExecutor(READ_POOL_SIZE, READ_POOL_SIZE,
+                30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+        // SQLite allows one writer at a time, so a second write thread would only wait for the lock
+        this.writeExecutor = new ThreadPoolExecutor(1, 1,
+                30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.writeExecutor.allowCoreThreadTimeOut(true);
+        this.bulkExecutor = new ThreadPoolExecutor(1, 1,
+                30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.bulkExecutor.allowCoreThreadTimeOut(true);
+        this.favoriteQueue = new FavoriteWriteQueue(db, writeExecutor, mainHandler);
+        this.historyTransfer = new HistoryTransfer(db, writeExecutor);
+    }
+
+    /**
+     * Notices when the app goes to the background (no activity started any more) and then writes
+     * the pending favorite toggles and checkpoints the WAL, so nothing waits in memory or only in
+     * the log while the process may be killed at any moment.
+     */
+    private void watchAppVisibility(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                startedActivities++;
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                // A rotation stops the old activity before the new one starts; that is not going to the background
+                // (The count can only be off, never below zero, if the repository was created after an activity started)
+                if (startedActivities > 0 && --startedActivities == 0 && !activity.isChangingConfigurations()) {
+                    Log.d(TAG, "App in background: flushing pending writes.");
+                    favoriteQueue.flushNow(() -> {
+                        try {
+                            db.checkpoint(false);
+                        } catch (Exception e) {
+                            Log.e(TAG, "checkpoint failed: " + e.getMessage(), e);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    // --- Users ---
+
+    /**
+     * Checks the given credentials and, if they match, loads the user and starts the
+     * {@link UserSession}. Delivers null if the credentials are wrong or the query fails.
+     */
+    @MainThread
+    public void login(LifecycleOwner owner, String email, String password, Callback<UserModel> callback) {
+        execute(owner, "login", () -> {
+            if (!db.checkUser(email, password)) {
+                return null;
+            }
+            UserModel user = loadUser(email);
+            if (user != null) {
+                UserSession.start(user);
+            }
+            return user;
+        }, null, callback);
+    }
+
+    /**
+     * Checks that the email is free and, if so, inserts the new user.
+     * Both steps run in the same background task.
+     */
+    @MainThread
+    public void registerUser(LifecycleOwner owner, String name, String email, String password,
+                             Callback<RegistrationResult> callback) {
+        executeWrite(owner, "registerUser", () -> {
+            if (loadUser(email) != null) {
+                return RegistrationResult.EMAIL_TAKEN;
+            }
+            return db.insertUser(name, email, password) ? RegistrationResult.SUCCESS : RegistrationResult.FAILED;
+        }, RegistrationResult.FAILED, callback);
+    }
+
+    /**
+     * Returns the signed-in user for the given email.
+     * When the {@link UserSession} already holds that user the callback runs immediately,
+     * without touching the database; otherwise (e.g. after the process was recreated)
+     * the user is loaded once in the background and the session is re-populated.
+     * Delivers null if no such user exists.
+     */
+    @MainThread
+    public void getSessionUser(LifecycleOwner owner, String email, Callback<UserModel> callback) {
+        UserModel cached = UserSession.getUser(email);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+        execute(owner, "getSessionUser", () -> {
+            UserModel user = loadUser(email);
+            if (user != null) {
+                UserSession.start(user);
+            }
+            return user;
+        }, null, callback);
+    }
+
+    @MainThread
+    public void updateUserName(LifecycleOwner owner, String email, String newName, Callback<Boolean> callback) {
+        executeWrite(owner, "updateUser", () -> {
+            boolean updated = db.updateUser(email, newName);
+            if (updated) {
+                UserSession.onNameUpdated(email, newName);
+            }
+            return updated;
+        }, false, callback);
+    }
+
+    @MainThread
+    public void updateProfileImage(LifecycleOwner owner, int userId, String imageUriString, Callback<Boolean> callback) {
+        executeWrite(owner, "updateProfileImage", () -> {
+            boolean updated = db.updateProfileImage(userId, imageUriString);
+            if (updated) {
+                UserSession.onProfileImageUpdated(userId, imageUriString);
+            }
+            return updated;
+        }, false, callback);
+    }
+
+    // --- Configuration ---
+
+    /**
+     * Changes PRAGMA synchronous for subsequent writes, e.g. OFF while replaying a large
+     * background sync that can simply be re-run if the device loses power.
+     */
+    public void setSynchronousMode(DatabaseHelper.SynchronousMode mode) {
+        writeExecutor.execute(() -> {
+            try {
+                db.setSynchronousMode(mode);
+            } catch (Exception e) {
+                Log.e(TAG, "setSynchronousMode failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Runs database maintenance in the background if it has not succeeded within the last day:
+     * reservations older than the retention period are archived and free space is reclaimed
+     * (see DatabaseHelper#runMaintenance). The report is only logged. Returns at once; call it on app start.
+     */
+    public void runMaintenanceIfDue(Context context) {
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        if (now - prefs.getLong(PREF_LAST_MAINTENANCE, 0) < MAINTENANCE_INTERVAL_MILLIS) {
+            return;
+        }
+        int retentionDays = prefs.getInt(PREF_RESERVATION_RETENTION_DAYS, DEFAULT_RESERVATION_RETENTION_DAYS);
+        if (retentionDays < 0) {
+            Log.e(TAG, "runMaintenance skipped: invalid retention period of " + retentionDays + " days.");
+            return;
+        }
+        try {
+            bulkExecutor.execute(() -> {
+                MaintenanceReport report = db.runMaintenance(archiveCutoff(now, retentionDays),
+                        MAINTENANCE_MIN_FREE_PAGES, writeExecutor);
+                if (report != null) {
+                    prefs.edit().putLong(PREF_LAST_MAINTENANCE, now).apply();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "runMaintenance rejected: database queue is full.");
+        }
+    }
+
+    /**
+     * Runs database maintenance now, archiving reservations older than {@code retentionDays}.
+     * Delivers null on failure.
+     *
+     * @throws IllegalArgumentException If retentionDays is negative; thrown here, not delivered.
+     */
+    @MainThread
+    public void runMaintenance(LifecycleOwner owner, int retentionDays, Callback<MaintenanceReport> callback) {
+        if (retentionDays < 0) {
+            throw new IllegalArgumentException("Retention period must not be negative, got " + retentionDays + " days");
+        }
+        executeBulk(owner, "runMaintenance", () -> db.runMaintenance(archiveCutoff(System.currentTimeMillis(),
+                retentionDays), MAINTENANCE_MIN_FREE_PAGES, writeExecutor), null, callback);
+    }
+
+    /**
+     * The time before which reservations are archived. Computed in long: in int, days * 86400 overflows
+     * from about 24855 days on and would put the cutoff in the future, archiving everything.
+     */
+    static long archiveCutoff(long now, int retentionDays) {
+        return now - TimeUnit.DAYS.toMillis(retentionDays);
+    }
+
+    /**
+     * Per-operation database timings; see DatabaseMetrics. Safe to use on any thread, it never touches the database.
+     */
+    public DatabaseMetrics getDatabaseMetrics() {
+        return db.getMetrics();
+    }
+
+    // --- Reservations ---
+
+    @MainThread
+    public void insertReservation(LifecycleOwner owner, int userId, int spotId, long timestamp,
+                                  Callback<Boolean> callback) {
+        executeWrite(owner, "insertReservation", () -> db.insertReservation(userId, spotId, timestamp), false, callback);
+    }
+
+    /**
+     * Books a spot if every hour of the stay still has capacity; see DatabaseHelper#reserveSpot.
+     * Delivers FAILED on error.
+     *
+     * @throws IllegalArgumentException If durationHours is less than 1; thrown here, not delivered.
+     */
+    @MainThread
+    public void reserveSpot(LifecycleOwner owner, int userId, int spotId, long startMillis, int durationHours,
+                            Callback<DatabaseHelper.ReservationResult> callback) {
+        DatabaseHelper.checkDuration(durationHours);
+        executeWrite(owner, "reserveSpot", () -> db.reserveSpot(userId, spotId, startMillis, durationHours),
+                DatabaseHelper.ReservationResult.FAILED, callback);
+    }
+
+    /**
+     * Cancels a reservation made by reserveSpot and gives its capacity back; see DatabaseHelper#releaseSpot.
+     * Delivers false if there was nothing to release or on error.
+     *
+     * @throws IllegalArgumentException If durationHours is less than 1; thrown here, not delivered.
+     */
+    @MainThread
+    public void releaseSpot(LifecycleOwner owner, int userId, int spotId, long startMillis, int durationHours,
+                            Callback<Boolean> callback) {
+        DatabaseHelper.checkDuration(durationHours);
+        executeWrite(owner, "releaseSpot", () -> db.releaseSpot(userId, spotId, startMillis, durationHours),
+                false, callback);
+    }
+
+    /**
+     * Loads how many more reservations a spot can take for a stay; see DatabaseHelper#getRemainingCapacity.
+     * Delivers -1 on failure.
+     *
+     * @throws IllegalArgumentException If durationHours is less than 1; thrown here, not delivered.
+     */
+    @MainThread
+    public void getRemainingCapacity(LifecycleOwner owner, int spotId, long startMillis, int durationHours,
+                                     Callback<Integer> callback) {
+        DatabaseHelper.checkDuration(durationHours);
+        execute(owner, "getRemainingCapacity", () -> db.getRemainingCapacity(spotId, startMillis, durationHours), -1, callback);
+    }
+
+    /**
+     * Bulk variant of insertReservation; see DatabaseHelper#insertReservations.
+     * Delivers null if the batch could not run at all.
+     */
+    @MainThread
+    public void insertReservations(LifecycleOwner owner, List<ReservationModel> reservations,
+                                   Callback<BatchInsertResult> callback) {
+        executeWrite(owner, "insertReservations", () -> db.insertReservations(reservations), null, callback);
+    }
+
+    /**
+     * Loads all reservations of a user, newest first. Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getReservationsByUser(LifecycleOwner owner, int userId, Callback<List<ReservationModel>> callback) {
+        execute(owner, "getReservationsByUser", () -> {
+            try (Cursor cursor = db.getReservationsByUser(userId)) {
+                return RowMappers.readAll(cursor, RowMappers.RESERVATION);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Loads the next page of a user's reservations, newest first; see DatabaseHelper#getReservationsPage.
+     * Delivers an empty list on failure.
+     *
+     * @param after The last reservation already shown, or null for the first page.
+     */
+    @MainThread
+    public void getReservationsPage(LifecycleOwner owner, int userId, ReservationModel after, int pageSize,
+                                    Callback<List<ReservationModel>> callback) {
+        execute(owner, "getReservationsPage", () -> {
+            try (Cursor cursor = db.getReservationsPage(userId, after, pageSize)) {
+                return RowMappers.readAll(cursor, RowMappers.RESERVATION);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Observes the first page of a user's reservations, newest first: delivers it now and again
+     * whenever Reservations or Spots change, while the owner is started. Delivers an empty list on failure.
+     */
+    @MainThread
+    public void observeReservationsFirstPage(LifecycleOwner owner, int userId, int pageSize,
+                                             Callback<List<ReservationModel>> callback) {
+        observe(owner, "observeReservationsFirstPage", Arrays.asList(DatabaseHelper.TABLE_RESERVATIONS, DatabaseHelper.TABLE_SPOTS), () -> {
+            try (Cursor cursor = db.getReservationsPage(userId, null, pageSize)) {
+                return RowMappers.readAll(cursor, RowMappers.RESERVATION);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Loads a user's reservations made in [fromMillis, toMillis), newest first.
+     * Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getReservationsByUserBetween(LifecycleOwner owner, int userId, long fromMillis, long toMillis,
+                                             Callback<List<ReservationModel>> callback) {
+        execute(owner, "getReservationsByUserBetween", () -> {
+            try (Cursor cursor = db.getReservationsByUserBetween(userId, fromMillis, toMillis)) {
+                return RowMappers.readAll(cursor, RowMappers.RESERVATION);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    // --- Spots ---
+
+    /**
+     * Loads all parking spots that can be shown on the map. Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getAllSpots(LifecycleOwner owner, Callback<List<ParkingSpotModel>> callback) {
+        execute(owner, "getAllSpots", this::loadAllSpots, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Returns one spot by SpotID. When the {@link SpotCatalog} already holds it (it does once the map
+     * has loaded its spots) the callback runs immediately, without touching the database.
+     * Delivers null if there is no such spot.
+     */
+    @MainThread
+    public void getSpot(LifecycleOwner owner, int spotId, Callback<ParkingSpotModel> callback) {
+        ParkingSpotModel cached = SpotCatalog.get(spotId);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+        execute(owner, "getSpot", () -> {
+            try (Cursor cursor = db.getSpotById(spotId)) {
+                ParkingSpotModel spot = RowMappers.readFirst(cursor, RowMappers.SPOT);
+                if (spot != null) {
+                    SpotCatalog.put(spot);
+                }
+                return spot;
+            }
+        }, null, callback);
+    }
+
+    /**
+     * Loads the spots inside a bounding box (see DatabaseHelper.getSpotsInBounds).
+     * Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getSpotsInBounds(LifecycleOwner owner, double south, double west, double north, double east,
+                                 Callback<List<ParkingSpotModel>> callback) {
+        execute(owner, "getSpotsInBounds", () -> {
+            try (Cursor cursor = db.getSpotsInBounds(south, west, north, east)) {
+                return RowMappers.readAll(cursor, RowMappers.SPOT);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Loads all map spots, like getAllSpots, and builds a SpotIndex over them on the background thread,
+     * so the caller can run nearby and bounding-box queries without touching the database again.
+     * Delivers an empty index on failure.
+     */
+    @MainThread
+    public void getSpotIndex(LifecycleOwner owner, Callback<SpotIndex> callback) {
+        execute(owner, "getSpotIndex", () -> SpotIndex.build(loadAllSpots()),
+                SpotIndex.build(Collections.emptyList()), callback);
+    }
+
+    /**
+     * Groups a SpotClusterer's spots for one zoom level and returns the clusters in the bounding box, on the
+     * background thread. The first request for a zoom level computes its clusters; later ones reuse them.
+     * Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getSpotClusters(LifecycleOwner owner, SpotClusterer clusterer, int zoom, double south, double west,
+                                double north, double east, Callback<List<SpotClusterer.Cluster>> callback) {
+        execute(owner, "getSpotClusters", () -> clusterer.clusters(zoom, south, west, north, east),
+                Collections.emptyList(), callback);
+    }
+
+    // --- Favorites ---
+
+    /**
+     * Loads all spots a user has favorited. Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getFavoriteSpotsByUser(LifecycleOwner owner, int userId, Callback<List<ParkingSpotModel>> callback) {
+        execute(owner, "getFavoriteSpotsByUser", () -> {
+            try (Cursor cursor = db.getFavoriteSpotsByUser(userId)) {
+                return RowMappers.readAll(cursor, RowMappers.SPOT);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Observes a user's favorite spots: delivers them now and again whenever Favorites or Spots
+     * change, while the owner is started. Delivers an empty list on failure.
+     */
+    @MainThread
+    public void observeFavoriteSpotsByUser(LifecycleOwner owner, int userId, Callback<List<ParkingSpotModel>> callback) {
+        observe(owner, "observeFavoriteSpotsByUser", Arrays.asList(DatabaseHelper.TABLE_FAVORITES, DatabaseHelper.TABLE_SPOTS), () -> {
+            try (Cursor cursor = db.getFavoriteSpotsByUser(userId)) {
+                return RowMappers.readAll(cursor, RowMappers.SPOT);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Delivers the SpotIDs a user has favorited.
+     * When {@link FavoritesCache} already holds them the callback runs immediately,
+     * otherwise they are loaded once and cached. Delivers an empty set on failure.
+     */
+    @MainThread
+    public void getFavoriteSpotIds(LifecycleOwner owner, int userId, Callback<Set<Integer>> callback) {
+        Set<Integer> cached = FavoritesCache.get(userId);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+        execute(owner, "getFavoriteSpotIds", () -> loadFavoriteSpotIds(userId), Collections.emptySet(), callback);
+    }
+
+    /**
+     * Answers from {@link FavoritesCache} immediately when it is loaded, otherwise loads it first.
+     */
+    @MainThread
+    public void isSpotFavorite(LifecycleOwner owner, int userId, int spotId, Callback<Boolean> callback) {
+        Set<Integer> cached = FavoritesCache.get(userId);
+        if (cached != null) {
+            callback.onResult(cached.contains(spotId));
+            return;
+        }
+        execute(owner, "isSpotFavorite", () -> loadFavoriteSpotIds(userId).contains(spotId), false, callback);
+    }
+
+    /**
+     * Makes a spot one of a user's favorites, or not. The change shows in FavoritesCache (and so in
+     * isSpotFavorite and getFavoriteSpotIds) at once, and is written to the database shortly after,
+     * together with any other toggles made meanwhile; repeated toggles of the same spot only write
+     * the final state. Lists read from the Favorites table catch up once it is written.
+     */
+    @MainThread
+    public void setFavorite(int userId, int spotId, boolean favorite) {
+        favoriteQueue.set(userId, spotId, favorite);
+    }
+
+    /**
+     * Inserts many favorites at once; delivers null if the batch could not run at all.
+     */
+    @MainThread
+    public void insertFavoriteSpots(LifecycleOwner owner, List<FavoriteModel> favorites,
+                                    Callback<BatchInsertResult> callback) {
+        executeWrite(owner, "insertFavoriteSpots", () -> {
+            BatchInsertResult result = db.insertFavoriteSpots(favorites);
+            FavoritesCache.clear(); // Simpler than replaying the batch; reloaded on the next lookup
+            return result;
+        }, null, callback);
+    }
+
+    // --- Feedback ---
+
+    @MainThread
+    public void insertFeedback(LifecycleOwner owner, int userId, String subject, String message, float rating,
+                               Callback<Boolean> callback) {
+        executeWrite(owner, "insertFeedback", () -> db.insertFeedback(userId, subject, message, rating), false, callback);
+    }
+
+    /**
+     * Bulk variant of insertFeedback; delivers null if the batch could not run at all.
+     */
+    @MainThread
+    public void insertFeedbackBatch(LifecycleOwner owner, List<FeedbackModel> feedback,
+                                    Callback<BatchInsertResult> callback) {
+        executeWrite(owner, "insertFeedbackBatch", () -> db.insertFeedbackBatch(feedback), null, callback);
+    }
+
+    /**
+     * Loads all feedback given at or after {@code sinceMillis}, oldest first.
+     * Delivers an empty list on failure.
+     */
+    @MainThread
+    public void getFeedbackSince(LifecycleOwner owner, long sinceMillis, Callback<List<FeedbackModel>> callback) {
+        execute(owner, "getFeedbackSince", () -> {
+            try (Cursor cursor = db.getFeedbackSince(sinceMillis)) {
+                return RowMappers.readAll(cursor, RowMappers.FEEDBACK);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Loads one page of a full-text feedback search, best matches first; see DatabaseHelper.searchFeedback.
+     * Delivers an empty list for text without words, or on failure.
+     *
+     * @param after The last result of the previous page, or null for the first page.
+     */
+    @MainThread
+    public void searchFeedback(LifecycleOwner owner, String text, FeedbackSearchResult after, int pageSize,
+                               Callback<List<FeedbackSearchResult>> callback) {
+        execute(owner, "searchFeedback", () -> {
+            try (Cursor cursor = db.searchFeedback(text, after, pageSize)) {
+                return RowMappers.readAll(cursor, RowMappers.FEEDBACK_SEARCH_RESULT);
+            }
+        }, Collections.emptyList(), callback);
+    }
+
+    /**
+     * Loads the rating summary of one spot, or of general feedback for
+     * DatabaseHelper.GENERAL_RATING_SPOT_ID. Delivers null if the spot has no ratings or on failure.
+     */
+    @MainThread
+    public void getRatingSummary(LifecycleOwner owner, int spotId, Callback<RatingSummaryModel> callback) {
+        execute(owner, "getRatingSummary", () -> {
+            try (Cursor cursor = db.getRatingSummary(spotId)) {
+                return RowMappers.readFirst(cursor, RowMappers.RATING_SUMMARY);
+            }
+        }, null, callback);
+    }
+
+    /**
+     * Loads the rating summaries of all rated spots, keyed by SpotID. Delivers an empty map on failure.
+     */
+    @MainThread
+    public void getAllRatingSummaries(LifecycleOwner owner, Callback<Map<Integer, RatingSummaryModel>> callback) {
+        execute(owner, "getAllRatingSummaries", () -> {
+            Map<Integer, RatingSummaryModel> bySpot = new HashMap<>();
+            try (Cursor cursor = db.getAllRatingSummaries()) {
+                for (RatingSummaryModel summary : RowMappers.readAll(cursor, RowMappers.RATING_SUMMARY)) {
+                    bySpot.put(summary.getSpotId(), summary);
+                }
+            }
+            return bySpot;
+        }, Collections.emptyMap(), callback);
+    }
+
+    // --- Export and import ---
+
+    /**
+     * Writes a whole table to a document (e.g. one picked with ACTION_CREATE_DOCUMENT); see HistoryTransfer#export.
+     * Runs to completion even if the owner is destroyed, so the file is never left half written.
+     * Delivers the number of rows written, or -1 on failure.
+     */
+    @MainThread
+    public void exportData(LifecycleOwner owner, ContentResolver resolver, Uri uri, HistoryTransfer.Dataset dataset,
+                           HistoryTransfer.Format format, Callback<Long> callback) {
+        executeBulk(owner, "exportData", () -> {
+            OutputStream out = resolver.openOutputStream(uri);
+            return out == null ? -1L : historyTransfer.export(dataset, format, out);
+        }, -1L, callback);
+    }
+
+    /**
+     * Inserts the rows of a document into a table; see HistoryTransfer#importFrom.
+     * Delivers null if the document could not be opened.
+     */
+    @MainThread
+    public void importData(LifecycleOwner owner, ContentResolver resolver, Uri uri, HistoryTransfer.Dataset dataset,
+                           HistoryTransfer.Format format, Callback<BatchInsertResult> callback) {
+        executeBulk(owner, "importData", () -> {
+            InputStream in = resolver.openInputStream(uri);
+            if (in == null) {
+                return null;
+            }
+            BatchInsertResult result = historyTransfer.importFrom(dataset, format, in);
+            if (dataset == HistoryTransfer.Dataset.FAVORITES) {
+                FavoritesCache.clear(); // Reloaded on the next lookup, as after insertFavoriteSpots
+            }
+            return result;
+        }, null, callback);
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Writes a snapshot of the database to files/snapshots/parkNow-&lt;time&gt;.db and deletes all but the newest
+     * SNAPSHOTS_KEPT; see DatabaseHelper#createSnapshot. Other reads and writes carry on meanwhile.
+     * Delivers the snapshot, or null on failure.
+     */
+    @MainThread
+    public void createSnapshot(LifecycleOwner owner, Context context, Callback<File> callback) {
+        File directory = new File(context.getFilesDir(), SNAPSHOT_DIRECTORY);
+        executeBulk(owner, "createSnapshot", () -> {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.e(TAG, "createSnapshot: cannot create " + directory);
+                return null;
+            }
+            String time = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+            File snapshot = new File(directory, SNAPSHOT_PREFIX + time + SNAPSHOT_SUFFIX);
+            if (!db.createSnapshot(snapshot)) {
+                return null;
+            }
+            List<File> snapshots = listSnapshots(directory);
+            for (int i = SNAPSHOTS_KEPT; i < snapshots.size(); i++) {
+                if (!snapshots.get(i).delete()) {
+                    Log.w(TAG, "Cannot delete old snapshot " + snapshots.get(i));
+                }
+            }
+            return snapshot;
+        }, null, callback);
+    }
+
+    /**
+     * Lists the snapshots in files/snapshots, newest first.
+     */
+    @MainThread
+    public void getSnapshots(LifecycleOwner owner, Context context, Callback<List<File>> callback) {
+        File directory = new File(context.getFilesDir(), SNAPSHOT_DIRECTORY);
+        execute(owner, "getSnapshots", () -> listSnapshots(directory), Collections.emptyList(), callback);
+    }
+
+    /**
+     * Checks a snapshot and stages it to replace the database when the app next starts;
+     * see DatabaseHelper#stageRestore. Delivers false if the snapshot is unusable.
+     */
+    @MainThread
+    public void stageRestore(LifecycleOwner owner, File snapshot, Callback<Boolean> callback) {
+        executeBulk(owner, "stageRestore", () -> db.stageRestore(snapshot), false, callback);
+    }
+
+    // --- Internals ---
+
+    /**
+     * Reads every map spot on the calling (background) thread and adds them to the SpotCatalog.
+     */
+    private List<ParkingSpotModel> loadAllSpots() {
+        try (Cursor cursor = db.getAllSpots()) {
+            List<ParkingSpotModel> spots = RowMappers.readAll(cursor, RowMappers.SPOT);
+            SpotCatalog.putAll(spots);
+            return spots;
+        }
+    }
+
+    /**
+     * The snapshots in a directory, newest first: their names sort by the time they were taken.
+     */
+    private static List<File> listSnapshots(File directory) {
+        List<File> snapshots = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                    snapshots.add(file);
+                }
+            }
+        }
+        Collections.sort(snapshots, Collections.reverseOrder());
+        return snapshots;
+    }
+
+    /**
+     * Reads a user's favorite SpotIDs on the calling (background) thread and caches them,
+     * unless a favorite was written while the query ran.
+     */
+    private Set<Integer> loadFavoriteSpotIds(int userId) {
+        long generation = FavoritesCache.beginLoad();
+        Set<Integer> spotIds = new HashSet<>();
+        try (Cursor cursor = db.getFavoriteSpotIdsByUser(userId)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    spotIds.add(cursor.getInt(0));
+                }
+            }
+        }
+        favoriteQueue.applyPendingTo(userId, spotIds); // Toggles not written yet
+        if (!FavoritesCache.finishLoad(userId, generation, spotIds)) {
+            Log.d(TAG, "Favorites changed while loading for UserID " + userId + "; not cached.");
+        }
+        return spotIds;
+    }
+
+    /**
+     * Reads a single user row on the calling (background) thread.
+     */
+    private UserModel loadUser(String email) {
+        try (Cursor cursor = db.getUserByEmail(email)) {
+            return RowMappers.readFirst(cursor, RowMappers.USER);
+        }
+    }
+
+    /**
+     * Runs a read on the database executor and posts its result to {@code callback}
+     * on the main thread, as long as {@code owner} has not been destroyed in the meantime.
+     * If the owner is destroyed while the read is still queued, the read is cancelled.
+     * If the work throws, or the queue is full, {@code fallback} is delivered instead,
+     * mirroring DatabaseHelper's own "false / -1 on error" convention.
+     */
+    private <T> void execute(LifecycleOwner owner, String operation, Callable<T> work, T fallback,
+                             Callback<T> callback) {
+        submit(executor, owner, operation, work, fallback, callback, true);
+    }
+
+    /**
+     * Same as {@link #execute}, but runs on the writer thread, whose queue is not bounded, and the
+     * write itself always runs to completion even if the owner is destroyed (e.g. the user leaves
+     * the payment screen); only the callback is dropped.
+     */
+    private <T> void executeWrite(LifecycleOwner owner, String operation, Callable<T> work, T fallback,
+                                  Callback<T> callback) {
+        submit(writeExecutor, owner, operation, work, fallback, callback, false);
+    }
+
+    /**
+     * Same as {@link #executeWrite}, but for long jobs: runs on the bulk thread, which passes any writes
+     * to the writer thread in chunks (see DatabaseHelper#runStep).
+     */
+    private <T> void executeBulk(LifecycleOwner owner, String operation, Callable<T> work, T fallback,
+                                 Callback<T> callback) {
+        submit(bulkExecutor, owner, operation, work, fallback, callback, false);
+    }
+
+    /**
+     * Like {@link #execute}, but keeps the query alive for the owner's lifetime and re-runs it when
+     * one of its tables changes. Changes are coalesced: a burst of writes within OBSERVE_COALESCE_MILLIS
+     * causes one re-run, a change while the query runs causes one more run after it, and changes while
+     * the owner is stopped cause one run when it starts again.
+     *
+     * @param tables Every table the query reads.
+     */
+    private <T> void observe(LifecycleOwner owner, String operation, List<String> tables, Callable<T> query, T fallback,
+                             Callback<T> callback) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            Log.d(TAG, operation + ": owner already destroyed, observation dropped.");
+            return;
+        }
+        ObservedQuery<T> observed = new ObservedQuery<>(lifecycle, operation, query, fallback, callback);
+        db.getChangeNotifier().addListener(tables, observed);
+        lifecycle.addObserver(observed); // Runs the query once the owner is started
+    }
+
+    private <T> void submit(ThreadPoolExecutor target, LifecycleOwner owner, String operation, Callable<T> work,
+                            T fallback, Callback<T> callback, boolean cancelWorkOnDestroy) {
+        final Lifecycle lifecycle = owner.getLifecycle();
+        if (cancelWorkOnDestroy && lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            Log.d(TAG, operation + ": owner already destroyed, request dropped.");
+            return;
+        }
+
+        final Request<T> request = new Request<>(lifecycle, callback, cancelWorkOnDestroy);
+        lifecycle.addObserver(request);
+
+        try {
+            request.future = target.submit(() -> {
+                T result;
+                try {
+                    result = work.call();
+                } catch (Exception e) {
+                    Log.e(TAG, operation + " failed: " + e.getMessage(), e);
+                    result = fallback;
+                }
+                request.deliver(result);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, operation + " rejected: database queue is full.");
+            request.deliver(fallback);
+        }
+    }
+
+    /**
+     * One observed query. All fields except refreshPosted are only touched on the main thread.
+     */
+    private final class ObservedQuery<T> implements LifecycleEventObserver, TableChangeNotifier.Listener {
+        private final Lifecycle lifecycle;
+        private final String operation;
+        private final Callable<T> query;
+        private final T fallback;
+        private final Callback<T> callback;
+        private final AtomicBoolean refreshPosted = new AtomicBoolean();
+        private final Runnable refresh = this::onInvalidated;
+        private boolean stale = true; // Results not delivered yet, or tables changed since
+        private boolean running;
+        private boolean destroyed;
+
+        ObservedQuery(Lifecycle lifecycle, String operation, Callable<T> query, T fallback, Callback<T> callback) {
+            this.lifecycle = lifecycle;
+            this.operation = operation;
+            this.query = query;
+            this.fallback = fallback;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onTablesChanged(Set<String> tables) {
+            // Called on the writing thread; the first change of a burst schedules the refresh
+            if (refreshPosted.compareAndSet(false, true)) {
+                mainHandler.postDelayed(refresh, OBSERVE_COALESCE_MILLIS);
+            }
+        }
+
+        private void onInvalidated() {
+            refreshPosted.set(false);
+            stale = true;
+            runIfNeeded();
+        }
+
+        @Override
+        public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_START) {
+                runIfNeeded();
+            } else if (event == Lifecycle.Event.ON_DESTROY) {
+                destroyed = true;
+                db.getChangeNotifier().removeListener(this);
+                mainHandler.removeCallbacks(refresh);
+                lifecycle.removeObserver(this);
+            }
+        }
+
+        private void runIfNeeded() {
+            if (destroyed || running || !stale || !lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                return;
+            }
+            stale = false;
+            running = true;
+            try {
+                executor.execute(() -> {
+                    T result;
+                    try {
+                        result = query.call();
+                    } catch (Exception e) {
+                        Log.e(TAG, operation + " failed: " + e.getMessage(), e);
+                        result = fallback;
+                    }
+                    T delivered = result;
+                    mainHandler.post(() -> onResult(delivered));
+                });
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, operation + " rejected: database queue is full.");
+                running = false;
+                stale = true; // Retried on the next change or start
+                callback.onResult(fallback);
+            }
+        }
+
+        private void onResult(T result) {
+            running = false;
+            if (destroyed) {
+                return;
+            }
+            callback.onResult(result);
+            runIfNeeded(); // Tables may have changed while the query ran
+        }
+    }
+
+    /**
+     * A single in-flight request. Observes the owner's lifecycle so it can be
+     * cancelled on destroy, and unregisters itself once the result has been handled.
+     */
+    private final class Request<T> implements LifecycleEventObserver {
+        private final Lifecycle lifecycle;
+        private final Callback<T> callback;
+        private final boolean cancelWorkOnDestroy;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        Request(Lifecycle lifecycle, Callback<T> callback, boolean cancelWorkOnDestroy) {
+            this.lifecycle = lifecycle;
+            this.callback = callback;
+            this.cancelWorkOnDestroy = cancelWorkOnDestroy;
+        }
+
+        @Override
+        public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                cancelled = true;
+                Future<?> f = future;
+                if (cancelWorkOnDestroy && f != null) {
+                    // Do not interrupt: a running statement is left to finish, only its result is dropped.
+                    f.cancel(false);
+                }
+                lifecycle.removeObserver(this);
+            }
+        }
+
+        void deliver(T result) {
+            mainHandler.post(() -> {
+                lifecycle.removeObserver(this);
+                // A write submitted after the owner was destroyed never sees ON_DESTROY, so check the state too
+                if (!cancelled && callback != null && lifecycle.getCurrentState() != Lifecycle.State.DESTROYED) {
+                    callback.onResult(result);
+                }
+            });
+        }
+    }
+}
@@ -21,11 +21,7 @@ import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ParkingDetailsActivity extends AppCompatActivity {
 
@@ -33,11 +29,13 @@ public class ParkingDetailsActivity extends AppCompatActivity {
     private TextView locationView, priceView, availabilityView;
     private Button reserveButton, navigateToSpotButton; // Added navigateToSpotButton
     private ToggleButton favoriteButton;
+    private int spotId = -1; // Spots.SpotID, used for favorites and reservations
     private String spotName;
     private String currentUserEmail;
-    private double pricePerHour = 0.0; // To store extracted price
+    private double pricePerHour = 0.0; // From the SpotCatalog
     private LatLng parkingSpotLatLng; // To store the LatLng for navigation
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
+    private int currentUserId = -1; // Taken from the UserSession for currentUserEmail
 
     // Drawer and Toolbar elements
     private DrawerLayout drawerLayout;
@@ -51,7 +49,7 @@ public class ParkingDetailsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_parking_details);
         Log.d(TAG, "onCreate: ParkingDetailsActivity started.");
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         // Get user email from intent
         currentUserEmail = getIntent().getStringExtra("USER_EMAIL");
@@ -83,57 +81,13 @@ public class ParkingDetailsActivity extends AppCompatActivity {
         reserveButton = findViewById(R.id.buttonReserve);
         favoriteButton = findViewById(R.id.buttonFavorite);
 
-        // Get spot name, snippet, and LatLng from intent
-        spotName = getIntent().getStringExtra("spot_name");
-        String spotSnippet = getIntent().getStringExtra("spot_snippet");
-        double lat = getIntent().getDoubleExtra("spot_lat", 0.0);
-        double lng = getIntent().getDoubleExtra("spot_lng", 0.0);
-        parkingSpotLatLng = new LatLng(lat, lng);
-
-        if (spotName != null) {
-            locationView.setText(spotName);
-            Log.d(TAG, "Spot Name: " + spotName);
-        } else {
-            locationView.setText("Location: N/A");
-            Log.e(TAG, "Spot Name not found in intent.");
-        }
-        Log.d(TAG, "Parking Spot LatLng: " + parkingSpotLatLng.latitude + ", " + parkingSpotLatLng.longitude);
-
-
-        // Parse price and availability from snippet
-        if (spotSnippet != null) {
-            // Extract Price (Corrected regex for LKR)
-            Pattern pricePattern = Pattern.compile("Price: (\\d+\\.?\\d*)\\s*LKR/hr");
-            Matcher priceMatcher = pricePattern.matcher(spotSnippet);
-            if (priceMatcher.find()) {
-                try {
-                    pricePerHour = Double.parseDouble(priceMatcher.group(1));
-                    priceView.setText(String.format(Locale.getDefault(), "Price: LKR %.2f/hour", pricePerHour));
-                    Log.d(TAG, "Price per hour extracted: " + pricePerHour);
-                } catch (NumberFormatException e) {
-                    priceView.setText("Price: N/A");
-                    Log.e(TAG, "Error parsing price from snippet: " + e.getMessage(), e);
-                }
-            } else {
-                priceView.setText("Price: N/A");
-                Log.w(TAG, "Price not found in snippet.");
-            }
-
-            // Extract Availability
-            Pattern availabilityPattern = Pattern.compile("Available: (\\d+)");
-            Matcher availabilityMatcher = availabilityPattern.matcher(spotSnippet); // Corrected: Matcher from Pattern
-            if (availabilityMatcher.find()) {
-                availabilityView.setText("Availability: " + availabilityMatcher.group(1) + " spots");
-                Log.d(TAG, "Availability extracted: " + availabilityMatcher.group(1));
-            } else {
-                availabilityView.setText("Availability: N/A");
-                Log.w(TAG, "Availability not found in snippet.");
-            }
-        } else {
-            priceView.setText("Price: N/A");
-            availabilityView.setText("Availability: N/A");
-            Log.e(TAG, "Spot Snippet not found in intent.");
-        }
+        // Get the spot ID from the intent; name, position, price and availability come from the SpotCatalog
+        spotId = getIntent().getIntExtra("spot_id", -1);
+        locationView.setText("Location: N/A");
+        priceView.setText("Price: N/A");
+        availabilityView.setText("Availability: N/A");
+        reserveButton.setEnabled(false); // Until the price is known
+        repository.getSpot(this, spotId, this::showSpot);
 
         // Initialize UI elements for drawer
         drawerLayout = findViewById(R.id.drawer_layout);
@@ -194,67 +148,47 @@ public class ParkingDetailsActivity extends AppCompatActivity {
             Log.e(TAG, "onCreate: textViewUserEmail not found in nav_header_main.xml");
         }
 
-        // Handle Favorite Button state and click
-        int userIdInt = db.getUserIdByEmail(currentUserEmail);
-        if (userIdInt != -1) {
-            boolean isFavorite = db.isSpotFavorite(userIdInt, spotName);
-            favoriteButton.setChecked(isFavorite);
-            Log.d(TAG, "Spot '" + spotName + "' is favorite: " + isFavorite);
-        } else {
-            Log.e(TAG, "User ID not found for email: " + currentUserEmail);
-            Toast.makeText(this, "Error: User data missing for favorites.", Toast.LENGTH_SHORT).show();
-            favoriteButton.setEnabled(false); // Disable favorite if user ID isn't found
-        }
-
-        favoriteButton.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            int currentUserId = db.getUserIdByEmail(currentUserEmail); // Re-fetch userId in case it was somehow lost
-            if (currentUserId != -1) {
-                if (isChecked) {
-                    boolean success = db.insertFavoriteSpot(currentUserId, spotName);
-                    if (success) {
-                        Toast.makeText(ParkingDetailsActivity.this, spotName + " added to favorites!", Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Added '" + spotName + "' to favorites for user " + currentUserId);
-                    } else {
-                        Toast.makeText(ParkingDetailsActivity.this, "Failed to add " + spotName + " to favorites.", Toast.LENGTH_SHORT).show();
-                        Log.e(TAG, "Failed to add '" + spotName + "' to favorites for user " + currentUserId);
-                    }
-                } else {
-                    boolean success = db.deleteFavoriteSpot(currentUserId, spotName);
-                    if (success) {
-                        Toast.makeText(ParkingDetailsActivity.this, spotName + " removed from favorites.", Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Removed '" + spotName + "' from favorites for user " + currentUserId);
-                    } else {
-                        Toast.makeText(ParkingDetailsActivity.this, "Failed to remove " + spotName + " from favorites.", Toast.LENGTH_SHORT).show();
-                        Log.e(TAG, "Failed to remove '" + spotName + "' from favorites for user " + currentUserId);
-                    }
-                }
-            } else {
-                Toast.makeText(ParkingDetailsActivity.this, "Error: User not found for favorite action.", Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "Error: User ID not found for email " + currentUserEmail + " during favorite action.");
+        // Handle Favorite Button state and click.
+        // The button stays disabled until the user ID and current favorite state are loaded.
+        favoriteButton.setEnabled(false);
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user == null) {
+                Log.e(TAG, "User ID not found for email: " + currentUserEmail);
+                Toast.makeText(this, "Error: User data missing for favorites.", Toast.LENGTH_SHORT).show();
+                return; // Keep favorite disabled if user ID isn't found
             }
+            currentUserId = user.getId();
+            if (spotId == -1) {
+                Log.e(TAG, "Spot ID not found in intent; favorites disabled.");
+                return;
+            }
+            repository.isSpotFavorite(this, currentUserId, spotId, isFavorite -> {
+                favoriteButton.setChecked(isFavorite);
+                Log.d(TAG, "Spot '" + spotName + "' is favorite: " + isFavorite);
+                // Attach the listener only now so restoring the state above is not treated as a click
+                favoriteButton.setOnCheckedChangeListener((buttonView, isChecked) -> onFavoriteToggled(isChecked));
+                favoriteButton.setEnabled(true);
+            });
         });
 
         // Reserve Button click listener
         reserveButton.setOnClickListener(v -> {
             Log.d(TAG, "Reserve button clicked.");
-            // Get current timestamp for reservation
-            String currentTimestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+            // Get current timestamp for reservation (epoch milliseconds)
+            long currentTimestamp = System.currentTimeMillis();
 
             Intent reserveIntent = new Intent(ParkingDetailsActivity.this, ReserveSpotActivity.class);
             reserveIntent.putExtra("USER_EMAIL", currentUserEmail);
-            reserveIntent.putExtra("spot_name", spotName);
+            reserveIntent.putExtra("spot_id", spotId); // ReserveSpotActivity looks up the name and price itself
             reserveIntent.putExtra("TIMESTAMP", currentTimestamp);
-            reserveIntent.putExtra("price_per_hour", pricePerHour); // Pass the extracted price
-            reserveIntent.putExtra("spot_lat", parkingSpotLatLng.latitude); // Pass LatLng for ReserveSpot if needed later
-            reserveIntent.putExtra("spot_lng", parkingSpotLatLng.longitude);
             startActivity(reserveIntent);
-            Log.d(TAG, "Launched ReserveSpotActivity with price_per_hour: " + pricePerHour);
+            Log.d(TAG, "Launched ReserveSpotActivity for spot " + spotId);
         });
 
         // Navigate To Spot Button click listener
         navigateToSpotButton.setOnClickListener(v -> {
             Log.d(TAG, "Navigate to Spot button clicked.");
-            if (parkingSpotLatLng.latitude != 0.0 || parkingSpotLatLng.longitude != 0.0) {
+            if (parkingSpotLatLng != null && (parkingSpotLatLng.latitude != 0.0 || parkingSpotLatLng.longitude != 0.0)) {
                 // Launch Google Maps navigation
                 String uri = "google.navigation:q=" + parkingSpotLatLng.latitude + "," + parkingSpotLatLng.longitude + "&mode=d"; // mode=d for driving
                 Intent mapIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(uri));
@@ -279,6 +213,37 @@ public class ParkingDetailsActivity extends AppCompatActivity {
         Log.d(TAG, "onCreate: setupBottomNavigation completed.");
     }
 
+    /**
+     * Shows the spot looked up by its ID, or leaves the N/A placeholders if it does not exist.
+     */
+    private void showSpot(ParkingSpotModel spot) {
+        if (spot == null) {
+            Log.e(TAG, "Spot " + spotId + " not found.");
+            Toast.makeText(this, "Parking spot not found.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        spotName = spot.getSpotName();
+        pricePerHour = spot.getPricePerHour();
+        parkingSpotLatLng = new LatLng(spot.getLatitude(), spot.getLongitude());
+        locationView.setText(spotName);
+        priceView.setText(String.format(Locale.getDefault(), "Price: LKR %.2f/hour", pricePerHour));
+        availabilityView.setText("Availability: " + spot.getAvailability() + " spots");
+        reserveButton.setEnabled(true);
+        Log.d(TAG, "Spot loaded: " + spot);
+    }
+
+    private void onFavoriteToggled(boolean isChecked) {
+        // Applied in memory at once and written in the background; quick re-taps only write the final state
+        repository.setFavorite(currentUserId, spotId, isChecked);
+        if (isChecked) {
+            Toast.makeText(ParkingDetailsActivity.this, spotName + " added to favorites!", Toast.LENGTH_SHORT).show();
+            Log.d(TAG, "Added '" + spotName + "' to favorites for user " + currentUserId);
+        } else {
+            Toast.makeText(ParkingDetailsActivity.this, spotName + " removed from favorites.", Toast.LENGTH_SHORT).show();
+            Log.d(TAG, "Removed '" + spotName + "' from favorites for user " + currentUserId);
+        }
+    }
+
     private void setupBottomNavigation() {
         BottomNavigationView bottomNav = findViewById(R.id.bottom_navigation);
         if (bottomNav == null) {
@@ -3,12 +3,13 @@ package com.s23010409.parknow;
 /**
  * ParkingSpotModel
  * A data model class to represent a single parking spot.
- * This class holds properties like the spot's name (ID), location coordinates,
+ * This class holds properties like the spot's ID and name, location coordinates,
  * current availability, price per hour, and a brief description.
  */
 public class ParkingSpotModel {
 
-    private String spotName; // Unique identifier for the parking spot (e.g., "Colombo City Center Parking")
+    private int id; // Primary key of the spot in the Spots table
+    private String spotName; // Unique display name of the parking spot (e.g., "Colombo City Center Parking")
     private double latitude;
     private double longitude;
     private int availability; // Number of available slots
@@ -16,9 +17,26 @@ public class ParkingSpotModel {
     private String description;
 
     /**
-     * Constructor for ParkingSpotModel.
+     * Constructor for a ParkingSpotModel read from the database, including the ID.
      *
-     * @param spotName       The unique name or ID of the parking spot.
+     * @param id             The unique ID of the parking spot.
+     * @param spotName       The unique name of the parking spot.
+     * @param latitude       The latitude coordinate of the parking spot.
+     * @param longitude      The longitude coordinate of the parking spot.
+     * @param availability   The number of parking slots currently available.
+     * @param pricePerHour   The price to park per hour at this spot.
+     * @param description    A brief description of the parking spot.
+     */
+    public ParkingSpotModel(int id, String spotName, double latitude, double longitude,
+                            int availability, double pricePerHour, String description) {
+        this(spotName, latitude, longitude, availability, pricePerHour, description);
+        this.id = id;
+    }
+
+    /**
+     * Constructor for a new ParkingSpotModel without an ID, e.g. for inserting.
+     *
+     * @param spotName       The unique name of the parking spot.
      * @param latitude       The latitude coordinate of the parking spot.
      * @param longitude      The longitude coordinate of the parking spot.
      * @param availability   The number of parking slots currently available.
@@ -37,6 +55,10 @@ public class ParkingSpotModel {
 
     // --- Getters ---
 
+    public int getId() {
+        return id;
+    }
+
     public String getSpotName() {
         return spotName;
     }
@@ -63,6 +85,10 @@ public class ParkingSpotModel {
 
     // --- Setters (optional, depending on if you need to modify these after creation) ---
 
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public void setSpotName(String spotName) {
         this.spotName = spotName;
     }
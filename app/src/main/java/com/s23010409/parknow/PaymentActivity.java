@@ -39,12 +39,11 @@ public class PaymentActivity extends AppCompatActivity {
     private TextInputEditText editCardNumber, editCardHolderName, editExpiryDate, editCvv;
     private Button buttonPayNow;
 
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
     private String userEmail;
-    private String spotName;
-    private String timestamp;
+    private int spotId = -1; // Spots.SpotID
+    private long timestamp; // Epoch milliseconds
     private int durationHours;
-    private double totalCost;
 
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
@@ -57,16 +56,15 @@ public class PaymentActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_payment);
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         // Get data from intent
         userEmail = getIntent().getStringExtra("USER_EMAIL");
-        spotName = getIntent().getStringExtra("spot_name");
-        timestamp = getIntent().getStringExtra("TIMESTAMP");
+        spotId = getIntent().getIntExtra("spot_id", -1); // Name and price are looked up by ID
+        timestamp = getIntent().getLongExtra("TIMESTAMP", -1);
         durationHours = getIntent().getIntExtra("DURATION_HOURS", 1);
-        totalCost = getIntent().getDoubleExtra("TOTAL_COST", 0.0);
 
-        if (userEmail == null || userEmail.isEmpty() || spotName == null || timestamp == null || totalCost <= 0) {
+        if (userEmail == null || userEmail.isEmpty() || spotId == -1 || timestamp < 0 || durationHours < 1) {
             Toast.makeText(this, "Payment data incomplete or invalid.", Toast.LENGTH_LONG).show();
             finish();
             return;
@@ -85,9 +83,19 @@ public class PaymentActivity extends AppCompatActivity {
         editCvv = findViewById(R.id.editCvv);
         buttonPayNow = findViewById(R.id.buttonPayNow);
 
-        // Display received data
-        textPaymentSpotName.setText("For: " + spotName + " (" + durationHours + " Hours)");
-        textPaymentTotalCost.setText(String.format(Locale.getDefault(), "Total: LKR %.2f", totalCost));
+        // Display the spot and the cost of the stay from the SpotCatalog; paying waits for them
+        buttonPayNow.setEnabled(false);
+        repository.getSpot(this, spotId, spot -> {
+            if (spot == null) {
+                Toast.makeText(this, "Parking spot not found.", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            textPaymentSpotName.setText("For: " + spot.getSpotName() + " (" + durationHours + " Hours)");
+            textPaymentTotalCost.setText(String.format(Locale.getDefault(), "Total: LKR %.2f",
+                    spot.getPricePerHour() * durationHours));
+            buttonPayNow.setEnabled(true);
+        });
 
         // Setup TopAppBar Toolbar
         topAppBar = findViewById(R.id.topAppBar);
@@ -306,42 +314,76 @@ public class PaymentActivity extends AppCompatActivity {
 
     private void onPaymentConfirmed() {
         Log.d(TAG, "onPaymentConfirmed() called.");
-        // Simulate payment success
-        boolean paymentSuccess = true; // In a real app, integrate with a payment gateway
+        // Hold the spot before charging, so the user is never charged for a spot that turns out to be full;
+        // block double taps meanwhile
+        buttonPayNow.setEnabled(false);
+        repository.getSessionUser(this, userEmail, user -> { // Get actual userId from the session
+            if (user == null) {
+                buttonPayNow.setEnabled(true);
+                Toast.makeText(this, "User not found. No payment was taken.", Toast.LENGTH_LONG).show();
+                Log.e(TAG, "userId not found for email: " + userEmail);
+                return;
+            }
+            Log.d(TAG, "User ID found: " + user.getId() + ". Attempting to reserve spot.");
+            // Takes capacity for every hour of the stay, or nothing if one of them is already full
+            repository.reserveSpot(this, user.getId(), spotId, timestamp, durationHours,
+                    result -> onSpotHeld(user.getId(), result));
+        });
+    }
 
-        if (paymentSuccess) {
-            Log.d(TAG, "Payment simulation: SUCCESS.");
-            // Save reservation to database
-            int userIdInt = db.getUserIdByEmail(userEmail); // Get actual userId from email
-            if (userIdInt != -1) {
-                Log.d(TAG, "User ID found: " + userIdInt + ". Attempting to insert reservation.");
-                boolean reservationInserted = db.insertReservation(userIdInt, spotName, timestamp);
-                if (reservationInserted) {
-                    Toast.makeText(this, "Payment successful and reservation confirmed!", Toast.LENGTH_LONG).show();
-                    Log.d(TAG, "Payment successful, reservation inserted and confirmed.");
-
-                    // Navigate to MyReservationsActivity and clear back stack
-                    Intent intent = new Intent(PaymentActivity.this, MyReservationsActivity.class);
-                    intent.putExtra("USER_EMAIL", userEmail);
-                    // Clear all previous activities and start MyReservationsActivity as new task root
-                    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                    startActivity(intent);
-                    finish(); // Finish PaymentActivity
-                    Log.d(TAG, "Navigated to MyReservationsActivity and finished PaymentActivity.");
-                } else {
-                    Toast.makeText(this, "Payment successful, but failed to record reservation.", Toast.LENGTH_LONG).show();
-                    Log.e(TAG, "Payment successful, but failed to insert reservation into DB.");
-                }
+    private void onSpotHeld(int userId, DatabaseHelper.ReservationResult result) {
+        if (result == DatabaseHelper.ReservationResult.RESERVED) {
+            if (chargePayment()) {
+                onReservationConfirmed();
             } else {
-                Toast.makeText(this, "Payment successful, but user not found for reservation.", Toast.LENGTH_LONG).show();
-                Log.e(TAG, "Payment successful, but userId not found for email: " + userEmail);
+                // Give the spot back, so a failed payment does not keep it from other users
+                Log.e(TAG, "Payment failed (simulated). Releasing spot " + spotId + ".");
+                repository.releaseSpot(this, userId, spotId, timestamp, durationHours, released -> {
+                    if (!released) {
+                        Log.e(TAG, "Failed to release spot " + spotId + " after a failed payment.");
+                    }
+                    buttonPayNow.setEnabled(true);
+                    Toast.makeText(this, "Payment failed, so the reservation was cancelled. Please try again.",
+                            Toast.LENGTH_LONG).show();
+                });
             }
+        } else if (result == DatabaseHelper.ReservationResult.FULL) {
+            // Someone else took the last space meanwhile; leave the button disabled, retrying cannot succeed
+            Toast.makeText(this, "Sorry, this spot is fully booked for the selected time. No payment was taken.",
+                    Toast.LENGTH_LONG).show();
+            Log.w(TAG, "Spot " + spotId + " is fully booked; reservation not made, payment not taken.");
         } else {
-            Toast.makeText(this, "Payment failed. Please try again.", Toast.LENGTH_LONG).show();
-            Log.e(TAG, "Payment failed (simulated).");
+            buttonPayNow.setEnabled(true);
+            Toast.makeText(this, "Failed to record reservation. No payment was taken.", Toast.LENGTH_LONG).show();
+            Log.e(TAG, "Failed to insert reservation into DB; payment not taken.");
         }
     }
 
+    /**
+     * Charges the card for the stay.
+     *
+     * @return true if the payment went through.
+     */
+    private boolean chargePayment() {
+        // Simulate payment success
+        boolean paymentSuccess = true; // In a real app, integrate with a payment gateway
+        Log.d(TAG, "Payment simulation: " + (paymentSuccess ? "SUCCESS." : "FAILURE."));
+        return paymentSuccess;
+    }
+
+    private void onReservationConfirmed() {
+        Toast.makeText(this, "Payment successful and reservation confirmed!", Toast.LENGTH_LONG).show();
+        Log.d(TAG, "Payment successful, reservation inserted and confirmed.");
+
+        // Navigate to MyReservationsActivity and clear back stack
+        Intent intent = new Intent(PaymentActivity.this, MyReservationsActivity.class);
+        intent.putExtra("USER_EMAIL", userEmail);
+        // Clear all previous activities and start MyReservationsActivity as new task root
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(intent);
+        finish(); // Finish PaymentActivity
+        Log.d(TAG, "Navigated to MyReservationsActivity and finished PaymentActivity.");
+    }
 
     private void setupBottomNavigation() {
         BottomNavigationView bottomNav = findViewById(R.id.bottom_navigation);
@@ -0,0 +1,110 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PrebuiltDatabase
+ * Installs the database shipped in assets/databases/ (same file name as the database) the first time
+ * the database is opened, so a fresh install starts with the full, already indexed spot catalog instead
+ * of creating and filling every table on the device.
+ * The copy is only kept if its user_version is between 1 and DatabaseHelper's version: an older one is
+ * then brought up to date by onUpgrade, and without a usable asset onCreate builds the database as before.
+ * Build the asset with prepareForShipping from a database DatabaseHelper created and filled.
+ */
+final class PrebuiltDatabase {
+
+    private static final String TAG = "PrebuiltDatabase";
+
+    static final String ASSET_DIRECTORY = "databases/";
+
+    private PrebuiltDatabase() {
+    }
+
+    /**
+     * Copies the prebuilt database from assets if the database file does not exist yet.
+     * Reads and writes files, so call it off the main thread.
+     *
+     * @param context         Any context of the app.
+     * @param databaseName    The database file name, also the asset's name.
+     * @param databaseVersion The newest version the app can open, i.e. DatabaseHelper's DATABASE_VERSION.
+     * @return true if the prebuilt database was installed, false if there was nothing to do or it was unusable.
+     */
+    static boolean installIfMissing(Context context, String databaseName, int databaseVersion) {
+        File target = context.getDatabasePath(databaseName);
+        if (target.exists()) {
+            return false;
+        }
+        InputStream source;
+        try {
+            source = context.getAssets().open(ASSET_DIRECTORY + databaseName);
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No prebuilt " + databaseName + " in assets; the database will be created.");
+            return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening prebuilt " + databaseName + ": " + e.getMessage());
+            return false;
+        }
+        return install(source, target, databaseVersion);
+    }
+
+    /**
+     * Copies a prebuilt database to {@code target} and keeps it only if it passes quick_check
+     * and has a usable version.
+     *
+     * @param source          The prebuilt database; always closed.
+     * @param target          Where the database should end up. Must not exist yet.
+     * @param databaseVersion The newest user_version that is accepted.
+     * @return true if {@code target} now holds the prebuilt database.
+     */
+    static boolean install(InputStream source, File target, int databaseVersion) {
+        return DatabaseFiles.installVerified(source, target, databaseVersion, false, "prebuilt database");
+    }
+
+    /**
+     * Turns a database DatabaseHelper created and filled into a file fit to ship in assets:
+     * collects planner statistics, switches from WAL to a rollback journal so the database is one
+     * self-contained file, and vacuums it. Close every helper on the file first.
+     *
+     * @param databaseFile The database to prepare, changed in place.
+     * @return true on success.
+     */
+    static boolean prepareForShipping(File databaseFile) {
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(databaseFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            if (count(db, "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_USERS) > 0) {
+                Log.e(TAG, "prepareForShipping: " + databaseFile + " has user accounts; not shipping it.");
+                return false;
+            }
+            db.execSQL("ANALYZE");
+            try (Cursor cursor = db.rawQuery("PRAGMA journal_mode = DELETE", null)) {
+                cursor.moveToFirst();
+            }
+            db.execSQL("VACUUM");
+            Log.d(TAG, "prepareForShipping: " + databaseFile + " is ready, " + databaseFile.length() / 1024 + " KB.");
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "prepareForShipping: " + e.getMessage());
+            return false;
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+        }
+    }
+
+    private static long count(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
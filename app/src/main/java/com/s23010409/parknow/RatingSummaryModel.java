@@ -0,0 +1,72 @@
+package com.s23010409.parknow;
+
+/**
+ * RatingSummaryModel
+ * A data model class holding the aggregated ratings of one parking spot, as kept in the
+ * RatingSummary table: how many ratings there are, their sum, and how many round to each of 1-5 stars.
+ */
+public class RatingSummaryModel {
+
+    private final int spotId; // DatabaseHelper.GENERAL_RATING_SPOT_ID for feedback about the app
+    private final int ratingCount;
+    private final double ratingSum;
+    private final int[] starCounts; // starCounts[0] is the number of 1-star ratings, starCounts[4] of 5-star ones
+
+    /**
+     * Constructor for a RatingSummaryModel read from the database.
+     *
+     * @param spotId      The ID of the spot.
+     * @param ratingCount The number of ratings.
+     * @param ratingSum   The sum of all ratings.
+     * @param starCounts  The number of ratings for 1 to 5 stars; must have 5 entries.
+     */
+    public RatingSummaryModel(int spotId, int ratingCount, double ratingSum, int[] starCounts) {
+        if (starCounts.length != 5) {
+            throw new IllegalArgumentException("Expected 5 star counts, got " + starCounts.length);
+        }
+        this.spotId = spotId;
+        this.ratingCount = ratingCount;
+        this.ratingSum = ratingSum;
+        this.starCounts = starCounts.clone();
+    }
+
+    // --- Getters ---
+
+    public int getSpotId() {
+        return spotId;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    public double getRatingSum() {
+        return ratingSum;
+    }
+
+    /**
+     * @return The average rating, or 0 if there are no ratings.
+     */
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0 : ratingSum / ratingCount;
+    }
+
+    /**
+     * @param stars 1 to 5.
+     * @return The number of ratings that round to that many stars.
+     */
+    public int getStarCount(int stars) {
+        return starCounts[stars - 1];
+    }
+
+    /**
+     * Provides a string representation of the RatingSummaryModel, useful for debugging.
+     * @return A string containing the summary details.
+     */
+    @Override
+    public String toString() {
+        return "Spot ID: " + spotId +
+                ", Ratings: " + ratingCount +
+                ", Average: " + getAverageRating();
+    }
+}
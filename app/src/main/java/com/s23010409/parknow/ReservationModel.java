@@ -4,15 +4,16 @@ package com.s23010409.parknow;
  * ReservationModel
  * A data model class to represent a single parking reservation made by a user.
  * This class holds properties like the reservation ID (if applicable),
- * the ID of the user who made the reservation, the ID of the parking spot,
+ * the ID of the user who made the reservation, the ID and name of the parking spot,
  * and the timestamp when the reservation was made.
  */
 public class ReservationModel {
 
     private int id; // Primary key for the reservation in the database
     private int userId;
-    private String spotId; // Name or unique identifier of the parking spot
-    private String timestamp; // Date and time of the reservation
+    private int spotId; // ID of the parking spot in the Spots table
+    private String spotName; // Display name of the spot, filled in when read from the database
+    private long timestamp; // Date and time of the reservation, in epoch milliseconds
 
     /**
      * Constructor for creating a new ReservationModel object.
@@ -20,13 +21,15 @@ public class ReservationModel {
      *
      * @param id          The unique ID of the reservation.
      * @param userId      The ID of the user who made the reservation.
-     * @param spotId      The unique identifier of the reserved parking spot.
-     * @param timestamp   The timestamp when the reservation was made (e.g., "YYYY-MM-DD HH:MM:SS").
+     * @param spotId      The ID of the reserved parking spot.
+     * @param spotName    The name of the reserved parking spot.
+     * @param timestamp   The time the reservation was made, in epoch milliseconds.
      */
-    public ReservationModel(int id, int userId, String spotId, String timestamp) {
+    public ReservationModel(int id, int userId, int spotId, String spotName, long timestamp) {
         this.id = id;
         this.userId = userId;
         this.spotId = spotId;
+        this.spotName = spotName;
         this.timestamp = timestamp;
     }
 
@@ -35,10 +38,10 @@ public class ReservationModel {
      * Used when inserting a new reservation into the database, where the ID is auto-generated.
      *
      * @param userId      The ID of the user who made the reservation.
-     * @param spotId      The unique identifier of the reserved parking spot.
-     * @param timestamp   The timestamp when the reservation was made (e.g., "YYYY-MM-DD HH:MM:SS").
+     * @param spotId      The ID of the reserved parking spot.
+     * @param timestamp   The time the reservation was made, in epoch milliseconds.
      */
-    public ReservationModel(int userId, String spotId, String timestamp) {
+    public ReservationModel(int userId, int spotId, long timestamp) {
         this.userId = userId;
         this.spotId = spotId;
         this.timestamp = timestamp;
@@ -54,11 +57,15 @@ public class ReservationModel {
         return userId;
     }
 
-    public String getSpotId() {
+    public int getSpotId() {
         return spotId;
     }
 
-    public String getTimestamp() {
+    public String getSpotName() {
+        return spotName;
+    }
+
+    public long getTimestamp() {
         return timestamp;
     }
 
@@ -72,11 +79,15 @@ public class ReservationModel {
         this.userId = userId;
     }
 
-    public void setSpotId(String spotId) {
+    public void setSpotId(int spotId) {
         this.spotId = spotId;
     }
 
-    public void setTimestamp(String timestamp) {
+    public void setSpotName(String spotName) {
+        this.spotName = spotName;
+    }
+
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
@@ -88,7 +99,7 @@ public class ReservationModel {
     public String toString() {
         return "Reservation ID: " + id +
                 ", User ID: " + userId +
-                ", Spot: " + spotId +
+                ", Spot: " + spotId + (spotName != null ? " (" + spotName + ")" : "") +
                 ", Time: " + timestamp;
     }
 }
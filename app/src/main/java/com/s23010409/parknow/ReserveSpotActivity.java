@@ -27,10 +27,11 @@ import java.util.Locale;
 public class ReserveSpotActivity extends AppCompatActivity {
 
     private Button confirmButton;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
     private int userId = -1;
-    private String spotId;
-    private String timestamp;
+    private int spotId = -1; // Spots.SpotID
+    private String spotName;
+    private long timestamp; // Epoch milliseconds
     private String userEmail; // This is the correct variable name
     private double pricePerHour;
 
@@ -47,7 +48,7 @@ public class ReserveSpotActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_reserve_spot);
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
         confirmButton = findViewById(R.id.buttonConfirm);
         editDuration = findViewById(R.id.editDuration);
         textPricePerHour = findViewById(R.id.textPricePerHour);
@@ -55,37 +56,49 @@ public class ReserveSpotActivity extends AppCompatActivity {
 
         // Get data from intent
         userEmail = getIntent().getStringExtra("USER_EMAIL"); // Correctly initialized here
-        spotId = getIntent().getStringExtra("spot_name");
-        timestamp = getIntent().getStringExtra("TIMESTAMP");
-        pricePerHour = getIntent().getDoubleExtra("price_per_hour", 0.0);
+        spotId = getIntent().getIntExtra("spot_id", -1); // Name and price are looked up by ID
+        timestamp = getIntent().getLongExtra("TIMESTAMP", -1);
 
-        if (userEmail == null || userEmail.isEmpty() || spotId == null || timestamp == null) {
+        if (userEmail == null || userEmail.isEmpty() || spotId == -1 || timestamp < 0) {
             Toast.makeText(this, "Reservation data incomplete", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
 
-        // Get userId from email
-        userId = db.getUserIdByEmail(userEmail);
-        if (userId == -1) {
-            Toast.makeText(this, "Error: User ID not found.", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
+        // Get userId from the session; confirming is only allowed once it and the spot are known
+        confirmButton.setEnabled(false);
+        repository.getSessionUser(this, userEmail, user -> {
+            if (user == null) {
+                Toast.makeText(this, "Error: User ID not found.", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            userId = user.getId();
+            confirmButton.setEnabled(spotName != null);
+        });
 
-        // Display parking spot ID and reservation timestamp
+        // Display reservation timestamp; the spot name follows once it is looked up
         TextView textParkingSpotId = findViewById(R.id.textParkingSpotId);
         TextView textReservationTimestamp = findViewById(R.id.textReservationTimestamp);
-        textParkingSpotId.setText("Spot: " + spotId);
-        textReservationTimestamp.setText("Time: " + timestamp);
-
-
-        // Display price per hour
-        textPricePerHour.setText(String.format(Locale.getDefault(), "Price Per Hour: LKR %.2f", pricePerHour));
+        textReservationTimestamp.setText("Time: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(timestamp)));
 
         // Calculate and display total cost based on duration input
         editDuration.setText("1"); // Default to 1 hour
-        calculateAndDisplayTotalCost(); // Calculate initial cost
+
+        // Display spot name and price per hour from the SpotCatalog
+        repository.getSpot(this, spotId, spot -> {
+            if (spot == null) {
+                Toast.makeText(this, "Parking spot not found.", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            spotName = spot.getSpotName();
+            pricePerHour = spot.getPricePerHour();
+            textParkingSpotId.setText("Spot: " + spotName);
+            textPricePerHour.setText(String.format(Locale.getDefault(), "Price Per Hour: LKR %.2f", pricePerHour));
+            calculateAndDisplayTotalCost(); // Calculate initial cost
+            confirmButton.setEnabled(userId != -1);
+        });
 
         // Add TextWatcher to dynamically update total cost when duration changes
         editDuration.addTextChangedListener(new TextWatcher() {
@@ -168,22 +181,34 @@ public class ReserveSpotActivity extends AppCompatActivity {
                 return;
             }
 
-            // Before making reservation, navigate to payment activity
-            Intent paymentIntent = new Intent(ReserveSpotActivity.this, PaymentActivity.class);
-            paymentIntent.putExtra("USER_EMAIL", userEmail); // Pass user email
-            paymentIntent.putExtra("spot_name", spotId);
-            paymentIntent.putExtra("TIMESTAMP", timestamp);
-            paymentIntent.putExtra("DURATION_HOURS", durationHours); // Pass duration
-            paymentIntent.putExtra("TOTAL_COST", pricePerHour * durationHours); // Pass calculated total cost
-            startActivity(paymentIntent);
-
-            // No need to finish() here, as PaymentActivity might return a result and you might want to come back
+            // Fail fast if the spot is already full for the stay, before asking for payment
+            confirmButton.setEnabled(false);
+            repository.getRemainingCapacity(this, spotId, timestamp, durationHours, remaining -> {
+                confirmButton.setEnabled(true);
+                if (remaining == 0) {
+                    Toast.makeText(this, "Sorry, this spot is fully booked for the selected time.", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                startPayment(durationHours); // Also when the check failed (-1); the booking itself checks again
+            });
         });
 
         // Setup Bottom Navigation
         setupBottomNavigation();
     }
 
+    // Navigates to payment for the chosen duration; PaymentActivity looks the spot's name and price up by ID
+    private void startPayment(int durationHours) {
+        Intent paymentIntent = new Intent(ReserveSpotActivity.this, PaymentActivity.class);
+        paymentIntent.putExtra("USER_EMAIL", userEmail); // Pass user email
+        paymentIntent.putExtra("spot_id", spotId);
+        paymentIntent.putExtra("TIMESTAMP", timestamp);
+        paymentIntent.putExtra("DURATION_HOURS", durationHours); // Pass duration
+        startActivity(paymentIntent);
+
+        // No need to finish() here, as PaymentActivity might return a result and you might want to come back
+    }
+
     // Helper method to calculate and display the total cost
     private void calculateAndDisplayTotalCost() {
         String durationStr = editDuration.getText().toString();
@@ -0,0 +1,135 @@
+package com.s23010409.parknow;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RowMappers
+ * Turns DatabaseHelper cursors into models. Each Binder looks up the column indices of one cursor
+ * once and returns a Mapper that only calls the typed getters, so a row costs no name lookups.
+ * The cursors come from DatabaseHelper's explicit projections; mappers never close them,
+ * the caller does (with try-with-resources).
+ */
+final class RowMappers {
+
+    /**
+     * Reads the current row of the cursor it was bound to.
+     */
+    interface Mapper<T> {
+        T map(Cursor cursor);
+    }
+
+    /**
+     * Resolves the column indices a Mapper needs from one cursor.
+     */
+    interface Binder<T> {
+        Mapper<T> bind(Cursor cursor);
+    }
+
+    /** Rows of the reservation queries, which carry the spot name from Spots. */
+    static final Binder<ReservationModel> RESERVATION = cursor -> {
+        int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RES_ID);
+        int userIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID);
+        int spotIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+        int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_NAME);
+        int timeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_TIMESTAMP);
+        return c -> new ReservationModel(c.getInt(idIndex), c.getInt(userIndex), c.getInt(spotIndex),
+                c.getString(nameIndex), c.getLong(timeIndex));
+    };
+
+    static final Binder<ParkingSpotModel> SPOT = cursor -> {
+        int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+        int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_NAME);
+        int latIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_LATITUDE);
+        int lngIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_LONGITUDE);
+        int availabilityIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_AVAILABILITY);
+        int priceIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_PRICE_PER_HOUR);
+        int descriptionIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_DESCRIPTION);
+        return c -> new ParkingSpotModel(c.getInt(idIndex), c.getString(nameIndex), c.getDouble(latIndex),
+                c.getDouble(lngIndex), c.getInt(availabilityIndex), c.getDouble(priceIndex), c.getString(descriptionIndex));
+    };
+
+    /** User rows; the projection leaves out the password. */
+    static final Binder<UserModel> USER = cursor -> {
+        int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID);
+        int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_NAME);
+        int emailIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EMAIL);
+        int imageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_PROFILE_IMAGE);
+        return c -> new UserModel(c.getInt(idIndex), c.getString(nameIndex), c.getString(emailIndex),
+                c.getString(imageIndex));
+    };
+
+    static final Binder<FeedbackModel> FEEDBACK = cursor -> {
+        int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_FEEDBACK_ID);
+        int userIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID);
+        int spotIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+        int subjectIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SUBJECT);
+        int messageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_MESSAGE);
+        int ratingIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING);
+        int timeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_TIMESTAMP);
+        // getInt maps a NULL SpotID (general feedback) to GENERAL_RATING_SPOT_ID, i.e. 0
+        return c -> new FeedbackModel(c.getInt(idIndex), c.getInt(userIndex), c.getInt(spotIndex),
+                c.getString(subjectIndex), c.getString(messageIndex), c.getFloat(ratingIndex), c.getLong(timeIndex));
+    };
+
+    /** Rows of the feedback search: the feedback columns plus the match count and snippet. */
+    static final Binder<FeedbackSearchResult> FEEDBACK_SEARCH_RESULT = cursor -> {
+        Mapper<FeedbackModel> feedback = FEEDBACK.bind(cursor);
+        int matchCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_MATCH_COUNT);
+        int snippetIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SNIPPET);
+        return c -> new FeedbackSearchResult(feedback.map(c), c.getInt(matchCountIndex), c.getString(snippetIndex));
+    };
+
+    static final Binder<RatingSummaryModel> RATING_SUMMARY = cursor -> {
+        int spotIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SPOT_ID);
+        int countIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_COUNT);
+        int sumIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_RATING_SUM);
+        int[] starIndexes = new int[5];
+        for (int stars = 1; stars <= 5; stars++) {
+            starIndexes[stars - 1] = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_STARS_PREFIX + stars);
+        }
+        return c -> {
+            int[] starCounts = new int[5];
+            for (int i = 0; i < 5; i++) {
+                starCounts[i] = c.getInt(starIndexes[i]);
+            }
+            return new RatingSummaryModel(c.getInt(spotIndex), c.getInt(countIndex), c.getDouble(sumIndex), starCounts);
+        };
+    };
+
+    private RowMappers() {
+    }
+
+    /**
+     * Maps every remaining row of a cursor.
+     *
+     * @param cursor The cursor, or null (a failed query), which gives an empty list.
+     * @return The models, in cursor order, in a list the caller may modify.
+     */
+    static <T> List<T> readAll(Cursor cursor, Binder<T> binder) {
+        if (cursor == null) {
+            return new ArrayList<>();
+        }
+        List<T> rows = new ArrayList<>(Math.max(0, cursor.getCount()));
+        Mapper<T> mapper = binder.bind(cursor);
+        while (cursor.moveToNext()) {
+            rows.add(mapper.map(cursor));
+        }
+        return rows;
+    }
+
+    /**
+     * Maps the first row of a cursor.
+     *
+     * @param cursor The cursor, or null (a failed query).
+     * @return The model, or null if there is no row.
+     */
+    static <T> T readFirst(Cursor cursor, Binder<T> binder) {
+        if (cursor == null || !cursor.moveToFirst()) {
+            return null;
+        }
+        return binder.bind(cursor).map(cursor);
+    }
+}
@@ -3,6 +3,7 @@ package com.s23010409.parknow;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.graphics.Typeface;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MenuItem;
@@ -13,6 +14,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate; // Import AppCompatDelegate
 import androidx.drawerlayout.widget.DrawerLayout;
@@ -21,6 +23,10 @@ import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Locale;
+
 public class SettingsActivity extends AppCompatActivity {
 
     private static final String TAG = "SettingsActivity";
@@ -146,6 +152,10 @@ public class SettingsActivity extends AppCompatActivity {
             });
             Log.d(TAG, "onCreate: Dark mode switch listener set.");
 
+            setupDatabaseTiming();
+            setupDatabaseMaintenance();
+            setupDatabaseSnapshots();
+
 
             setupBottomNavigation();
             Log.d(TAG, "onCreate: setupBottomNavigation completed.");
@@ -157,6 +167,139 @@ public class SettingsActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Wires the developer switch that turns database timing on for this app process,
+     * and the entry that shows what has been recorded.
+     */
+    private void setupDatabaseTiming() {
+        DatabaseMetrics metrics = ParkNowRepository.getInstance(this).getDatabaseMetrics();
+        Switch switchDatabaseTiming = findViewById(R.id.switchDatabaseTiming);
+        switchDatabaseTiming.setChecked(metrics.isEnabled());
+        switchDatabaseTiming.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            metrics.setEnabled(isChecked);
+            Log.d(TAG, "Database timing " + (isChecked ? "enabled" : "disabled"));
+        });
+
+        findViewById(R.id.textDatabaseTimings).setOnClickListener(v -> {
+            TextView report = new TextView(this);
+            report.setTypeface(Typeface.MONOSPACE);
+            report.setTextSize(10);
+            report.setHorizontallyScrolling(true);
+            int padding = (int) (16 * getResources().getDisplayMetrics().density);
+            report.setPadding(padding, padding, padding, padding);
+            report.setText(metrics.report());
+            new AlertDialog.Builder(this)
+                    .setTitle("Database Timings")
+                    .setView(report)
+                    .setPositiveButton("Close", null)
+                    .setNeutralButton("Reset", (dialog, which) -> metrics.reset())
+                    .show();
+        });
+    }
+
+    /**
+     * Wires the developer entry that archives old reservations and compacts the database now,
+     * then shows how much space that reclaimed.
+     */
+    private void setupDatabaseMaintenance() {
+        TextView textCompactDatabase = findViewById(R.id.textCompactDatabase);
+        textCompactDatabase.setOnClickListener(v -> {
+            textCompactDatabase.setEnabled(false);
+            int retentionDays = getSharedPreferences(PREFS_NAME, MODE_PRIVATE).getInt(
+                    ParkNowRepository.PREF_RESERVATION_RETENTION_DAYS, ParkNowRepository.DEFAULT_RESERVATION_RETENTION_DAYS);
+            if (retentionDays < 0) {
+                textCompactDatabase.setEnabled(true);
+                Toast.makeText(this, "Invalid retention period: " + retentionDays + " days.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            ParkNowRepository.getInstance(this).runMaintenance(this, retentionDays, report -> {
+                textCompactDatabase.setEnabled(true);
+                if (report == null) {
+                    Toast.makeText(this, "Database maintenance failed.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Database Maintenance")
+                        .setMessage(String.format(Locale.US,
+                                "Archived %d reservations older than %d days.\nDatabase size: %.1f KB -> %.1f KB\nReclaimed: %.1f KB",
+                                report.getArchivedReservations(), retentionDays, report.getSizeBeforeBytes() / 1024.0,
+                                report.getSizeAfterBytes() / 1024.0, report.getReclaimedBytes() / 1024.0))
+                        .setPositiveButton("Close", null)
+                        .show();
+            });
+        });
+    }
+
+    /**
+     * Wires the developer entries that snapshot the database and restore one of the kept snapshots.
+     * A restore is staged and takes over when the app restarts, which the dialog offers to do right away.
+     */
+    private void setupDatabaseSnapshots() {
+        ParkNowRepository repository = ParkNowRepository.getInstance(this);
+        TextView textBackupDatabase = findViewById(R.id.textBackupDatabase);
+        textBackupDatabase.setOnClickListener(v -> {
+            textBackupDatabase.setEnabled(false);
+            repository.createSnapshot(this, this, snapshot -> {
+                textBackupDatabase.setEnabled(true);
+                Toast.makeText(this, snapshot == null ? "Database backup failed."
+                        : "Database backed up (" + snapshot.length() / 1024 + " KB).", Toast.LENGTH_SHORT).show();
+            });
+        });
+
+        TextView textRestoreDatabase = findViewById(R.id.textRestoreDatabase);
+        textRestoreDatabase.setOnClickListener(v -> repository.getSnapshots(this, this, snapshots -> {
+            if (snapshots.isEmpty()) {
+                Toast.makeText(this, "No database backups yet.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String[] names = new String[snapshots.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = String.format(Locale.US, "%s (%.1f KB)", snapshots.get(i).getName(),
+                        snapshots.get(i).length() / 1024.0);
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle("Restore Database Backup")
+                    .setItems(names, (dialog, which) -> repository.stageRestore(this, snapshots.get(which), staged -> {
+                        if (!staged) {
+                            Toast.makeText(this, "This backup is damaged and cannot be restored.", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        new AlertDialog.Builder(this)
+                                .setTitle("Restore Database Backup")
+                                .setMessage("The backup replaces the current data when ParkNow restarts. "
+                                        + "Changes made until then are lost.")
+                                .setPositiveButton("Restart Now", (restartDialog, button) -> restartApp())
+                                .setNegativeButton("Later", null)
+                                .show();
+                    }))
+                    .setNegativeButton("Cancel", null)
+                    .show();
+        }));
+    }
+
+    /**
+     * Starts the app afresh in a new process, so the database is reopened and a staged restore applied.
+     */
+    private void restartApp() {
+        Intent launch = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        if (launch == null || launch.getComponent() == null) {
+            return;
+        }
+        startActivity(Intent.makeRestartActivityTask(launch.getComponent()));
+        Runtime.getRuntime().exit(0);
+    }
+
+    /**
+     * Adds the database timings to "adb shell dumpsys activity com.s23010409.parknow/.SettingsActivity"
+     * while this screen is open.
+     */
+    @Override
+    public void dump(@NonNull String prefix, FileDescriptor fd, @NonNull PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Database timings:");
+        writer.print(ParkNowRepository.getInstance(this).getDatabaseMetrics().report());
+    }
+
     private void setupBottomNavigation() {
         BottomNavigationView bottomNav = findViewById(R.id.bottom_navigation);
         if (bottomNav == null) {
@@ -1,7 +1,6 @@
 package com.s23010409.parknow;
 
 import android.content.Intent;
-import android.database.Cursor; // <--- Added this import
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.widget.Button;
@@ -18,14 +17,14 @@ public class SignupActivity extends AppCompatActivity {
     private EditText signupName, signupEmail, signupPassword, signupConfirmPassword;
     private Button buttonSignup;
     private TextView textLogin;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_signup);
 
-        db = new DatabaseHelper(this);
+        repository = ParkNowRepository.getInstance(this);
 
         // Setup toolbar
         MaterialToolbar toolbar = findViewById(R.id.topAppBar);
@@ -59,30 +58,21 @@ public class SignupActivity extends AppCompatActivity {
                 return;
             }
 
-            // Check if email already exists
-            Cursor cursor = null;
-            try {
-                cursor = db.getUserByEmail(email);
-                if (cursor != null && cursor.getCount() > 0) {
+            // Check if email already exists and insert the user in one background task
+            buttonSignup.setEnabled(false);
+            repository.registerUser(this, name, email, password, result -> {
+                buttonSignup.setEnabled(true);
+                if (result == ParkNowRepository.RegistrationResult.EMAIL_TAKEN) {
                     Toast.makeText(this, "Email already registered", Toast.LENGTH_SHORT).show();
-                    return;
+                } else if (result == ParkNowRepository.RegistrationResult.SUCCESS) {
+                    Toast.makeText(this, "Registration Successful", Toast.LENGTH_SHORT).show();
+                    Intent intent = new Intent(SignupActivity.this, LoginActivity.class);
+                    startActivity(intent);
+                    finish();
+                } else {
+                    Toast.makeText(this, "Registration Failed", Toast.LENGTH_SHORT).show();
                 }
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
-            }
-
-
-            boolean isInserted = db.insertUser(name, email, password);
-            if (isInserted) {
-                Toast.makeText(this, "Registration Successful", Toast.LENGTH_SHORT).show();
-                Intent intent = new Intent(SignupActivity.this, LoginActivity.class);
-                startActivity(intent);
-                finish();
-            } else {
-                Toast.makeText(this, "Registration Failed", Toast.LENGTH_SHORT).show();
-            }
+            });
         });
 
         textLogin.setOnClickListener(v -> {
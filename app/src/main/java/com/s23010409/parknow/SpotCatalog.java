@@ -0,0 +1,71 @@
+package com.s23010409.parknow;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpotCatalog
+ * Process-wide, in-memory map of the parking spots by SpotID.
+ * ParkNowRepository fills it whenever it loads the spot list for the map, and with single spots it had
+ * to read on their own, so the screens after the map pass only the SpotID in their Intents and look the
+ * spot (name, position, price, availability) up here instead of carrying copies of it.
+ * Spots rows are never changed in place, so a cached spot stays valid for the life of the process.
+ *
+ * Like FavoritesCache, the map is never mutated: every change swaps in a new unmodifiable copy,
+ * so readers on any thread always see a consistent snapshot.
+ */
+public final class SpotCatalog {
+
+    private static volatile Map<Integer, ParkingSpotModel> spots = Collections.emptyMap();
+
+    private SpotCatalog() {
+        // Static holder, not instantiable
+    }
+
+    /**
+     * Returns a cached spot.
+     *
+     * @param spotId The Spots.SpotID of the spot.
+     * @return The spot, or null if it is not loaded.
+     */
+    public static ParkingSpotModel get(int spotId) {
+        return spots.get(spotId);
+    }
+
+    /**
+     * @return The number of cached spots.
+     */
+    public static int size() {
+        return spots.size();
+    }
+
+    /**
+     * Caches spots read from the Spots table, keeping the ones already cached.
+     */
+    static synchronized void putAll(Collection<ParkingSpotModel> loaded) {
+        if (loaded.isEmpty()) {
+            return;
+        }
+        Map<Integer, ParkingSpotModel> updated = new HashMap<>(spots);
+        for (ParkingSpotModel spot : loaded) {
+            updated.put(spot.getId(), spot);
+        }
+        spots = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * Caches one spot read from the Spots table.
+     */
+    static void put(ParkingSpotModel spot) {
+        putAll(Collections.singletonList(spot));
+    }
+
+    /**
+     * Forgets every cached spot, e.g. in tests.
+     */
+    public static synchronized void clear() {
+        spots = Collections.emptyMap();
+    }
+}
@@ -0,0 +1,220 @@
+package com.s23010409.parknow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpotClusterer
+ * Groups the spots of a SpotIndex into clusters for the map, so a catalog of thousands of spots is drawn
+ * as a few dozen markers. At zoom level z the world map, 256 &lt;&lt; z pixels wide in Web Mercator, is cut
+ * into square cells of CELL_SIZE_PIXELS, and the spots in one cell form a cluster at their mean position.
+ * The grid is anchored to the map, not the screen, so panning never regroups spots, and every cell at
+ * zoom z + 1 lies inside one cell at zoom z: zooming in splits a cluster into the clusters that were
+ * inside it rather than reshuffling everything.
+ * The clusters of a zoom level are computed on first use and kept; later requests only pick the visible ones.
+ * From MAX_CLUSTER_ZOOM on, every spot is its own cluster. Pure Java: use it off the main thread
+ * (ParkNowRepository.getSpotClusters does).
+ */
+public final class SpotClusterer {
+
+    static final int CELL_SIZE_PIXELS = 128; // About the size of two markers side by side
+    static final int MAX_CLUSTER_ZOOM = 16;
+
+    /**
+     * One marker's worth of spots.
+     */
+    public static final class Cluster {
+        private final String key;
+        private final List<ParkingSpotModel> spots;
+        private final double latitude;
+        private final double longitude;
+        private final int totalAvailability;
+        private final double south, west, north, east;
+
+        Cluster(String key, List<ParkingSpotModel> spots) {
+            this.key = key;
+            this.spots = Collections.unmodifiableList(spots);
+            double latSum = 0, lngSum = 0;
+            double minLat = Double.MAX_VALUE, minLng = Double.MAX_VALUE;
+            double maxLat = -Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+            int availability = 0;
+            for (ParkingSpotModel spot : spots) {
+                latSum += spot.getLatitude();
+                lngSum += spot.getLongitude();
+                minLat = Math.min(minLat, spot.getLatitude());
+                maxLat = Math.max(maxLat, spot.getLatitude());
+                minLng = Math.min(minLng, spot.getLongitude());
+                maxLng = Math.max(maxLng, spot.getLongitude());
+                availability += spot.getAvailability();
+            }
+            latitude = latSum / spots.size();
+            longitude = lngSum / spots.size();
+            totalAvailability = availability;
+            south = minLat;
+            west = minLng;
+            north = maxLat;
+            east = maxLng;
+        }
+
+        /**
+         * @return A key that identifies this cluster across requests: "spot:&lt;SpotID&gt;" for a single spot,
+         * so its marker can stay when the zoom changes, otherwise the zoom level and grid cell.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public List<ParkingSpotModel> getSpots() {
+            return spots;
+        }
+
+        public int size() {
+            return spots.size();
+        }
+
+        public boolean isSingleSpot() {
+            return spots.size() == 1;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * @return The sum of the available slots of the spots.
+         */
+        public int getTotalAvailability() {
+            return totalAvailability;
+        }
+
+        // Bounding box of the spots, to zoom the camera to when the cluster is tapped
+        public double getSouth() {
+            return south;
+        }
+
+        public double getWest() {
+            return west;
+        }
+
+        public double getNorth() {
+            return north;
+        }
+
+        public double getEast() {
+            return east;
+        }
+    }
+
+    private final SpotIndex index;
+    private final Map<Integer, List<Cluster>> clustersByZoom = new HashMap<>(); // Guarded by itself
+
+    public SpotClusterer(SpotIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns the clusters at a zoom level whose position is inside a bounding box. The box is widened by
+     * one grid cell on every side, so clusters just off screen are ready when the map is panned.
+     * A box that crosses the antimeridian (west &gt; east) is treated as covering all longitudes.
+     *
+     * @param zoom  The map's zoom level, rounded down; clamped to 0..MAX_CLUSTER_ZOOM.
+     * @param south Minimum latitude.
+     * @param west  Minimum longitude.
+     * @param north Maximum latitude.
+     * @param east  Maximum longitude.
+     * @return The visible clusters, in no particular order.
+     */
+    public List<Cluster> clusters(int zoom, double south, double west, double north, double east) {
+        zoom = Math.max(0, Math.min(zoom, MAX_CLUSTER_ZOOM));
+        double worldSize = 256.0 * (1 << zoom);
+        double margin = CELL_SIZE_PIXELS / worldSize * 360; // One cell, in degrees of longitude
+        if (west > east) {
+            west = -180;
+            east = 180;
+        }
+        // A degree of latitude is at least as many pixels as a degree of longitude in Mercator,
+        // so a longitude margin is wide enough for latitude too
+        south -= margin;
+        north += margin;
+        west -= margin;
+        east += margin;
+
+        List<Cluster> visible = new ArrayList<>();
+        if (zoom == MAX_CLUSTER_ZOOM) {
+            for (ParkingSpotModel spot : index.inBounds(south, west, north, east)) {
+                visible.add(single(spot));
+            }
+            return visible;
+        }
+        for (Cluster cluster : clustersAt(zoom)) {
+            if (cluster.latitude >= south && cluster.latitude <= north
+                    && cluster.longitude >= west && cluster.longitude <= east) {
+                visible.add(cluster);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * All clusters at a zoom level below MAX_CLUSTER_ZOOM, computed in O(n) on first use.
+     */
+    private List<Cluster> clustersAt(int zoom) {
+        synchronized (clustersByZoom) {
+            List<Cluster> cached = clustersByZoom.get(zoom);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        double worldSize = 256.0 * (1 << zoom);
+        Map<Long, List<ParkingSpotModel>> cells = new HashMap<>();
+        for (ParkingSpotModel spot : index.getSpots()) {
+            long cellX = (long) Math.floor(pixelX(spot.getLongitude(), worldSize) / CELL_SIZE_PIXELS);
+            long cellY = (long) Math.floor(pixelY(spot.getLatitude(), worldSize) / CELL_SIZE_PIXELS);
+            long cell = (cellX << 32) | cellY; // At most 2^16 * 256 / 128 = 2^17 cells per axis
+            List<ParkingSpotModel> spots = cells.get(cell);
+            if (spots == null) {
+                spots = new ArrayList<>();
+                cells.put(cell, spots);
+            }
+            spots.add(spot);
+        }
+        List<Cluster> clusters = new ArrayList<>(cells.size());
+        for (Map.Entry<Long, List<ParkingSpotModel>> entry : cells.entrySet()) {
+            List<ParkingSpotModel> spots = entry.getValue();
+            clusters.add(spots.size() == 1 ? single(spots.get(0))
+                    : new Cluster(zoom + "/" + (entry.getKey() >>> 32) + "/" + (entry.getKey() & 0xFFFFFFFFL), spots));
+        }
+        clusters = Collections.unmodifiableList(clusters);
+        synchronized (clustersByZoom) {
+            clustersByZoom.put(zoom, clusters);
+        }
+        return clusters;
+    }
+
+    private static Cluster single(ParkingSpotModel spot) {
+        return new Cluster("spot:" + spot.getId(), Collections.singletonList(spot));
+    }
+
+    /**
+     * Web Mercator x of a longitude, in pixels of a world worldSize pixels wide.
+     */
+    static double pixelX(double longitude, double worldSize) {
+        return (longitude + 180) / 360 * worldSize;
+    }
+
+    /**
+     * Web Mercator y of a latitude (0 at the top), in pixels of a world worldSize pixels wide.
+     * Latitudes are clamped short of the poles, where Mercator goes to infinity.
+     */
+    static double pixelY(double latitude, double worldSize) {
+        double sin = Math.max(-0.9999, Math.min(0.9999, Math.sin(Math.toRadians(latitude))));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+    }
+}
@@ -0,0 +1,197 @@
+package com.s23010409.parknow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * SpotIndex
+ * An immutable 2-d tree over the coordinates of a loaded spot catalog, answering bounding-box
+ * and k-nearest queries in logarithmic rather than linear time, e.g. on every camera move.
+ *
+ * The tree is implicit: the spots are stored in one array, and the median of each range
+ * (alternately by latitude and by longitude) sits in the middle of it. Distances for the nearest
+ * search use an equirectangular projection around the query point, which is accurate to well
+ * under 1% across Sri Lanka; {@link #distanceMeters} gives the great-circle distance for display.
+ * Build it off the main thread (ParkNowRepository.getSpotIndex does).
+ */
+public final class SpotIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private static final Comparator<ParkingSpotModel> BY_LATITUDE = (a, b) -> Double.compare(a.getLatitude(), b.getLatitude());
+    private static final Comparator<ParkingSpotModel> BY_LONGITUDE = (a, b) -> Double.compare(a.getLongitude(), b.getLongitude());
+
+    private final ParkingSpotModel[] tree;
+
+    private SpotIndex(ParkingSpotModel[] tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Builds the index in O(n log² n).
+     *
+     * @param spots The spots to index; the list is not modified.
+     * @return The index.
+     */
+    public static SpotIndex build(List<ParkingSpotModel> spots) {
+        ParkingSpotModel[] tree = spots.toArray(new ParkingSpotModel[0]);
+        arrange(tree, 0, tree.length, 0);
+        return new SpotIndex(tree);
+    }
+
+    /**
+     * Sorts tree[from, to) on the axis of this depth, then does the same for the halves either side of the median.
+     */
+    private static void arrange(ParkingSpotModel[] tree, int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        Arrays.sort(tree, from, to, depth % 2 == 0 ? BY_LATITUDE : BY_LONGITUDE);
+        int mid = (from + to) >>> 1;
+        arrange(tree, from, mid, depth + 1);
+        arrange(tree, mid + 1, to, depth + 1);
+    }
+
+    public int size() {
+        return tree.length;
+    }
+
+    /**
+     * @return All indexed spots, in no particular order.
+     */
+    public List<ParkingSpotModel> getSpots() {
+        return Collections.unmodifiableList(Arrays.asList(tree));
+    }
+
+    /**
+     * Finds the spots inside a bounding box (edges included).
+     *
+     * @param south Minimum latitude.
+     * @param west  Minimum longitude.
+     * @param north Maximum latitude.
+     * @param east  Maximum longitude.
+     * @return The spots inside, in no particular order.
+     */
+    public List<ParkingSpotModel> inBounds(double south, double west, double north, double east) {
+        List<ParkingSpotModel> result = new ArrayList<>();
+        collectInBounds(0, tree.length, 0, south, west, north, east, result);
+        return result;
+    }
+
+    private void collectInBounds(int from, int to, int depth, double south, double west, double north, double east,
+                                 List<ParkingSpotModel> result) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        ParkingSpotModel spot = tree[mid];
+        double lat = spot.getLatitude();
+        double lng = spot.getLongitude();
+        if (lat >= south && lat <= north && lng >= west && lng <= east) {
+            result.add(spot);
+        }
+        // Equal values can sit on either side of the median, hence <= and >=
+        double value = depth % 2 == 0 ? lat : lng;
+        double min = depth % 2 == 0 ? south : west;
+        double max = depth % 2 == 0 ? north : east;
+        if (min <= value) {
+            collectInBounds(from, mid, depth + 1, south, west, north, east, result);
+        }
+        if (max >= value) {
+            collectInBounds(mid + 1, to, depth + 1, south, west, north, east, result);
+        }
+    }
+
+    /**
+     * Finds the k spots nearest to a point.
+     *
+     * @param latitude  Latitude of the point, e.g. the user's location.
+     * @param longitude Longitude of the point.
+     * @param k         Maximum number of spots to return.
+     * @return Up to k spots, nearest first.
+     */
+    public List<ParkingSpotModel> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || tree.length == 0) {
+            return new ArrayList<>();
+        }
+        NearestSearch search = new NearestSearch(latitude, longitude, k);
+        search.visit(0, tree.length, 0);
+        List<ParkingSpotModel> result = new ArrayList<>(search.best.size());
+        while (!search.best.isEmpty()) {
+            result.add(search.best.poll().spot);
+        }
+        Collections.reverse(result); // The heap gives the farthest first
+        return result;
+    }
+
+    /**
+     * State of one k-nearest search: the query point and a max-heap of the best candidates so far.
+     */
+    private final class NearestSearch {
+        final double latitude;
+        final double longitude;
+        final double lngScale; // Degrees of longitude are shorter than degrees of latitude away from the equator
+        final int k;
+        final PriorityQueue<Candidate> best;
+
+        NearestSearch(double latitude, double longitude, int k) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.lngScale = Math.cos(Math.toRadians(latitude));
+            this.k = k;
+            this.best = new PriorityQueue<>(k, (a, b) -> Double.compare(b.distance, a.distance));
+        }
+
+        void visit(int from, int to, int depth) {
+            if (from >= to) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            ParkingSpotModel spot = tree[mid];
+            double dLat = spot.getLatitude() - latitude;
+            double dLng = (spot.getLongitude() - longitude) * lngScale;
+            double distance = dLat * dLat + dLng * dLng;
+            if (best.size() < k) {
+                best.add(new Candidate(spot, distance));
+            } else if (distance < best.peek().distance) {
+                best.poll();
+                best.add(new Candidate(spot, distance));
+            }
+
+            // Search the half containing the point first, then the other half only if it can hold something closer
+            double gap = depth % 2 == 0 ? -dLat : -dLng;
+            boolean pointBelow = gap < 0;
+            visit(pointBelow ? from : mid + 1, pointBelow ? mid : to, depth + 1);
+            if (best.size() < k || gap * gap <= best.peek().distance) {
+                visit(pointBelow ? mid + 1 : from, pointBelow ? to : mid, depth + 1);
+            }
+        }
+    }
+
+    private static final class Candidate {
+        final ParkingSpotModel spot;
+        final double distance; // Squared, in projected degrees
+
+        Candidate(ParkingSpotModel spot, double distance) {
+            this.spot = spot;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Great-circle (haversine) distance between two points.
+     *
+     * @return The distance in meters.
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.s23010409.parknow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * TableChangeNotifier
+ * Tells listeners which tables a DatabaseHelper write changed, once the write has committed,
+ * so observed queries (see ParkNowRepository) know when their results are stale.
+ * Listeners are called on the writing thread and must return quickly, e.g. by posting to a Handler.
+ */
+public final class TableChangeNotifier {
+
+    /**
+     * Receives the tables changed by one committed write.
+     */
+    public interface Listener {
+        void onTablesChanged(Set<String> tables);
+    }
+
+    private static final class Registration {
+        final Set<String> tables;
+        final Listener listener;
+
+        Registration(Set<String> tables, Listener listener) {
+            this.tables = tables;
+            this.listener = listener;
+        }
+    }
+
+    // Registrations change rarely (when a screen starts or ends) compared to how often writes notify
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener for changes to any of the given tables.
+     *
+     * @param tables   Table names, e.g. DatabaseHelper.TABLE_FAVORITES.
+     * @param listener The listener; register each listener only once.
+     */
+    public void addListener(Collection<String> tables, Listener listener) {
+        registrations.add(new Registration(Collections.unmodifiableSet(new HashSet<>(tables)), listener));
+    }
+
+    public void removeListener(Listener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * Notifies every listener registered for at least one of the tables.
+     *
+     * @param tables The tables a committed write changed.
+     */
+    public void notifyChanged(String... tables) {
+        Set<String> changed = null;
+        for (Registration registration : registrations) {
+            for (String table : tables) {
+                if (registration.tables.contains(table)) {
+                    if (changed == null) {
+                        changed = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(tables)));
+                    }
+                    registration.listener.onTablesChanged(changed);
+                    break;
+                }
+            }
+        }
+    }
+}
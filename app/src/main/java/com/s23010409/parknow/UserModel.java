@@ -0,0 +1,70 @@
+package com.s23010409.parknow;
+
+/**
+ * UserModel
+ * A data model class to represent a registered user.
+ * This class holds the user's ID, display name, email and the URI of the
+ * profile image (which may be null if the user has not picked one yet).
+ * The password is intentionally not carried around in memory.
+ */
+public class UserModel {
+
+    private int id; // Primary key for the user in the database
+    private String name;
+    private String email;
+    private String profileImage; // URI string of the profile image, may be null
+
+    /**
+     * Constructor for UserModel.
+     *
+     * @param id           The unique ID of the user.
+     * @param name         The user's display name.
+     * @param email        The user's email address.
+     * @param profileImage The URI string of the user's profile image, or null.
+     */
+    public UserModel(int id, String name, String email, String profileImage) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.profileImage = profileImage;
+    }
+
+    // --- Getters ---
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getProfileImage() {
+        return profileImage;
+    }
+
+    // --- Setters ---
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setProfileImage(String profileImage) {
+        this.profileImage = profileImage;
+    }
+
+    /**
+     * Provides a string representation of the UserModel, useful for debugging.
+     * @return A string containing the user's ID, name and email.
+     */
+    @Override
+    public String toString() {
+        return "User ID: " + id +
+                ", Name: " + name +
+                ", Email: " + email;
+    }
+}
@@ -1,7 +1,6 @@
 package com.s23010409.parknow;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log; // Import Log for debugging
 import android.view.MenuItem;
@@ -24,7 +23,7 @@ public class UserProfileActivity extends AppCompatActivity {
     private static final String TAG = "UserProfileActivity"; // Tag for Logcat
     private TextView profileName, profileEmail; // Corrected TextView variable names
     private Button buttonEditProfile, buttonLogout, buttonMyReservations;
-    private DatabaseHelper db;
+    private ParkNowRepository repository;
     private String currentUserEmail;
 
     // Drawer and Toolbar elements
@@ -45,7 +44,7 @@ public class UserProfileActivity extends AppCompatActivity {
             setContentView(R.layout.activity_user_profile);
             Log.d(TAG, "onCreate: Layout set successfully.");
 
-            db = new DatabaseHelper(this);
+            repository = ParkNowRepository.getInstance(this);
 
             // Get user email from intent
             currentUserEmail = getIntent().getStringExtra("USER_EMAIL");
@@ -149,7 +148,8 @@ public class UserProfileActivity extends AppCompatActivity {
 
             buttonLogout.setOnClickListener(v -> {
                 Log.d(TAG, "Logout button clicked. Logging out user: " + currentUserEmail);
-                // Clear user session (if any) and navigate to LoginActivity
+                // Clear user session and navigate to LoginActivity
+                UserSession.clear();
                 Intent intent = new Intent(UserProfileActivity.this, LoginActivity.class);
                 intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK); // Clear back stack
                 startActivity(intent);
@@ -169,29 +169,16 @@ public class UserProfileActivity extends AppCompatActivity {
 
     private void loadUserData() {
         Log.d(TAG, "loadUserData() called for email: " + currentUserEmail);
-        Cursor cursor = null;
-        try {
-            cursor = db.getUserByEmail(currentUserEmail);
-            if (cursor != null && cursor.moveToFirst()) {
-                String name = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_NAME));
-                String email = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EMAIL));
-
-                profileName.setText(name);
-                profileEmail.setText(email);
-                Log.d(TAG, "User data loaded: Name=" + name + ", Email=" + email);
+        repository.getSessionUser(this, currentUserEmail, user -> {
+            if (user != null) {
+                profileName.setText(user.getName());
+                profileEmail.setText(user.getEmail());
+                Log.d(TAG, "User data loaded: Name=" + user.getName() + ", Email=" + user.getEmail());
             } else {
                 Toast.makeText(this, "User data not found!", Toast.LENGTH_SHORT).show();
                 Log.w(TAG, "User data not found for email: " + currentUserEmail);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading user data: " + e.getMessage(), e);
-            Toast.makeText(this, "Error loading user data.", Toast.LENGTH_SHORT).show();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-                Log.d(TAG, "loadUserData: Cursor closed.");
-            }
-        }
+        });
     }
 
     @Override
@@ -0,0 +1,77 @@
+package com.s23010409.parknow;
+
+import android.util.Log;
+
+/**
+ * UserSession
+ * Process-wide, in-memory record of the signed-in user.
+ * It is filled once at login (or lazily by ParkNowRepository if the process was
+ * recreated and a screen is restored from its Intent), so screens can get the
+ * UserID, name and profile image without going back to the Users table.
+ *
+ * The stored UserModel is never mutated: every change swaps in a new instance,
+ * so readers on any thread always see a consistent snapshot.
+ */
+public final class UserSession {
+
+    private static final String TAG = "UserSession";
+
+    private static volatile UserModel currentUser;
+
+    private UserSession() {
+        // Static holder, not instantiable
+    }
+
+    /**
+     * Starts a session for a user that has just been authenticated or loaded.
+     *
+     * @param user The resolved user record.
+     */
+    public static void start(UserModel user) {
+        currentUser = user;
+        Log.d(TAG, "Session started for UserID " + user.getId());
+    }
+
+    /**
+     * Returns the cached user if the session belongs to the given email.
+     *
+     * @param email The email the calling screen was started with.
+     * @return The cached user, or null if there is no session for that email.
+     */
+    public static UserModel getUser(String email) {
+        UserModel user = currentUser;
+        if (user != null && user.getEmail() != null && user.getEmail().equalsIgnoreCase(email)) {
+            return user;
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the cached name after Users.Name has been updated.
+     */
+    public static synchronized void onNameUpdated(String email, String newName) {
+        UserModel user = getUser(email);
+        if (user != null) {
+            currentUser = new UserModel(user.getId(), newName, user.getEmail(), user.getProfileImage());
+        }
+    }
+
+    /**
+     * Replaces the cached profile image after Users.ProfileImage has been updated.
+     */
+    public static synchronized void onProfileImageUpdated(int userId, String imageUriString) {
+        UserModel user = currentUser;
+        if (user != null && user.getId() == userId) {
+            currentUser = new UserModel(user.getId(), user.getName(), user.getEmail(), imageUriString);
+        }
+    }
+
+    /**
+     * Forgets the signed-in user, e.g. on logout, together with their cached favorites.
+     */
+    public static void clear() {
+        currentUser = null;
+        FavoritesCache.clear();
+        Log.d(TAG, "Session cleared.");
+    }
+}
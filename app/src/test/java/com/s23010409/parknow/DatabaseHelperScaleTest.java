@@ -0,0 +1,210 @@
+package com.s23010409.parknow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times DatabaseHelper's hot paths against a data set from SyntheticDataGenerator and fails if the 95th
+ * percentile latency of any of them goes over its budget for that scale. Runs on the JVM under Robolectric
+ * with the real SQLite, so it needs no device. Timings depend on the machine, so it is skipped unless a
+ * scale is asked for:
+ * ./gradlew testDebugUnitTest --tests '*DatabaseHelperScaleTest' -Pparknow.scale=small
+ * Use -Pparknow.scale=large for 100k users and 10M reservations (several minutes), and
+ * -Pparknow.budgetFactor=2 to allow a slow machine twice the time.
+ * When an operation is over budget, the failure message lists the timings of all of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperScaleTest {
+
+    private static final String DATABASE_NAME = "parkNow-scale.db";
+    private static final long SEED = 20260101L;
+    private static final int WARMUP = 50;
+    private static final int SAMPLES = 500;
+    private static final int PAGE_SIZE = 20;
+
+    // 95th percentile budgets in microseconds at the small and large scale
+    private static final Budget[] BUDGETS = {
+            new Budget("checkUser", 500, 1_000),
+            new Budget("getUserIdByEmail", 500, 1_000),
+            new Budget("isSpotFavorite", 500, 1_000),
+            new Budget("getReservationsByUser", 5_000, 20_000),
+            new Budget("getReservationsPage (busiest user)", 2_000, 3_000),
+            new Budget("getFavoriteSpotsByUser", 2_000, 3_000),
+            new Budget("getSpotsInBounds", 5_000, 10_000),
+            new Budget("getRatingSummary", 500, 1_000),
+            new Budget("searchFeedback", 10_000, 50_000),
+            new Budget("insertReservation", 2_000, 3_000),
+    };
+
+    private SyntheticDataGenerator.Scale scale;
+    private DatabaseHelper helper;
+    private SyntheticDataGenerator.Population population;
+    private long generatedMillis;
+    private final Random random = new Random(SEED);
+
+    private interface Operation {
+        void run();
+    }
+
+    private static final class Budget {
+        final String operation;
+        final long smallMicros;
+        final long largeMicros;
+
+        Budget(String operation, long smallMicros, long largeMicros) {
+            this.operation = operation;
+            this.smallMicros = smallMicros;
+            this.largeMicros = largeMicros;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Set -Pparknow.scale=small or large to run the scale tests",
+                System.getProperty("parknow.scale") != null);
+        Context context = RuntimeEnvironment.getApplication();
+        SQLiteDatabase.deleteDatabase(context.getDatabasePath(DATABASE_NAME));
+        scale = SyntheticDataGenerator.Scale.fromSystemProperty();
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+
+        long start = System.currentTimeMillis();
+        population = new SyntheticDataGenerator(SEED, scale).populate(helper);
+        helper.getWritableDatabase().execSQL("ANALYZE"); // As the prebuilt database ships with statistics
+        generatedMillis = System.currentTimeMillis() - start;
+    }
+
+    @After
+    public void tearDown() {
+        if (helper == null) {
+            return; // Skipped
+        }
+        helper.close();
+        SQLiteDatabase.deleteDatabase(RuntimeEnvironment.getApplication().getDatabasePath(DATABASE_NAME));
+    }
+
+    @Test
+    public void hotPaths_stayWithinBudget() {
+        double budgetFactor = Double.parseDouble(System.getProperty("parknow.budgetFactor", "1"));
+        List<String> overBudget = new ArrayList<>();
+        StringBuilder report = new StringBuilder(String.format(Locale.US, "Generated %s in %d s.%n%-36s %8s %8s %8s %8s%n",
+                scale, generatedMillis / 1000, "Operation (" + scale.name + ")", "p50 us", "p95 us", "max us", "budget"));
+        for (Budget budget : BUDGETS) {
+            long[] micros = time(operation(budget.operation));
+            long p95 = micros[(int) Math.ceil(micros.length * 0.95) - 1];
+            long allowed = (long) ((scale == SyntheticDataGenerator.Scale.LARGE ? budget.largeMicros : budget.smallMicros)
+                    * budgetFactor);
+            report.append(String.format(Locale.US, "%-36s %8d %8d %8d %8d%n", budget.operation,
+                    micros[micros.length / 2], p95, micros[micros.length - 1], allowed));
+            if (p95 > allowed) {
+                overBudget.add(budget.operation + ": p95 " + p95 + " us > " + allowed + " us");
+            }
+        }
+        assertTrue("Over budget at " + scale + ":\n" + String.join("\n", overBudget) + "\n\n" + report,
+                overBudget.isEmpty());
+    }
+
+    /**
+     * The call to time for a budget, each run with a different, seeded choice of user or spot.
+     * Users are picked uniformly, i.e. mostly ordinary users, except where the name says otherwise.
+     */
+    private Operation operation(String name) {
+        switch (name) {
+            case "checkUser":
+                return () -> {
+                    int user = random.nextInt(scale.users);
+                    assertTrue(helper.checkUser(SyntheticDataGenerator.email(user), SyntheticDataGenerator.password(user)));
+                };
+            case "getUserIdByEmail":
+                return () -> {
+                    int user = random.nextInt(scale.users);
+                    assertEquals(population.userIds[user], helper.getUserIdByEmail(SyntheticDataGenerator.email(user)));
+                };
+            case "isSpotFavorite":
+                return () -> helper.isSpotFavorite(randomUserId(), randomSpotId());
+            case "getReservationsByUser":
+                return () -> drain(helper.getReservationsByUser(randomUserId()));
+            case "getReservationsPage (busiest user)":
+                return () -> assertEquals(PAGE_SIZE, drain(helper.getReservationsPage(population.busiestUserId, null, PAGE_SIZE)));
+            case "getFavoriteSpotsByUser":
+                return () -> drain(helper.getFavoriteSpotsByUser(randomUserId()));
+            case "getSpotsInBounds":
+                return () -> {
+                    double south = 6.75 + random.nextDouble() * 0.33;
+                    double west = 79.82 + random.nextDouble() * 0.18;
+                    drain(helper.getSpotsInBounds(south, west, south + 0.02, west + 0.02));
+                };
+            case "getRatingSummary":
+                return () -> drain(helper.getRatingSummary(randomSpotId()));
+            case "searchFeedback":
+                return () -> drain(helper.searchFeedback(random.nextBoolean() ? "gate" : "location", null, PAGE_SIZE));
+            case "insertReservation":
+                return () -> assertTrue(helper.insertReservation(randomUserId(), randomSpotId(),
+                        SyntheticDataGenerator.END_MILLIS + random.nextInt(30 * 24) * 60 * 60 * 1000L));
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    /**
+     * Runs the operation WARMUP times untimed, then SAMPLES times timed.
+     *
+     * @return The microseconds each timed call took, sorted.
+     */
+    private static long[] time(Operation operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] micros = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    /**
+     * Reads every row, since a query only runs when its cursor is first moved, and closes the cursor.
+     *
+     * @return The number of rows.
+     */
+    private static int drain(Cursor cursor) {
+        assertNotNull(cursor);
+        try (Cursor rows = cursor) {
+            int count = 0;
+            while (rows.moveToNext()) {
+                rows.getString(0);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private int randomUserId() {
+        return population.userIds[random.nextInt(population.userIds.length)];
+    }
+
+    private int randomSpotId() {
+        return population.spotIds[random.nextInt(population.spotIds.length)];
+    }
+}
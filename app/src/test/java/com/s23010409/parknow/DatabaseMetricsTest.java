@@ -0,0 +1,80 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for DatabaseMetrics: nothing is recorded while disabled, and counts,
+ * errors and percentiles come out of the histogram within its bucket precision.
+ */
+public class DatabaseMetricsTest {
+
+    private final DatabaseMetrics metrics = new DatabaseMetrics();
+
+    @Test
+    public void disabled_recordsNothing() {
+        long start = metrics.start();
+        assertEquals(DatabaseMetrics.NOT_TIMED, start);
+        metrics.record("getAllSpots", start, true);
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void enabled_countsCallsAndErrors() {
+        metrics.setEnabled(true);
+        for (int i = 0; i < 10; i++) {
+            metrics.record("insertFavoriteSpot", metrics.start(), i % 5 != 0);
+        }
+        List<DatabaseMetrics.OperationSnapshot> snapshots = metrics.snapshot();
+        assertEquals(1, snapshots.size());
+        assertEquals("insertFavoriteSpot", snapshots.get(0).operation);
+        assertEquals(10, snapshots.get(0).count);
+        assertEquals(2, snapshots.get(0).errors);
+
+        metrics.reset();
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        // 1 ms .. 1000 ms, one call each
+        for (int ms = 1; ms <= 1000; ms++) {
+            metrics.recordMicros("searchFeedback", ms * 1000L, true);
+        }
+        DatabaseMetrics.OperationSnapshot snapshot = metrics.snapshot().get(0);
+        assertWithinQuarter(500_000, snapshot.p50Micros);
+        assertWithinQuarter(950_000, snapshot.p95Micros);
+        assertWithinQuarter(990_000, snapshot.p99Micros);
+        assertEquals(1_000_000, snapshot.maxMicros);
+        assertTrue(snapshot.p99Micros <= snapshot.maxMicros);
+    }
+
+    @Test
+    public void buckets_coverEveryLatencyInOrder() {
+        int previous = DatabaseMetrics.bucketOf(0);
+        for (long micros = 1; micros < 1_000_000; micros++) {
+            int bucket = DatabaseMetrics.bucketOf(micros);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(micros <= DatabaseMetrics.bucketUpperBound(bucket));
+            assertTrue(bucket == 0 || micros > DatabaseMetrics.bucketUpperBound(bucket - 1));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void report_listsSlowestOperationFirst() {
+        metrics.setEnabled(true);
+        metrics.recordMicros("getSpotById", 100, true);
+        metrics.recordMicros("getAllReservations", 50_000, true);
+        String report = metrics.report();
+        assertTrue(report, report.indexOf("getAllReservations") < report.indexOf("getSpotById"));
+    }
+
+    private static void assertWithinQuarter(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 4);
+    }
+}
@@ -0,0 +1,61 @@
+package com.s23010409.parknow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FavoritesCache: loading, write-through updates, and that a load
+ * overlapping a write is not cached.
+ */
+public class FavoritesCacheTest {
+
+    @Before
+    public void setUp() {
+        FavoritesCache.clear();
+    }
+
+    @Test
+    public void get_returnsNullUntilLoaded() {
+        assertNull(FavoritesCache.get(1));
+        assertTrue(FavoritesCache.finishLoad(1, FavoritesCache.beginLoad(), ids(3, 5)));
+        assertEquals(ids(3, 5), FavoritesCache.get(1));
+        assertNull(FavoritesCache.get(2)); // Only the loaded user is cached
+    }
+
+    @Test
+    public void writes_updateLoadedSet() {
+        FavoritesCache.finishLoad(1, FavoritesCache.beginLoad(), ids(3));
+        FavoritesCache.onAdded(1, 7);
+        FavoritesCache.onRemoved(1, 3);
+        assertEquals(ids(7), FavoritesCache.get(1));
+        FavoritesCache.onAdded(2, 9); // Another user's write does not touch the cached set
+        assertEquals(ids(7), FavoritesCache.get(1));
+    }
+
+    @Test
+    public void finishLoad_rejectsLoadOverlappingWrite() {
+        long generation = FavoritesCache.beginLoad();
+        FavoritesCache.onAdded(1, 7); // Written after the load started reading
+        assertFalse(FavoritesCache.finishLoad(1, generation, ids(3)));
+        assertNull(FavoritesCache.get(1));
+    }
+
+    @Test
+    public void cachedSet_isNotModifiable() {
+        FavoritesCache.finishLoad(1, FavoritesCache.beginLoad(), ids(3));
+        Set<Integer> cached = FavoritesCache.get(1);
+        FavoritesCache.onAdded(1, 7);
+        assertEquals(ids(3), cached); // Earlier snapshots stay unchanged
+        assertThrows(UnsupportedOperationException.class, () -> cached.add(8));
+    }
+
+    private static Set<Integer> ids(Integer... spotIds) {
+        return new HashSet<>(Arrays.asList(spotIds));
+    }
+}
@@ -0,0 +1,27 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the pure helpers of ParkNowRepository.
+ */
+public class ParkNowRepositoryTest {
+
+    private static final long NOW = 1767225600000L; // 2026-01-01 00:00 UTC
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void archiveCutoff_isRetentionPeriodBeforeNow() {
+        assertEquals(NOW, ParkNowRepository.archiveCutoff(NOW, 0));
+        assertEquals(NOW - 365 * DAY, ParkNowRepository.archiveCutoff(NOW, 365));
+    }
+
+    @Test
+    public void archiveCutoff_doesNotOverflowForLongRetention() {
+        // 30000 * 86400 does not fit in an int; the cutoff must still lie in the past
+        assertEquals(NOW - 30_000L * DAY, ParkNowRepository.archiveCutoff(NOW, 30_000));
+        assertTrue(ParkNowRepository.archiveCutoff(NOW, Integer.MAX_VALUE) < NOW);
+    }
+}
@@ -0,0 +1,43 @@
+package com.s23010409.parknow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SpotCatalog: lookups by SpotID, and that loading more spots keeps the cached ones.
+ */
+public class SpotCatalogTest {
+
+    @Before
+    public void setUp() {
+        SpotCatalog.clear();
+    }
+
+    @Test
+    public void get_returnsTypedSpotById() {
+        assertNull(SpotCatalog.get(1));
+        SpotCatalog.putAll(Arrays.asList(spot(1, 150), spot(2, 99.5)));
+        assertEquals(2, SpotCatalog.size());
+        assertEquals(99.5, SpotCatalog.get(2).getPricePerHour(), 0);
+        assertEquals(12, SpotCatalog.get(2).getAvailability());
+        assertNull(SpotCatalog.get(3));
+    }
+
+    @Test
+    public void put_keepsCachedSpots() {
+        SpotCatalog.putAll(Arrays.asList(spot(1, 150), spot(2, 100)));
+        SpotCatalog.put(spot(3, 120));
+        SpotCatalog.put(spot(1, 175)); // A reload replaces the cached copy
+        assertEquals(3, SpotCatalog.size());
+        assertEquals(175, SpotCatalog.get(1).getPricePerHour(), 0);
+        assertNotNull(SpotCatalog.get(2));
+    }
+
+    private static ParkingSpotModel spot(int id, double price) {
+        return new ParkingSpotModel(id, "Spot " + id, 6.9, 79.8, 12, price, null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SpotClusterer: every spot lands in exactly one cluster, clusters split as the
+ * zoom goes up, and only the clusters in the requested bounds are returned.
+ */
+public class SpotClustererTest {
+
+    // Covers all of Sri Lanka
+    private static final double SOUTH = 5.5, WEST = 79.5, NORTH = 10, EAST = 82;
+
+    @Test
+    public void clusters_coverEverySpotOnce() {
+        List<ParkingSpotModel> spots = randomSpots(2_000, 11);
+        SpotClusterer clusterer = new SpotClusterer(SpotIndex.build(spots));
+        for (int zoom = 0; zoom <= SpotClusterer.MAX_CLUSTER_ZOOM; zoom++) {
+            Set<Integer> seen = new HashSet<>();
+            int availability = 0;
+            for (SpotClusterer.Cluster cluster : clusterer.clusters(zoom, SOUTH, WEST, NORTH, EAST)) {
+                for (ParkingSpotModel spot : cluster.getSpots()) {
+                    assertTrue("Spot " + spot.getId() + " twice at zoom " + zoom, seen.add(spot.getId()));
+                }
+                availability += cluster.getTotalAvailability();
+            }
+            assertEquals(spots.size(), seen.size());
+            assertEquals(totalAvailability(spots), availability);
+        }
+    }
+
+    @Test
+    public void clusters_splitAsZoomGoesUp() {
+        SpotClusterer clusterer = new SpotClusterer(SpotIndex.build(randomSpots(2_000, 12)));
+        assertEquals(1, clusterer.clusters(3, SOUTH, WEST, NORTH, EAST).size()); // The island is one cell
+        int previous = 1;
+        for (int zoom = 4; zoom <= SpotClusterer.MAX_CLUSTER_ZOOM; zoom++) {
+            int count = clusterer.clusters(zoom, SOUTH, WEST, NORTH, EAST).size();
+            assertTrue("Fewer clusters at zoom " + zoom, count >= previous);
+            previous = count;
+        }
+        assertEquals(2_000, previous); // Every spot on its own
+    }
+
+    @Test
+    public void cluster_isSummaryOfItsSpots() {
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        spots.add(new ParkingSpotModel(1, "A", 6.90, 79.85, 4, 100, null));
+        spots.add(new ParkingSpotModel(2, "B", 6.92, 79.87, 0, 100, null));
+        spots.add(new ParkingSpotModel(3, "C", 9.66, 80.02, 7, 100, null)); // Jaffna, far from the others
+        SpotClusterer clusterer = new SpotClusterer(SpotIndex.build(spots));
+
+        List<SpotClusterer.Cluster> clusters = clusterer.clusters(8, SOUTH, WEST, NORTH, EAST);
+        assertEquals(2, clusters.size());
+        SpotClusterer.Cluster colombo = clusters.get(0).size() == 2 ? clusters.get(0) : clusters.get(1);
+        SpotClusterer.Cluster jaffna = clusters.get(0).size() == 2 ? clusters.get(1) : clusters.get(0);
+        assertEquals(4, colombo.getTotalAvailability());
+        assertEquals(6.91, colombo.getLatitude(), 1e-9);
+        assertEquals(79.86, colombo.getLongitude(), 1e-9);
+        assertEquals(6.90, colombo.getSouth(), 0);
+        assertEquals(79.87, colombo.getEast(), 0);
+        assertTrue(jaffna.isSingleSpot());
+        assertEquals("spot:3", jaffna.getKey());
+    }
+
+    @Test
+    public void clusters_areLimitedToBounds() {
+        List<ParkingSpotModel> spots = randomSpots(2_000, 13);
+        SpotClusterer clusterer = new SpotClusterer(SpotIndex.build(spots));
+        for (int zoom : new int[]{12, SpotClusterer.MAX_CLUSTER_ZOOM}) {
+            List<SpotClusterer.Cluster> visible = clusterer.clusters(zoom, 6.9, 79.85, 6.95, 79.9);
+            assertFalse(visible.isEmpty());
+            assertTrue(visible.size() < clusterer.clusters(zoom, SOUTH, WEST, NORTH, EAST).size());
+            for (SpotClusterer.Cluster cluster : visible) {
+                assertTrue(cluster.getLatitude() > 6.8 && cluster.getLatitude() < 7.05);
+                assertTrue(cluster.getLongitude() > 79.75 && cluster.getLongitude() < 80);
+            }
+        }
+    }
+
+    /**
+     * Spots scattered over the island, with most of them around Colombo as in the real catalog.
+     */
+    private static List<ParkingSpotModel> randomSpots(int count, long seed) {
+        Random random = new Random(seed);
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            boolean colombo = random.nextInt(4) > 0;
+            double latitude = colombo ? 6.8 + random.nextDouble() * 0.3 : 6 + random.nextDouble() * 3.5;
+            double longitude = colombo ? 79.8 + random.nextDouble() * 0.2 : 79.9 + random.nextDouble() * 1.8;
+            spots.add(new ParkingSpotModel(i, "Spot " + i, latitude, longitude, random.nextInt(30), 100, null));
+        }
+        return spots;
+    }
+
+    private static int totalAvailability(List<ParkingSpotModel> spots) {
+        int total = 0;
+        for (ParkingSpotModel spot : spots) {
+            total += spot.getAvailability();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,110 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SpotIndex, checked against a linear scan over the same spots.
+ */
+public class SpotIndexTest {
+
+    private static final int SPOTS = 3000;
+
+    /**
+     * Random spots spread over Sri Lanka, with some sharing coordinates to exercise ties.
+     */
+    private static List<ParkingSpotModel> randomSpots(Random random) {
+        List<ParkingSpotModel> spots = new ArrayList<>();
+        for (int i = 0; i < SPOTS; i++) {
+            double lat = 5.9 + random.nextDouble() * 3.9;
+            double lng = 79.6 + random.nextDouble() * 2.3;
+            if (i % 50 == 1) {
+                lat = spots.get(i - 1).getLatitude();
+                lng = spots.get(i - 1).getLongitude();
+            }
+            spots.add(new ParkingSpotModel(i + 1, "Spot " + i, lat, lng, 10, 100, null));
+        }
+        return spots;
+    }
+
+    @Test
+    public void inBounds_matchesLinearScan() {
+        Random random = new Random(42);
+        List<ParkingSpotModel> spots = randomSpots(random);
+        SpotIndex index = SpotIndex.build(spots);
+        assertEquals(SPOTS, index.size());
+
+        for (int query = 0; query < 200; query++) {
+            double south = 5.9 + random.nextDouble() * 3.9;
+            double west = 79.6 + random.nextDouble() * 2.3;
+            double north = south + random.nextDouble() * 0.5;
+            double east = west + random.nextDouble() * 0.5;
+            Set<Integer> expected = new HashSet<>();
+            for (ParkingSpotModel spot : spots) {
+                if (spot.getLatitude() >= south && spot.getLatitude() <= north
+                        && spot.getLongitude() >= west && spot.getLongitude() <= east) {
+                    expected.add(spot.getId());
+                }
+            }
+            Set<Integer> actual = new HashSet<>();
+            for (ParkingSpotModel spot : index.inBounds(south, west, north, east)) {
+                assertTrue("Reported twice: " + spot.getId(), actual.add(spot.getId()));
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void nearest_matchesLinearScan() {
+        Random random = new Random(7);
+        List<ParkingSpotModel> spots = randomSpots(random);
+        SpotIndex index = SpotIndex.build(spots);
+
+        for (int query = 0; query < 200; query++) {
+            double lat = 5.9 + random.nextDouble() * 3.9;
+            double lng = 79.6 + random.nextDouble() * 2.3;
+            int k = 1 + random.nextInt(10);
+            double lngScale = Math.cos(Math.toRadians(lat));
+            Comparator<ParkingSpotModel> byDistance = Comparator.comparingDouble(spot -> {
+                double dLat = spot.getLatitude() - lat;
+                double dLng = (spot.getLongitude() - lng) * lngScale;
+                return dLat * dLat + dLng * dLng;
+            });
+            List<ParkingSpotModel> expected = new ArrayList<>(spots);
+            expected.sort(byDistance);
+
+            List<ParkingSpotModel> actual = index.nearest(lat, lng, k);
+            assertEquals(k, actual.size());
+            for (int i = 0; i < k; i++) {
+                // Compare distances rather than IDs, since spots can share coordinates
+                assertEquals(0, byDistance.compare(expected.get(i), actual.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void nearest_handlesSmallAndEmptyCatalogs() {
+        assertTrue(SpotIndex.build(new ArrayList<>()).nearest(6.9, 79.8, 3).isEmpty());
+        List<ParkingSpotModel> two = new ArrayList<>();
+        two.add(new ParkingSpotModel(1, "Far", 9.66, 80.02, 1, 1, null));
+        two.add(new ParkingSpotModel(2, "Near", 6.93, 79.86, 1, 1, null));
+        List<ParkingSpotModel> nearest = SpotIndex.build(two).nearest(6.92, 79.85, 5);
+        assertEquals(2, nearest.size());
+        assertEquals("Near", nearest.get(0).getSpotName());
+    }
+
+    @Test
+    public void distanceMeters_colomboToKandy() {
+        // Colombo Fort to Kandy City Center is about 94 km in a straight line
+        double meters = SpotIndex.distanceMeters(6.9271, 79.8612, 7.2906, 80.6337);
+        assertEquals(94000, meters, 1500);
+    }
+}
@@ -0,0 +1,348 @@
+package com.s23010409.parknow;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * SyntheticDataGenerator
+ * Generates users, spots, reservations, favorites and feedback for the scale tests, with the skew real
+ * usage has: a few spots take most of the bookings and a few users book far more than the rest (both
+ * Zipf-distributed), bookings cluster on weekday office hours, and ratings lean positive.
+ * The same seed and Scale always give the same rows in the same order. Each kind of row is drawn from
+ * its own Random, so changing how one kind is generated does not reshuffle the others.
+ */
+final class SyntheticDataGenerator {
+
+    /**
+     * How much data to generate.
+     */
+    static final class Scale {
+        static final Scale SMALL = new Scale("small", 2_000, 200, 100_000);
+        static final Scale LARGE = new Scale("large", 100_000, 2_000, 10_000_000);
+
+        final String name;
+        final int users;
+        final int spots;
+        final int reservations;
+
+        Scale(String name, int users, int spots, int reservations) {
+            this.name = name;
+            this.users = users;
+            this.spots = spots;
+            this.reservations = reservations;
+        }
+
+        /**
+         * The scale named by the "parknow.scale" system property, SMALL if it is not set.
+         */
+        static Scale fromSystemProperty() {
+            String name = System.getProperty("parknow.scale", SMALL.name);
+            if (LARGE.name.equalsIgnoreCase(name)) {
+                return LARGE;
+            }
+            if (!SMALL.name.equalsIgnoreCase(name)) {
+                throw new IllegalArgumentException("Unknown parknow.scale: " + name + " (use small or large)");
+            }
+            return SMALL;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + users + " users, " + spots + " spots, " + reservations + " reservations)";
+        }
+    }
+
+    /**
+     * Receives generated rows, CHUNK_SIZE at a time, so large scales never hold every row in memory.
+     */
+    interface Sink<T> {
+        void accept(List<T> chunk);
+    }
+
+    /**
+     * The IDs the database gave the generated rows, for choosing what the scale tests look up.
+     */
+    static final class Population {
+        final int[] userIds;
+        final int[] spotIds;
+        final int busiestUserId; // The user with the most reservations
+
+        Population(int[] userIds, int[] spotIds, int busiestUserId) {
+            this.userIds = userIds;
+            this.spotIds = spotIds;
+            this.busiestUserId = busiestUserId;
+        }
+    }
+
+    static final int CHUNK_SIZE = 20_000;
+
+    // Fixed instead of the current time, so the same seed always gives the same timestamps
+    static final long END_MILLIS = 1767225600000L; // 2026-01-01 00:00 UTC
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int HISTORY_DAYS = 730;
+    private static final long LAST_MONDAY_MILLIS = END_MILLIS - 10 * DAY_MILLIS; // 2025-12-22, so the last week ends before END_MILLIS
+
+    // Zipf exponents; with 0.8 the top 10% of 2000 spots take about half of all bookings
+    private static final double SPOT_SKEW = 0.8;
+    private static final double USER_SKEW = 0.6;
+
+    private static final double MEAN_FAVORITES_PER_USER = 3;
+    private static final double FEEDBACK_PER_RESERVATION = 0.05;
+    private static final double GENERAL_FEEDBACK_SHARE = 0.1;
+
+    // Share of bookings starting in each hour of the day, peaking at the morning and evening commute
+    private static final double[] HOUR_WEIGHTS = {
+            0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 1.5, 4.0, 7.0, 6.0, 5.0, 5.0,
+            5.5, 5.0, 4.5, 4.5, 5.0, 6.0, 5.0, 3.0, 2.0, 1.5, 1.0, 0.5};
+    private static final double WEEKEND_SHARE = 0.15;
+    // Share of ratings from 1 to 5 stars
+    private static final double[] RATING_WEIGHTS = {0.06, 0.07, 0.12, 0.30, 0.45};
+
+    private static final String[] SUBJECTS = {
+            "Easy to find", "Gate was closed", "Great location", "Too expensive", "Spot was taken", "Clean and safe"};
+    private static final String[] MESSAGES = {
+            "Parked without any trouble.", "Had to wait at the entrance for a while.",
+            "The attendant was helpful.", "Signs to the parking area are hard to see.",
+            "Will book here again.", "Lighting at night could be better."};
+
+    private final long seed;
+    private final Scale scale;
+
+    SyntheticDataGenerator(long seed, Scale scale) {
+        this.seed = seed;
+        this.scale = scale;
+    }
+
+    /**
+     * Fills a new database with the whole data set, using DatabaseHelper's batch inserts.
+     *
+     * @return The IDs the users and spots were stored under.
+     */
+    Population populate(DatabaseHelper helper) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        BatchInsertResult spotsInserted = helper.insertSpots(spots());
+        check(spotsInserted, "spots");
+        int[] spotIds = ids(db, "SELECT " + DatabaseHelper.COL_SPOT_ID + " FROM " + DatabaseHelper.TABLE_SPOTS
+                + " WHERE " + DatabaseHelper.COL_SPOT_NAME + " LIKE 'Synthetic Spot %' ORDER BY " + DatabaseHelper.COL_SPOT_ID);
+
+        // DatabaseHelper has no batch insert for users; one transaction per chunk keeps this fast
+        for (int first = 0; first < scale.users; first += CHUNK_SIZE) {
+            db.beginTransactionNonExclusive();
+            try {
+                for (int i = first; i < Math.min(first + CHUNK_SIZE, scale.users); i++) {
+                    if (!helper.insertUser("Synthetic User " + i, email(i), password(i))) {
+                        throw new IllegalStateException("Could not insert user " + i);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        int[] userIds = ids(db, "SELECT " + DatabaseHelper.COL_USER_ID + " FROM " + DatabaseHelper.TABLE_USERS
+                + " WHERE " + DatabaseHelper.COL_EMAIL + " LIKE '%@synthetic.parknow.lk' ORDER BY " + DatabaseHelper.COL_USER_ID);
+
+        reservations(userIds, spotIds, chunk -> check(helper.insertReservations(chunk), "reservations"));
+        favorites(userIds, spotIds, chunk -> check(helper.insertFavoriteSpots(chunk), "favorites"));
+        feedback(userIds, spotIds, chunk -> check(helper.insertFeedbackBatch(chunk), "feedback"));
+        return new Population(userIds, spotIds, userIds[busiestUserIndex()]);
+    }
+
+    /**
+     * The generated spots, spread over greater Colombo.
+     */
+    List<ParkingSpotModel> spots() {
+        Random random = random(1);
+        List<ParkingSpotModel> spots = new ArrayList<>(scale.spots);
+        for (int i = 0; i < scale.spots; i++) {
+            spots.add(new ParkingSpotModel("Synthetic Spot " + i, 6.75 + random.nextDouble() * 0.35,
+                    79.82 + random.nextDouble() * 0.2, 5 + random.nextInt(46), 50 + 10 * random.nextInt(21), null));
+        }
+        return spots;
+    }
+
+    static String email(int user) {
+        return "user" + user + "@synthetic.parknow.lk";
+    }
+
+    static String password(int user) {
+        return "password" + user;
+    }
+
+    /**
+     * Generates scale.reservations reservations over the HISTORY_DAYS before END_MILLIS.
+     *
+     * @param userIds Users in generation order; which of them are busy is decided by the seed.
+     * @param spotIds Spots in generation order; likewise for which are popular.
+     */
+    void reservations(int[] userIds, int[] spotIds, Sink<ReservationModel> sink) {
+        Random random = random(2);
+        ZipfSampler users = new ZipfSampler(userIds.length, USER_SKEW, random(3));
+        ZipfSampler spots = new ZipfSampler(spotIds.length, SPOT_SKEW, random(4));
+        List<ReservationModel> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < scale.reservations; i++) {
+            chunk.add(new ReservationModel(userIds[users.next(random)], spotIds[spots.next(random)], timestamp(random)));
+            if (chunk.size() == CHUNK_SIZE) {
+                sink.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    /**
+     * Generates a few favorite spots per user (geometrically distributed), mostly popular ones.
+     */
+    void favorites(int[] userIds, int[] spotIds, Sink<FavoriteModel> sink) {
+        Random random = random(5);
+        ZipfSampler spots = new ZipfSampler(spotIds.length, SPOT_SKEW, random(4)); // Same popular spots as the bookings
+        int perUserLimit = Math.min(spotIds.length, 50);
+        List<FavoriteModel> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int userId : userIds) {
+            int count = Math.min(perUserLimit, (int) (Math.log(1 - random.nextDouble()) * -MEAN_FAVORITES_PER_USER));
+            Set<Integer> chosen = new HashSet<>();
+            while (chosen.size() < count) {
+                int spotId = spotIds[spots.next(random)];
+                if (chosen.add(spotId)) {
+                    chunk.add(new FavoriteModel(userId, spotId));
+                }
+            }
+            if (chunk.size() >= CHUNK_SIZE) {
+                sink.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    /**
+     * Generates about one feedback entry per 1 / FEEDBACK_PER_RESERVATION reservations,
+     * a share of it general feedback not about any spot.
+     */
+    void feedback(int[] userIds, int[] spotIds, Sink<FeedbackModel> sink) {
+        Random random = random(6);
+        ZipfSampler users = new ZipfSampler(userIds.length, USER_SKEW, random(3)); // Busy users write more
+        ZipfSampler spots = new ZipfSampler(spotIds.length, SPOT_SKEW, random(4));
+        int entries = (int) (scale.reservations * FEEDBACK_PER_RESERVATION);
+        List<FeedbackModel> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < entries; i++) {
+            int userId = userIds[users.next(random)];
+            String subject = SUBJECTS[random.nextInt(SUBJECTS.length)];
+            String message = MESSAGES[random.nextInt(MESSAGES.length)];
+            float rating = 1 + pick(RATING_WEIGHTS, random);
+            long timestamp = timestamp(random);
+            chunk.add(random.nextDouble() < GENERAL_FEEDBACK_SHARE
+                    ? new FeedbackModel(userId, subject, message, rating, timestamp)
+                    : new FeedbackModel(userId, spotIds[spots.next(random)], subject, message, rating, timestamp));
+            if (chunk.size() == CHUNK_SIZE) {
+                sink.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    /**
+     * Position, in the userIds given to reservations, of the user who is drawn most often.
+     */
+    int busiestUserIndex() {
+        return new ZipfSampler(scale.users, USER_SKEW, random(3)).itemOfRank(0);
+    }
+
+    private long timestamp(Random random) {
+        int week = random.nextInt(HISTORY_DAYS / 7);
+        int day = random.nextDouble() < WEEKEND_SHARE ? 5 + random.nextInt(2) : random.nextInt(5); // Monday is 0
+        int hour = pick(HOUR_WEIGHTS, random);
+        return LAST_MONDAY_MILLIS - week * 7 * DAY_MILLIS + day * DAY_MILLIS
+                + hour * 60 * 60 * 1000L + random.nextInt(4) * 15 * 60 * 1000L;
+    }
+
+    /**
+     * Draws an index with probability proportional to its weight.
+     */
+    private static int pick(double[] weights, Random random) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private Random random(int stream) {
+        return new Random(seed * 31 + stream);
+    }
+
+    private static void check(BatchInsertResult result, String what) {
+        if (result.hasFailures()) {
+            throw new IllegalStateException("Could not insert all " + what + ": " + result);
+        }
+    }
+
+    private static int[] ids(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            int[] ids = new int[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getInt(0);
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Draws items 0..n-1 with probability proportional to 1 / rank^exponent. Which item gets which rank
+     * is shuffled, so the popular items are spread over the ID range as they would be in real data.
+     */
+    static final class ZipfSampler {
+        private final double[] cumulative; // By rank
+        private final int[] itemByRank;
+
+        ZipfSampler(int n, double exponent, Random shuffle) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            itemByRank = new int[n];
+            for (int i = 0; i < n; i++) {
+                itemByRank[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = shuffle.nextInt(i + 1);
+                int item = itemByRank[i];
+                itemByRank[i] = itemByRank[j];
+                itemByRank[j] = item;
+            }
+        }
+
+        int next(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, target);
+            return itemByRank[rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1)];
+        }
+
+        int itemOfRank(int rank) {
+            return itemByRank[rank];
+        }
+    }
+}
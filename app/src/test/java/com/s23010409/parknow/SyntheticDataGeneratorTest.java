@@ -0,0 +1,102 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SyntheticDataGenerator: the same seed gives the same rows, and the rows
+ * have the skew the scale tests rely on.
+ */
+public class SyntheticDataGeneratorTest {
+
+    private static final SyntheticDataGenerator.Scale SCALE = new SyntheticDataGenerator.Scale("test", 1_000, 100, 50_000);
+
+    @Test
+    public void sameSeed_givesSameRows() {
+        assertEquals(describe(generate(7)), describe(generate(7)));
+        assertNotEquals(describe(generate(7)), describe(generate(8)));
+    }
+
+    @Test
+    public void reservations_areSkewedTowardsPopularSpotsAndBusyUsers() {
+        List<ReservationModel> reservations = generate(7);
+        assertEquals(SCALE.reservations, reservations.size());
+
+        Map<Integer, Integer> bySpot = new HashMap<>();
+        Map<Integer, Integer> byUser = new HashMap<>();
+        for (ReservationModel reservation : reservations) {
+            bySpot.merge(reservation.getSpotId(), 1, Integer::sum);
+            byUser.merge(reservation.getUserId(), 1, Integer::sum);
+            assertTrue(reservation.getTimestamp() < SyntheticDataGenerator.END_MILLIS);
+        }
+        assertTrue(topTenPercentShare(bySpot, SCALE.spots) > 0.35);
+        assertTrue(topTenPercentShare(byUser, SCALE.users) > 0.25);
+
+        int busiest = new SyntheticDataGenerator(7, SCALE).busiestUserIndex() + 1; // IDs below start at 1
+        for (int count : byUser.values()) {
+            assertTrue(count <= byUser.get(busiest));
+        }
+    }
+
+    @Test
+    public void favorites_areUniquePerUser() {
+        List<FavoriteModel> favorites = new ArrayList<>();
+        new SyntheticDataGenerator(7, SCALE).favorites(ids(SCALE.users), ids(SCALE.spots), favorites::addAll);
+        assertFalse(favorites.isEmpty());
+        List<String> pairs = new ArrayList<>();
+        for (FavoriteModel favorite : favorites) {
+            pairs.add(favorite.getUserId() + "/" + favorite.getSpotId());
+        }
+        assertEquals(pairs.size(), new HashSet<>(pairs).size());
+    }
+
+    private static List<ReservationModel> generate(long seed) {
+        List<ReservationModel> reservations = new ArrayList<>();
+        new SyntheticDataGenerator(seed, SCALE).reservations(ids(SCALE.users), ids(SCALE.spots), reservations::addAll);
+        return reservations;
+    }
+
+    private static String describe(List<ReservationModel> reservations) {
+        StringBuilder builder = new StringBuilder();
+        for (ReservationModel reservation : reservations.subList(0, 1000)) {
+            builder.append(reservation.getUserId()).append(',').append(reservation.getSpotId()).append(',')
+                    .append(reservation.getTimestamp()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Share of all rows that belong to the busiest tenth of the keys.
+     */
+    private static double topTenPercentShare(Map<Integer, Integer> counts, int keys) {
+        List<Integer> sorted = new ArrayList<>(counts.values());
+        sorted.sort((a, b) -> b - a);
+        long top = 0;
+        long total = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i < keys / 10) {
+                top += sorted.get(i);
+            }
+            total += sorted.get(i);
+        }
+        return (double) top / total;
+    }
+
+    /**
+     * IDs 1..n, as a new database would give them.
+     */
+    private static int[] ids(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+}
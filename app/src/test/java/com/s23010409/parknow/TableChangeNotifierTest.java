@@ -0,0 +1,64 @@
+package com.s23010409.parknow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for TableChangeNotifier: listeners only hear about the tables they registered for.
+ */
+public class TableChangeNotifierTest {
+
+    private final TableChangeNotifier notifier = new TableChangeNotifier();
+
+    @Test
+    public void notifyChanged_reachesListenersOfThoseTablesOnly() {
+        List<Set<String>> favorites = new ArrayList<>();
+        List<Set<String>> reservations = new ArrayList<>();
+        notifier.addListener(Arrays.asList("Favorites", "Spots"), favorites::add);
+        notifier.addListener(Collections.singletonList("Reservations"), reservations::add);
+
+        notifier.notifyChanged("Favorites");
+        notifier.notifyChanged("Feedback", "RatingSummary");
+        notifier.notifyChanged("Reservations", "Spots");
+
+        assertEquals(Arrays.asList(tables("Favorites"), tables("Reservations", "Spots")), favorites);
+        assertEquals(Collections.singletonList(tables("Reservations", "Spots")), reservations);
+    }
+
+    @Test
+    public void removeListener_stopsNotifications() {
+        List<Set<String>> received = new ArrayList<>();
+        TableChangeNotifier.Listener listener = received::add;
+        notifier.addListener(Collections.singletonList("Favorites"), listener);
+        notifier.notifyChanged("Favorites");
+        notifier.removeListener(listener);
+        notifier.notifyChanged("Favorites");
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void listener_canRemoveItselfWhileNotified() {
+        List<Set<String>> received = new ArrayList<>();
+        TableChangeNotifier.Listener[] self = new TableChangeNotifier.Listener[1];
+        self[0] = tables -> {
+            received.add(tables);
+            notifier.removeListener(self[0]);
+        };
+        notifier.addListener(Collections.singletonList("Favorites"), self[0]);
+        notifier.notifyChanged("Favorites");
+        notifier.notifyChanged("Favorites");
+        assertEquals(1, received.size());
+    }
+
+    private static Set<String> tables(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}